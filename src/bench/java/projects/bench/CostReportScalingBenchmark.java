@@ -0,0 +1,85 @@
+package projects.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.report.CostReport;
+import projects.report.CostReportEngine;
+import projects.report.CostSource;
+
+/**
+ * This shows how the cost report engine scales with the number of cores. The rows come from a
+ * deterministic generator instead of the database, so the benchmark measures the partitioning,
+ * the fixed-point aggregation and the merge, and runs without a server. Compare the scores across
+ * the parallelism values; on an idle machine the time should fall roughly in proportion until the
+ * parallelism passes the number of cores.
+ *
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main CostReportScalingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CostReportScalingBenchmark {
+  @Param({"1", "2", "4", "8"})
+  public int parallelism;
+
+  @Param({"1000000"})
+  public int projects;
+
+  @Benchmark
+  public CostReport report() {
+    CostSource source = new SyntheticCostSource(projects);
+    return new CostReportEngine(source, parallelism, CostReportEngine.DEFAULT_PARTITION_SIZE).run();
+  }
+
+  /**
+   * Each project has one to eight materials. The values depend only on the project ID, so every
+   * run and every partitioning sees the same data.
+   */
+  private static class SyntheticCostSource implements CostSource {
+    private final int projects;
+
+    SyntheticCostSource(int projects) {
+      this.projects = projects;
+    }
+
+    @Override
+    public int[] projectIdRange() {
+      return new int[] {1, projects};
+    }
+
+    @Override
+    public void read(int firstProjectId, int lastProjectId, CostReport report) {
+      for(int projectId = firstProjectId; projectId <= lastProjectId; projectId++) {
+        SplittableRandom random = new SplittableRandom(projectId);
+        int materials = 1 + random.nextInt(8);
+        long materialCents = 0;
+
+        for(int material = 0; material < materials; material++) {
+          materialCents += (1 + random.nextInt(10)) * (long)random.nextInt(1, 50_000);
+        }
+
+        long estimated = random.nextInt(100, 10_000);
+        long actual = random.nextInt(10) == 0 ? CostReport.MISSING : random.nextInt(100, 12_000);
+
+        report.add(1 + random.nextInt(5), materialCents, estimated, actual);
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package projects.bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * This is a JDBC driver that wraps another driver and counts the calls that cost a round trip to a
+ * MySQL server with Connector/J's default settings. It accepts URLs of the form
+ * jdbc:counting:&lt;real URL&gt;, so it can sit in front of MySQL or of the embedded H2 database,
+ * where the calls are local but the count is the same.
+ *
+ * The counted calls are the statement executions and the connection calls that send a command:
+ * setAutoCommit, commit, rollback, setReadOnly, setTransactionIsolation and
+ * getTransactionIsolation.
+ */
+final class CountingDriver implements Driver {
+  static final String PREFIX = "jdbc:counting:";
+
+  private static final Set<String> CONNECTION_ROUND_TRIPS = Set.of("setAutoCommit", "commit", "rollback",
+      "setReadOnly", "setTransactionIsolation", "getTransactionIsolation");
+
+  private static final Set<String> STATEMENT_ROUND_TRIPS = Set.of("execute", "executeQuery", "executeUpdate",
+      "executeBatch", "executeLargeUpdate", "executeLargeBatch");
+
+  private static final LongAdder ROUND_TRIPS = new LongAdder();
+
+  static {
+    try {
+      DriverManager.registerDriver(new CountingDriver());
+    }
+    catch(SQLException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private CountingDriver() {}
+
+  /**
+   * Make sure the driver is registered.
+   */
+  static void register() {
+    /* The static initializer does the work. */
+  }
+
+  /**
+   * @return The number of round trips counted so far.
+   */
+  static long roundTrips() {
+    return ROUND_TRIPS.sum();
+  }
+
+  @Override
+  public Connection connect(String url, Properties info) throws SQLException {
+    if(!acceptsURL(url)) {
+      return null;
+    }
+
+    Connection conn = DriverManager.getConnection(url.substring(PREFIX.length()), info);
+    return (Connection)counting(conn, Connection.class, CONNECTION_ROUND_TRIPS);
+  }
+
+  @Override
+  public boolean acceptsURL(String url) {
+    return url.startsWith(PREFIX);
+  }
+
+  @Override
+  public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+    return new DriverPropertyInfo[0];
+  }
+
+  @Override
+  public int getMajorVersion() {
+    return 1;
+  }
+
+  @Override
+  public int getMinorVersion() {
+    return 0;
+  }
+
+  @Override
+  public boolean jdbcCompliant() {
+    return false;
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  /**
+   * Wrap a connection or statement. Statements created by a counted connection are counted too.
+   */
+  private static Object counting(Object target, Class<?> type, Set<String> roundTrips) {
+    Class<?>[] interfaces = Connection.class.equals(type) ? new Class<?>[] {Connection.class} : statementInterfaces(target);
+
+    return Proxy.newProxyInstance(CountingDriver.class.getClassLoader(), interfaces, (proxy, method, args) -> {
+      if(roundTrips.contains(method.getName())) {
+        ROUND_TRIPS.increment();
+      }
+
+      Object result = invoke(target, method, args);
+
+      if(result instanceof Statement && !(result instanceof Proxy)) {
+        return counting(result, Statement.class, STATEMENT_ROUND_TRIPS);
+      }
+
+      return result;
+    });
+  }
+
+  /**
+   * The JDBC statement interfaces the statement implements, so a PreparedStatement is still one.
+   */
+  private static Class<?>[] statementInterfaces(Object statement) {
+    if(statement instanceof java.sql.CallableStatement) {
+      return new Class<?>[] {java.sql.CallableStatement.class};
+    }
+
+    if(statement instanceof java.sql.PreparedStatement) {
+      return new Class<?>[] {java.sql.PreparedStatement.class};
+    }
+
+    return new Class<?>[] {Statement.class};
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    }
+    catch(InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
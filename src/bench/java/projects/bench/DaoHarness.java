@@ -0,0 +1,522 @@
+package projects.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.IntConsumer;
+
+import projects.dao.DbConnection;
+import projects.dao.FetchProfile;
+import projects.dao.HistoryCompactor;
+import projects.dao.ProjectDao;
+import projects.dao.PurgeOptions;
+import projects.dao.SchemaMigrator;
+import projects.dao.StepCursor;
+import projects.dao.TransactionOptions;
+import projects.dao.TransactionTemplate;
+import projects.dao.cache.QueryCache;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+/**
+ * This runs every ProjectDao path against a freshly built database, first as correctness checks
+ * and then as timed smoke tests. Unless projects.db.url is set, the database is an in-memory H2
+ * database in MySQL mode, so nothing needs to be installed. The harness creates the tables from
+ * projects-schema.sql, applies the migrations with SchemaMigrator, seeds synthetic projects and
+ * exits with status 1 if any check fails or any operation is over its time budget. The data comes
+ * from the {@link DataGenerator}.
+ *
+ * Settings, as system properties:
+ *
+ * <ul>
+ * <li>projects.harness.projects: the number of seeded projects (1000).</li>
+ * <li>projects.harness.iterations: the number of timed calls per operation (200).</li>
+ * <li>projects.harness.maxP99Millis: the 99th percentile budget per operation (250).</li>
+ * <li>projects.harness.seed: the random seed for the synthetic data (42).</li>
+ * </ul>
+ *
+ * <pre>
+ * java -cp ... projects.bench.DaoHarness
+ * </pre>
+ */
+public class DaoHarness {
+  static final String H2_URL =
+      "jdbc:h2:mem:{schema};MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+  private final int projectCount = Integer.getInteger("projects.harness.projects", 1000);
+  private final int iterations = Integer.getInteger("projects.harness.iterations", 200);
+  private final long maxP99Millis = Long.getLong("projects.harness.maxP99Millis", 250);
+  private final long seed = Long.getLong("projects.harness.seed", 42);
+  private final Random random = new Random(seed);
+
+  private final List<String> failures = new ArrayList<>();
+  private ProjectDao dao;
+
+  public static void main(String[] args) throws Exception {
+    boolean embedded = Objects.isNull(System.getProperty("projects.db.url"))
+        && Objects.isNull(System.getenv("PROJECTS_DB_URL"));
+
+    /* DbConnection reads these once, so they must be set before it is first used. */
+    if(embedded) {
+      System.setProperty("projects.db.url", H2_URL);
+      System.setProperty("projects.db.user", "sa");
+      System.setProperty("projects.db.password", "");
+    }
+
+    System.exit(new DaoHarness().run(embedded) ? 0 : 1);
+  }
+
+  private boolean run(boolean embedded) throws Exception {
+    long start = System.nanoTime();
+
+    buildDatabase(embedded, projectCount, seed);
+    dao = new ProjectDao();
+    System.out.printf("Schema and %d projects ready in %d ms%n", projectCount, (System.nanoTime() - start) / 1_000_000);
+
+    checkCrud();
+    timeCrud();
+
+    System.out.println("Query cache: " + QueryCache.getInstance());
+    DbConnection.closePools();
+
+    if(failures.isEmpty()) {
+      System.out.println("All checks passed.");
+      return true;
+    }
+
+    System.out.println(failures.size() + " check(s) failed:");
+    failures.forEach(failure -> System.out.println("  " + failure));
+    return false;
+  }
+
+  /*
+   * Schema and data.
+   */
+
+  /**
+   * Create the tables from projects-schema.sql, apply the migrations and seed the tables with the
+   * synthetic data generator. The project IDs are 1..projects because the tables were just
+   * created. The transaction benchmark builds its database the same way.
+   */
+  static void buildDatabase(boolean embedded, int projects, long seed) throws Exception {
+    try(Connection conn = DbConnection.getConnection(); Statement stmt = conn.createStatement()) {
+      if(embedded) {
+        stmt.execute("CREATE ALIAS IF NOT EXISTS GET_LOCK FOR 'projects.bench.H2Functions.getLock'");
+        stmt.execute("CREATE ALIAS IF NOT EXISTS RELEASE_LOCK FOR 'projects.bench.H2Functions.releaseLock'");
+      }
+
+      for(String sql : statements(resource("projects-schema.sql"))) {
+        stmt.execute(sql);
+      }
+    }
+
+    new SchemaMigrator().migrate();
+
+    GeneratorOptions options = new GeneratorOptions();
+    options.setSeed(seed);
+    options.setProjects(projects);
+    options.setCategories(12);
+
+    new DataGenerator(options).generateToDatabase(DbConnection.getSchema());
+  }
+
+  private BigDecimal hours() {
+    return BigDecimal.valueOf(100 + random.nextInt(5000), 2);
+  }
+
+  /*
+   * Correctness.
+   */
+
+  private void checkCrud() throws InterruptedException {
+    Project project = new Project();
+    project.setProjectName("Harness project");
+    project.setEstimatedHours(new BigDecimal("3.50"));
+    project.setActualHours(new BigDecimal("4.25"));
+    project.setDifficulty(2);
+    project.setNotes("Inserted by checkCrud");
+
+    Integer projectId = dao.insertProject(project).getProjectId();
+    check("insertProject assigns an ID", Objects.nonNull(projectId));
+
+    Optional<Project> fetched = dao.fetchProjectById(projectId);
+    check("fetchProjectById finds the new project", fetched.isPresent());
+    fetched.ifPresent(p -> {
+      check("fetched name matches", p.getProjectName().equals("Harness project"));
+      check("fetched hours match", p.getEstimatedHours().compareTo(new BigDecimal("3.50")) == 0
+          && p.getActualHours().compareTo(new BigDecimal("4.25")) == 0);
+      check("new project has no children", p.getMaterials().isEmpty() && p.getSteps().isEmpty());
+    });
+
+    List<Project> all = dao.fetchAllProjects();
+    check("fetchAllProjects returns every project", all.size() == projectCount + 1);
+    check("fetchAllProjects is ordered by name", isSortedByName(all));
+
+    project.setProjectName("Harness project, modified");
+    project.setDifficulty(4);
+    check("modifyProjectDetails reports the update", dao.modifyProjectDetails(project));
+    check("modification is visible", dao.fetchProjectById(projectId).map(p -> p.getDifficulty() == 4
+        && p.getProjectName().equals("Harness project, modified")).orElse(false));
+    check("cached project list sees the modification", dao.fetchAllProjects().stream()
+        .anyMatch(p -> p.getProjectName().equals("Harness project, modified")));
+
+    int updated = dao.updateActualHours(Map.of(projectId, new BigDecimal("9.00"), 1, new BigDecimal("1.00")));
+    check("updateActualHours updates both projects", updated == 2);
+    check("updated hours are visible", dao.fetchProjectById(projectId)
+        .map(p -> p.getActualHours().compareTo(new BigDecimal("9.00")) == 0).orElse(false));
+
+    checkSeededProject();
+    checkPublisher();
+    checkUnitOfWork();
+    checkHistory();
+
+    check("deleteProject deletes", dao.deleteProject(projectId));
+    check("deleted project is gone", dao.fetchProjectById(projectId).isEmpty());
+    check("cached project list drops the deleted project", dao.fetchAllProjects().size() == projectCount);
+    check("deleting again reports nothing deleted", !dao.deleteProject(projectId));
+  }
+
+  /**
+   * Project 1 was seeded with children; read them through every path that returns them.
+   */
+  private void checkSeededProject() {
+    Project full = dao.fetchProjectById(1).orElseThrow();
+    check("seeded project has steps", !full.getSteps().isEmpty());
+    check("seeded project has categories", !full.getCategories().isEmpty());
+    check("steps are in order", isSortedByStepOrder(full.getSteps()));
+
+    Project scalars = dao.fetchProjectById(1, FetchProfile.SCALARS).orElseThrow();
+    check("lazy steps load the same steps", scalars.getSteps().size() == full.getSteps().size());
+    check("lazy materials load the same materials", scalars.getMaterials().size() == full.getMaterials().size());
+
+    List<Step> firstPage = dao.fetchStepRange(1, 0, 2);
+    check("fetchStepRange returns the first page", firstPage.size() == Math.min(2, full.getSteps().size()));
+
+    List<Step> streamed = new ArrayList<>();
+
+    try(StepCursor cursor = dao.openStepCursor(1)) {
+      cursor.forEachRemaining(streamed::add);
+    }
+
+    check("openStepCursor streams every step", streamed.size() == full.getSteps().size()
+        && isSortedByStepOrder(streamed));
+  }
+
+  /**
+   * Export every project one at a time, then check that cancelled exports give their connections
+   * back: each holds four, so a few leaked exports would exhaust the pool.
+   */
+  private void checkPublisher() {
+    List<Project> exported = export(Long.MAX_VALUE);
+    List<Project> all = dao.fetchAllProjects();
+
+    check("publishAllProjects publishes every project", exported.size() == all.size());
+    check("published projects are in ID order", isSortedById(exported));
+
+    Project published = exported.stream().filter(p -> p.getProjectId() == 1).findFirst().orElse(null);
+    Project fetched = dao.fetchProjectById(1).orElseThrow();
+    check("published project has the same children", Objects.nonNull(published)
+        && published.getMaterials().size() == fetched.getMaterials().size()
+        && published.getSteps().size() == fetched.getSteps().size()
+        && published.getCategories().size() == fetched.getCategories().size()
+        && isSortedByStepOrder(published.getSteps()));
+
+    boolean released = true;
+
+    for(int i = 0; i < 5; i++) {
+      released &= export(10).size() == 10;
+    }
+
+    check("cancelled exports release their connections", released);
+  }
+
+  /**
+   * DAO calls in one unit of work commit together, and roll back together when one fails.
+   */
+  private void checkUnitOfWork() {
+    TransactionTemplate transactions = dao.getTransactions();
+    BigDecimal hours = new BigDecimal("2.00");
+
+    Project project = new Project();
+    project.setProjectName("Unit of work project");
+    project.setEstimatedHours(hours);
+
+    try {
+      transactions.execute(new TransactionOptions(), conn -> {
+        dao.insertProject(project);
+        dao.updateActualHours(Map.of(project.getProjectId(), hours));
+        throw new IllegalStateException("Roll back the unit of work.");
+      });
+    }
+    catch(IllegalStateException e) {
+      /* Expected. */
+    }
+
+    check("a failed unit of work rolls back every call", dao.fetchProjectById(project.getProjectId()).isEmpty());
+
+    project.setProjectId(null);
+    Integer projectId = transactions.execute(new TransactionOptions(), conn -> {
+      Integer id = dao.insertProject(project).getProjectId();
+      dao.updateActualHours(Map.of(id, hours));
+      return id;
+    });
+
+    check("a unit of work commits every call", dao.fetchProjectById(projectId)
+        .map(p -> p.getActualHours().compareTo(hours) == 0).orElse(false));
+    check("cached project list sees the committed unit of work", dao.fetchAllProjects().stream()
+        .anyMatch(p -> p.getProjectId().equals(projectId)));
+
+    boolean rejected = false;
+
+    try {
+      transactions.execute(TransactionOptions.readOnly(), conn -> dao.deleteProject(projectId));
+    }
+    catch(IllegalStateException e) {
+      rejected = true;
+    }
+
+    check("a write can't join a read-only unit of work", rejected);
+    dao.deleteProject(projectId);
+  }
+
+  /**
+   * Each change appends a version that can be read back as of a time, and compaction removes only
+   * versions that are no longer current.
+   */
+  private void checkHistory() throws InterruptedException {
+    Project project = new Project();
+    project.setProjectName("History project");
+    project.setDifficulty(1);
+
+    Integer projectId = dao.insertProject(project).getProjectId();
+    Instant created = Instant.now();
+    Thread.sleep(5);
+
+    project.setDifficulty(2);
+    dao.modifyProjectDetails(project);
+    Instant modified = Instant.now();
+    Thread.sleep(5);
+
+    dao.deleteProject(projectId);
+
+    check("as-of before the insert finds nothing", dao.fetchProjectAsOf(projectId, created.minusSeconds(60)).isEmpty());
+    check("as-of after the insert finds the first version", dao.fetchProjectAsOf(projectId, created)
+        .map(p -> p.getDifficulty() == 1).orElse(false));
+    check("as-of after the modification finds the second version", dao.fetchProjectAsOf(projectId, modified)
+        .map(p -> p.getDifficulty() == 2).orElse(false));
+    check("as-of after the delete finds nothing", dao.fetchProjectAsOf(projectId, Instant.now()).isEmpty());
+
+    Project current = new Project();
+    current.setProjectName("Current history project");
+    Integer currentId = dao.insertProject(current).getProjectId();
+
+    PurgeOptions options = new PurgeOptions();
+    options.setPauseBetweenChunks(Duration.ZERO);
+    long removed = new HistoryCompactor(DbConnection.getSchema()).compact(Duration.ZERO, options);
+
+    check("compaction removes superseded versions", removed >= 2
+        && dao.fetchProjectAsOf(projectId, modified).isEmpty());
+    check("compaction keeps current versions", dao.fetchProjectAsOf(currentId, Instant.now()).isPresent());
+    dao.deleteProject(currentId);
+  }
+
+  /**
+   * Subscribe, request one project at a time, and cancel after the given number.
+   */
+  private List<Project> export(long limit) {
+    List<Project> projects = new ArrayList<>();
+    CompletableFuture<Void> done = new CompletableFuture<>();
+
+    dao.publishAllProjects().subscribe(new Flow.Subscriber<Project>() {
+      private Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      }
+
+      @Override
+      public void onNext(Project project) {
+        projects.add(project);
+
+        if(projects.size() == limit) {
+          subscription.cancel();
+          done.complete(null);
+        }
+        else {
+          subscription.request(1);
+        }
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        done.completeExceptionally(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        done.complete(null);
+      }
+    });
+
+    done.join();
+    return projects;
+  }
+
+  private boolean isSortedById(List<Project> projects) {
+    for(int i = 1; i < projects.size(); i++) {
+      if(projects.get(i - 1).getProjectId() >= projects.get(i).getProjectId()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private boolean isSortedByName(List<Project> projects) {
+    Comparator<String> byName = String.CASE_INSENSITIVE_ORDER;
+
+    for(int i = 1; i < projects.size(); i++) {
+      if(byName.compare(projects.get(i - 1).getProjectName(), projects.get(i).getProjectName()) > 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private boolean isSortedByStepOrder(List<Step> steps) {
+    for(int i = 1; i < steps.size(); i++) {
+      if(steps.get(i - 1).getStepOrder() >= steps.get(i).getStepOrder()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private void check(String description, boolean passed) {
+    System.out.println((passed ? "  PASS " : "  FAIL ") + description);
+
+    if(!passed) {
+      failures.add(description);
+    }
+  }
+
+  /*
+   * Timings.
+   */
+
+  private void timeCrud() {
+    System.out.printf("%-22s %10s %10s %10s%n", "operation", "mean ms", "p50 ms", "p99 ms");
+
+    time("fetchProjectById", i -> dao.fetchProjectById(1 + random.nextInt(projectCount)));
+    time("fetchProjectById lazy", i -> dao.fetchProjectById(1 + random.nextInt(projectCount), FetchProfile.SCALARS));
+    time("fetchStepRange", i -> dao.fetchStepRange(1 + random.nextInt(projectCount), 0, 5));
+    time("updateActualHours", i -> dao.updateActualHours(Map.of(1 + random.nextInt(projectCount), hours())));
+
+    List<Integer> inserted = new ArrayList<>();
+
+    time("insertProject", i -> {
+      Project project = new Project();
+      project.setProjectName("Timed " + i);
+      project.setDifficulty(1);
+      inserted.add(dao.insertProject(project).getProjectId());
+    });
+
+    time("modifyProjectDetails", i -> {
+      Project project = new Project();
+      project.setProjectId(inserted.get(i));
+      project.setProjectName("Timed, modified " + i);
+      dao.modifyProjectDetails(project);
+    });
+
+    time("deleteProject", i -> dao.deleteProject(inserted.get(i)));
+
+    /* A full listing is much heavier; a few calls are enough to catch a regression. */
+    timeCalls("fetchAllProjects", Math.max(1, iterations / 20), i -> dao.fetchAllProjects());
+  }
+
+  private void time(String operation, IntConsumer call) {
+    timeCalls(operation, iterations, call);
+  }
+
+  private void timeCalls(String operation, int calls, IntConsumer call) {
+    long[] nanos = new long[calls];
+
+    try {
+      for(int i = 0; i < calls; i++) {
+        long start = System.nanoTime();
+        call.accept(i);
+        nanos[i] = System.nanoTime() - start;
+      }
+    }
+    catch(DbException e) {
+      check(operation + " runs without error: " + e.getMessage(), false);
+      return;
+    }
+
+    Arrays.sort(nanos);
+    double mean = Arrays.stream(nanos).average().orElse(0) / 1e6;
+    double p50 = nanos[calls / 2] / 1e6;
+    double p99 = nanos[Math.min(calls - 1, (int)Math.ceil(calls * 0.99) - 1)] / 1e6;
+
+    System.out.printf("%-22s %10.3f %10.3f %10.3f%n", operation, mean, p50, p99);
+
+    if(p99 > maxP99Millis) {
+      failures.add(operation + " p99 " + p99 + " ms is over the " + maxP99Millis + " ms budget");
+    }
+  }
+
+  /*
+   * Script handling, the same simple rules that SchemaMigrator uses.
+   */
+
+  private static String resource(String name) throws IOException {
+    try(InputStream in = DaoHarness.class.getClassLoader().getResourceAsStream(name)) {
+      if(Objects.isNull(in)) {
+        throw new IOException("Resource " + name + " was not found.");
+      }
+
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static List<String> statements(String script) {
+    StringBuilder cleaned = new StringBuilder();
+
+    for(String line : script.split("\\R")) {
+      if(!line.trim().startsWith("--")) {
+        cleaned.append(line).append('\n');
+      }
+    }
+
+    List<String> statements = new ArrayList<>();
+
+    for(String sql : cleaned.toString().split(";")) {
+      if(!sql.isBlank()) {
+        statements.add(sql.trim());
+      }
+    }
+
+    return statements;
+  }
+}
@@ -0,0 +1,454 @@
+package projects.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import projects.dao.ConnectionProfile;
+import projects.dao.DbConnection;
+import projects.dao.memory.InMemoryProjectStore;
+
+/**
+ * This generates large, realistic project datasets for benchmarks and capacity planning. The
+ * distributions are skewed the way real data is:
+ *
+ * <ul>
+ * <li>Material counts, step counts, step lengths, hours and costs are log-normal: most projects
+ * are small and a long tail is very large.</li>
+ * <li>Material names, category memberships and the words in step text follow Zipf distributions,
+ * so a few are very common and most are rare.</li>
+ * </ul>
+ *
+ * The output is deterministic. Every project's rows come from a random source seeded with the
+ * generator seed and the project ID, so the same seed gives the same data whatever the number of
+ * threads. Project IDs are consecutive, and the range is split into tasks that run on a thread
+ * pool, each with its own connection or its own output files.
+ *
+ * Rows are written with batched JDBC, or as LOAD DATA files plus a load.sql script when an output
+ * directory is given. The inserts use the bulk {@link ConnectionProfile}, which has MySQL rewrite
+ * each batch into multi-row statements.
+ *
+ * <pre>
+ * java -cp ... projects.bench.DataGenerator --projects 5000000 [--seed 42] [--threads 8]
+ *     [--categories 200] [--batch 500] [--out-dir /tmp/projects-data]
+ * </pre>
+ */
+public class DataGenerator {
+  private static final String[] ADJECTIVES = {"Oak", "Pine", "Cedar", "Maple", "Walnut", "Steel", "Copper",
+      "Brass", "Galvanized", "Stainless", "Pressure-treated", "Exterior", "Interior", "Waterproof",
+      "Heavy-duty", "Flexible", "Rigid", "Insulated", "Treated", "Reclaimed", "Polished", "Matte",
+      "Glossy", "Outdoor", "Fine", "Coarse", "Hardwood", "Softwood", "Composite", "Vinyl"};
+
+  private static final String[] NOUNS = {"screws", "nails", "bolts", "washers", "hinges", "brackets",
+      "boards", "planks", "dowels", "panels", "tiles", "shingles", "pipe", "fittings", "wire", "cable",
+      "paint", "primer", "stain", "sealant", "caulk", "glue", "sandpaper", "mortar", "grout", "studs",
+      "joists", "trim", "molding", "flashing"};
+
+  private static final String[] AREAS = {"Kitchen", "Bathroom", "Garden", "Garage", "Basement", "Attic",
+      "Deck", "Patio", "Bedroom", "Living Room", "Roof", "Fence", "Driveway", "Workshop", "Nursery"};
+
+  private static final String[] TOPICS = {"Repair", "Remodel", "Flooring", "Lighting", "Plumbing",
+      "Electrical", "Painting", "Storage", "Insulation", "Furniture", "Landscaping", "Windows",
+      "Doors", "Tiling", "Cabinets"};
+
+  private static final String[] SYLLABLES = {"ba", "ce", "di", "fo", "gu", "ha", "je", "ki", "lo", "mu",
+      "na", "pe", "ri", "so", "tu", "va", "we", "xi", "yo", "za", "bro", "cla", "dre", "fli", "gra",
+      "ple", "sta", "tri", "ste", "mar"};
+
+  private static final int WORD_COUNT = 2000;
+
+  /* Difficulty 1 to 5: mostly medium, few very hard. */
+  private static final double[] DIFFICULTY_CUMULATIVE = {0.15, 0.45, 0.75, 0.92, 1.0};
+
+  private static final long MAX_DECIMAL_7_2 = 9_999_999;
+
+  private final GeneratorOptions options;
+  private final String[] materialNames;
+  private final String[] words;
+  private final Distributions.Zipf materialPopularity;
+  private final Distributions.Zipf categoryPopularity;
+  private final Distributions.Zipf wordPopularity;
+
+  private final LongAdder projectRows = new LongAdder();
+  private final LongAdder childRows = new LongAdder();
+
+  public DataGenerator(GeneratorOptions options) {
+    this.options = options;
+
+    SplittableRandom vocabulary = new SplittableRandom(options.getSeed());
+    this.materialNames = materialNames(vocabulary);
+    this.words = words(vocabulary);
+
+    this.materialPopularity = new Distributions.Zipf(materialNames.length, 1.05);
+    this.categoryPopularity = new Distributions.Zipf(options.getCategories(), 1.3);
+    this.wordPopularity = new Distributions.Zipf(words.length, 1.0);
+  }
+
+  public static void main(String[] args) throws Exception {
+    GeneratorOptions options = new GeneratorOptions();
+
+    for(int i = 0; i + 1 < args.length; i += 2) {
+      String value = args[i + 1];
+
+      switch(args[i]) {
+        case "--projects":
+          options.setProjects(Integer.parseInt(value));
+          break;
+        case "--seed":
+          options.setSeed(Long.parseLong(value));
+          break;
+        case "--threads":
+          options.setThreads(Integer.parseInt(value));
+          break;
+        case "--categories":
+          options.setCategories(Integer.parseInt(value));
+          break;
+        case "--batch":
+          options.setProjectsPerBatch(Integer.parseInt(value));
+          break;
+        case "--out-dir":
+          options.setOutputDirectory(Paths.get(value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    DataGenerator generator = new DataGenerator(options);
+
+    if(Objects.isNull(options.getOutputDirectory())) {
+      generator.generateToDatabase(DbConnection.getSchema());
+      DbConnection.closePools();
+    }
+    else {
+      generator.generateToFiles();
+    }
+  }
+
+  /**
+   * Insert the categories, if the category table is empty, and the projects, numbered from one
+   * past the highest existing project ID.
+   *
+   * @param schema The schema to write to.
+   * @return The number of rows written.
+   */
+  public long generateToDatabase(String schema) throws Exception {
+    int firstProjectId;
+
+    try(Connection conn = DbConnection.getConnection(schema, ConnectionProfile.BULK);
+        Statement stmt = conn.createStatement()) {
+      warnIfBatchesAreNotRewritten(conn);
+
+      firstProjectId = 1 + queryInt(stmt, "SELECT COALESCE(MAX(project_id), 0) FROM project");
+
+      if(queryInt(stmt, "SELECT COUNT(*) FROM category") == 0) {
+        Connection sinkConn = DbConnection.getConnection(schema, ConnectionProfile.BULK);
+
+        try(RowSink sink = new JdbcRowSink(sinkConn, options.getProjectsPerBatch())) {
+          writeCategories(sink);
+        }
+      }
+      else if(queryInt(stmt, "SELECT MAX(category_id) FROM category") < options.getCategories()) {
+        throw new IllegalStateException("The category table has fewer than " + options.getCategories()
+            + " categories; use --categories or an empty category table.");
+      }
+    }
+
+    return run(firstProjectId, part -> new JdbcRowSink(DbConnection.getConnection(schema, ConnectionProfile.BULK),
+        options.getProjectsPerBatch()));
+  }
+
+  /**
+   * Load the projects, numbered from 1, into an in-memory store. With the same seed and options
+   * the projects are the ones {@link #generateToDatabase(String)} writes to an empty database,
+   * apart from the material and step IDs.
+   *
+   * @param store The store to load.
+   * @return The number of rows generated.
+   */
+  public long generateToStore(InMemoryProjectStore store) throws Exception {
+    Map<Integer, String> categoryNames = new HashMap<>();
+
+    try(RowSink sink = new StoreRowSink(store, categoryNames)) {
+      writeCategories(sink);
+    }
+
+    return run(1, part -> new StoreRowSink(store, categoryNames));
+  }
+
+  /**
+   * Write LOAD DATA files, and a load.sql script that loads them in foreign key order, to the
+   * output directory. Project IDs start at 1.
+   *
+   * @return The number of rows written.
+   */
+  public long generateToFiles() throws Exception {
+    Path directory = options.getOutputDirectory();
+    Files.createDirectories(directory);
+
+    try(RowSink sink = new TsvRowSink(directory, "0")) {
+      writeCategories(sink);
+    }
+
+    long rows = run(1, part -> new TsvRowSink(directory, part));
+    writeLoadScript(directory);
+    return rows;
+  }
+
+  private long run(int firstProjectId, SinkFactory sinks) throws Exception {
+    long start = System.nanoTime();
+    int taskSize = options.getProjectsPerTask();
+    ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
+    List<Future<?>> tasks = new ArrayList<>();
+
+    try {
+      for(long first = 0; first < options.getProjects(); first += taskSize) {
+        int from = (int)(firstProjectId + first);
+        int to = (int)(firstProjectId + Math.min(options.getProjects(), first + taskSize)) - 1;
+        String part = String.valueOf(first / taskSize + 1);
+
+        tasks.add(executor.submit(() -> {
+          try(RowSink sink = sinks.open(part)) {
+            for(int projectId = from; projectId <= to; projectId++) {
+              writeProject(sink, projectId);
+            }
+          }
+
+          return null;
+        }));
+      }
+
+      for(Future<?> task : tasks) {
+        task.get();
+      }
+    }
+    catch(ExecutionException e) {
+      tasks.forEach(task -> task.cancel(true));
+      throw e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    long rows = projectRows.sum() + childRows.sum();
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("Generated %,d projects and %,d child rows in %.1f s (%,.0f rows/s)%n", projectRows.sum(),
+        childRows.sum(), seconds, rows / seconds);
+    return rows;
+  }
+
+  private void writeCategories(RowSink sink) throws Exception {
+    for(int categoryId = 1; categoryId <= options.getCategories(); categoryId++) {
+      int index = categoryId - 1;
+      String name = AREAS[index % AREAS.length] + " " + TOPICS[(index / AREAS.length) % TOPICS.length];
+
+      if(index >= AREAS.length * TOPICS.length) {
+        name += " " + (index / (AREAS.length * TOPICS.length) + 1);
+      }
+
+      sink.category(categoryId, name);
+    }
+  }
+
+  /**
+   * Write one project and its children. Everything is drawn from a random source seeded by the
+   * project ID, which is what makes the output independent of the task split.
+   */
+  private void writeProject(RowSink sink, int projectId) throws Exception {
+    SplittableRandom random = new SplittableRandom(mix(options.getSeed() * 0x9E3779B97F4A7C15L + projectId));
+
+    long estimated = hundredths(Distributions.logNormal(random, 8, 0.9));
+    long actual = random.nextInt(100) < 15 ? RowSink.NULL
+        : Math.min(MAX_DECIMAL_7_2, Math.round(estimated * Distributions.logNormal(random, 1.1, 0.35)));
+    String notes = random.nextInt(100) < 30 ? null : sentence(random, Distributions.logNormalInt(random, 12, 0.8, 1, 400));
+
+    sink.project(projectId, projectName(random, projectId), estimated, actual, difficulty(random), notes);
+
+    int materials = Distributions.logNormalInt(random, 5, 0.9, 0, 300);
+
+    for(int material = 0; material < materials; material++) {
+      sink.material(projectId, materialNames[materialPopularity.sample(random)],
+          Distributions.logNormalInt(random, 2, 1.0, 1, 1000), hundredths(Distributions.logNormal(random, 12, 1.2)));
+    }
+
+    int steps = Distributions.logNormalInt(random, 6, 0.7, 1, 200);
+
+    for(int step = 1; step <= steps; step++) {
+      sink.step(projectId, sentence(random, Distributions.logNormalInt(random, 25, 0.9, 3, 1500)), step);
+    }
+
+    int categories = Math.min(options.getCategories(), 1 + Math.min(3, (int)(-Math.log(1 - random.nextDouble()) / 0.9)));
+    int[] chosen = new int[categories];
+
+    for(int category = 0; category < categories; category++) {
+      int categoryId;
+
+      do {
+        categoryId = 1 + categoryPopularity.sample(random);
+      }
+      while(contains(chosen, category, categoryId));
+
+      chosen[category] = categoryId;
+      sink.projectCategory(projectId, categoryId);
+    }
+
+    sink.endProject();
+    projectRows.increment();
+    childRows.add(materials + steps + categories);
+  }
+
+  private String projectName(SplittableRandom random, int projectId) {
+    return AREAS[random.nextInt(AREAS.length)] + " " + TOPICS[random.nextInt(TOPICS.length)] + " "
+        + Integer.toString(projectId, 36);
+  }
+
+  private int difficulty(SplittableRandom random) {
+    double value = random.nextDouble();
+    int difficulty = 0;
+
+    while(value > DIFFICULTY_CUMULATIVE[difficulty]) {
+      difficulty++;
+    }
+
+    return difficulty + 1;
+  }
+
+  private String sentence(SplittableRandom random, int wordCount) {
+    StringBuilder text = new StringBuilder(wordCount * 7);
+
+    for(int word = 0; word < wordCount; word++) {
+      if(word > 0) {
+        text.append(' ');
+      }
+
+      text.append(words[wordPopularity.sample(random)]);
+    }
+
+    return text.append('.').toString();
+  }
+
+  private static boolean contains(int[] values, int length, int value) {
+    for(int i = 0; i < length; i++) {
+      if(values[i] == value) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @return The value in whole hundredths, clamped to what DECIMAL(7,2) holds.
+   */
+  private static long hundredths(double value) {
+    return Math.max(1, Math.min(MAX_DECIMAL_7_2, Math.round(value * 100)));
+  }
+
+  private static String[] materialNames(SplittableRandom random) {
+    String[] names = new String[ADJECTIVES.length * NOUNS.length];
+
+    for(int i = 0; i < names.length; i++) {
+      names[i] = ADJECTIVES[i / NOUNS.length] + " " + NOUNS[i % NOUNS.length];
+    }
+
+    shuffle(names, random);
+    return names;
+  }
+
+  private static String[] words(SplittableRandom random) {
+    String[] words = new String[WORD_COUNT];
+
+    for(int i = 0; i < words.length; i++) {
+      StringBuilder word = new StringBuilder();
+
+      for(int syllable = 1 + random.nextInt(3); syllable >= 0; syllable--) {
+        word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+      }
+
+      words[i] = word.toString();
+    }
+
+    return words;
+  }
+
+  /**
+   * Fisher-Yates, so that popularity isn't tied to the order of the word lists.
+   */
+  private static void shuffle(String[] values, SplittableRandom random) {
+    for(int i = values.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      String value = values[i];
+      values[i] = values[j];
+      values[j] = value;
+    }
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static int queryInt(Statement stmt, String sql) throws SQLException {
+    try(ResultSet rs = stmt.executeQuery(sql)) {
+      return rs.next() ? rs.getInt(1) : 0;
+    }
+  }
+
+  private static void warnIfBatchesAreNotRewritten(Connection conn) throws SQLException {
+    String url = conn.getMetaData().getURL();
+
+    if(url.startsWith("jdbc:mysql:") && !url.contains("rewriteBatchedStatements=true")) {
+      System.out.println("Hint: rewriteBatchedStatements is turned off for the bulk connection profile;"
+          + " batches will be much slower.");
+    }
+  }
+
+  private void writeLoadScript(Path directory) throws IOException {
+    String[][] tables = {{"category", "category_id, category_name"},
+        {"project", "project_id, project_name, estimated_hours, actual_hours, difficulty, notes"},
+        {"material", "project_id, material_name, num_required, cost"},
+        {"step", "project_id, step_text, step_order"},
+        {"project_category", "project_id, category_id"}};
+
+    try(Writer script = Files.newBufferedWriter(directory.resolve("load.sql"), StandardCharsets.UTF_8)) {
+      script.write("-- Run with: mysql --local-infile=1 projects < load.sql\n");
+
+      for(String[] table : tables) {
+        List<Path> files;
+
+        try(Stream<Path> paths = Files.list(directory)) {
+          files = paths.filter(path -> path.getFileName().toString().matches(table[0] + "-\\d+\\.tsv")).sorted().toList();
+        }
+
+        for(Path file : files) {
+          script.write("LOAD DATA LOCAL INFILE '" + file.toAbsolutePath() + "' INTO TABLE " + table[0] + " ("
+              + table[1] + ");\n");
+        }
+      }
+    }
+  }
+
+  private interface SinkFactory {
+    RowSink open(String part) throws Exception;
+  }
+}
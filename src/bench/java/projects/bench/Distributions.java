@@ -0,0 +1,72 @@
+package projects.bench;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Skewed random distributions for the {@link DataGenerator}. The tables are built once and are
+ * read-only afterwards, so one instance is shared by every generator thread; each thread brings its
+ * own random source.
+ */
+final class Distributions {
+  private Distributions() {}
+
+  /**
+   * A Zipf distribution over the ranks 0..n-1: rank k is drawn with probability proportional to
+   * 1 / (k + 1)^exponent, so a few ranks are very common and most are rare. Sampling is a binary
+   * search in the cumulative table.
+   */
+  static final class Zipf {
+    private final double[] cumulative;
+
+    Zipf(int n, double exponent) {
+      cumulative = new double[n];
+      double total = 0;
+
+      for(int k = 0; k < n; k++) {
+        total += 1 / Math.pow(k + 1, exponent);
+        cumulative[k] = total;
+      }
+
+      for(int k = 0; k < n; k++) {
+        cumulative[k] /= total;
+      }
+    }
+
+    int sample(SplittableRandom random) {
+      int index = Arrays.binarySearch(cumulative, random.nextDouble());
+      return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    int size() {
+      return cumulative.length;
+    }
+  }
+
+  /**
+   * A log-normal value: most values sit near the median and a long tail reaches far above it.
+   *
+   * @param median The median.
+   * @param sigma The spread of the underlying normal distribution; 1 gives a heavy tail.
+   */
+  static double logNormal(SplittableRandom random, double median, double sigma) {
+    return median * Math.exp(sigma * gaussian(random));
+  }
+
+  /**
+   * @return A log-normal value rounded and clamped to [min, max].
+   */
+  static int logNormalInt(SplittableRandom random, double median, double sigma, int min, int max) {
+    long value = Math.round(logNormal(random, median, sigma));
+    return (int)Math.max(min, Math.min(max, value));
+  }
+
+  /**
+   * A standard normal value by the Box-Muller transform. SplittableRandom has no nextGaussian.
+   */
+  static double gaussian(SplittableRandom random) {
+    double u = 1 - random.nextDouble();
+    double v = random.nextDouble();
+    return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+  }
+}
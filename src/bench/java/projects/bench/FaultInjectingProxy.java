@@ -0,0 +1,210 @@
+package projects.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This is a TCP proxy that sits between the application and MySQL and misbehaves on request, so
+ * that timeouts, retries and the circuit breaker can be exercised without touching the server.
+ *
+ * <ul>
+ * <li>NONE: bytes are passed through unchanged.</li>
+ * <li>LATENCY: every chunk in either direction is delayed by the configured latency.</li>
+ * <li>BLACKHOLE: bytes are read and thrown away, so the other side waits until it times out.</li>
+ * <li>RESET: open connections are closed, and new connections are closed as soon as they are
+ * accepted.</li>
+ * </ul>
+ *
+ * It can be started on its own and driven from standard input (none, latency &lt;millis&gt;,
+ * blackhole, reset, quit) while the application runs with -Dprojects.db.port set to the proxy's
+ * port:
+ *
+ * <pre>
+ * java -cp ... projects.bench.FaultInjectingProxy 13306 localhost 3306
+ * </pre>
+ */
+public class FaultInjectingProxy implements AutoCloseable {
+  public enum Fault {
+    NONE, LATENCY, BLACKHOLE, RESET
+  }
+
+  private final ServerSocket server;
+  private final String targetHost;
+  private final int targetPort;
+  private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+  private volatile Fault fault = Fault.NONE;
+  private volatile Duration latency = Duration.ZERO;
+
+  /**
+   * @param listenPort The local port, or 0 for any free port.
+   * @param targetHost The MySQL host.
+   * @param targetPort The MySQL port.
+   */
+  public FaultInjectingProxy(int listenPort, String targetHost, int targetPort) throws IOException {
+    this.server = new ServerSocket(listenPort, 50, InetAddress.getLoopbackAddress());
+    this.targetHost = targetHost;
+    this.targetPort = targetPort;
+
+    daemon("proxy-accept", this::acceptLoop).start();
+  }
+
+  public int getPort() {
+    return server.getLocalPort();
+  }
+
+  public Fault getFault() {
+    return fault;
+  }
+
+  public void setFault(Fault fault) {
+    this.fault = fault;
+
+    if(fault == Fault.RESET) {
+      closeAll();
+    }
+  }
+
+  public void setLatency(Duration latency) {
+    this.latency = latency;
+  }
+
+  @Override
+  public void close() throws IOException {
+    server.close();
+    closeAll();
+  }
+
+  private void acceptLoop() {
+    while(!server.isClosed()) {
+      try {
+        Socket client = server.accept();
+
+        if(fault == Fault.RESET) {
+          client.close();
+          continue;
+        }
+
+        Socket upstream = new Socket(targetHost, targetPort);
+        sockets.add(client);
+        sockets.add(upstream);
+
+        daemon("proxy-up", () -> pump(client, upstream)).start();
+        daemon("proxy-down", () -> pump(upstream, client)).start();
+      }
+      catch(IOException e) {
+        if(!server.isClosed()) {
+          System.err.println("Proxy accept failed: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  private void pump(Socket from, Socket to) {
+    byte[] buffer = new byte[16 * 1024];
+
+    try(InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+      int read;
+
+      while((read = in.read(buffer)) >= 0) {
+        Fault current = fault;
+
+        if(current == Fault.BLACKHOLE) {
+          continue;
+        }
+
+        if(current == Fault.LATENCY) {
+          Thread.sleep(latency.toMillis());
+        }
+
+        out.write(buffer, 0, read);
+        out.flush();
+      }
+    }
+    catch(SocketException e) {
+      /* One side went away, possibly because of a RESET. */
+    }
+    catch(IOException e) {
+      System.err.println("Proxy connection failed: " + e.getMessage());
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      close(from);
+      close(to);
+    }
+  }
+
+  private void closeAll() {
+    for(Socket socket : sockets) {
+      close(socket);
+    }
+  }
+
+  private void close(Socket socket) {
+    sockets.remove(socket);
+
+    try {
+      socket.close();
+    }
+    catch(IOException e) {
+      /* Already gone. */
+    }
+  }
+
+  private static Thread daemon(String name, Runnable task) {
+    Thread thread = new Thread(task, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if(args.length != 3) {
+      System.err.println("Usage: FaultInjectingProxy <listen port> <target host> <target port>");
+      System.exit(2);
+    }
+
+    try(FaultInjectingProxy proxy = new FaultInjectingProxy(Integer.parseInt(args[0]), args[1],
+        Integer.parseInt(args[2]))) {
+      System.out.println("Proxying port " + proxy.getPort() + " to " + args[1] + ":" + args[2]);
+
+      BufferedReader commands = new BufferedReader(new InputStreamReader(System.in));
+      String line;
+
+      while((line = commands.readLine()) != null) {
+        String[] words = line.trim().split("\\s+");
+
+        try {
+          switch(words[0].toLowerCase()) {
+            case "quit":
+              return;
+
+            case "latency":
+              proxy.setLatency(Duration.ofMillis(Long.parseLong(words[1])));
+              proxy.setFault(Fault.LATENCY);
+              break;
+
+            default:
+              proxy.setFault(Fault.valueOf(words[0].toUpperCase()));
+          }
+
+          System.out.println("Fault: " + proxy.getFault());
+        }
+        catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+          System.out.println("Commands: none, latency <millis>, blackhole, reset, quit");
+        }
+      }
+    }
+  }
+}
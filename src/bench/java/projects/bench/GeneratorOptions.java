@@ -0,0 +1,92 @@
+package projects.bench;
+
+import java.nio.file.Path;
+
+/**
+ * This holds the settings for the {@link DataGenerator}. The defaults generate 10,000 projects over
+ * 200 categories on every core, written straight to the database.
+ */
+public class GeneratorOptions {
+  private long seed = 42;
+  private int projects = 10_000;
+  private int categories = 200;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int projectsPerTask = 10_000;
+  private int projectsPerBatch = 500;
+  private Path outputDirectory;
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  public int getProjects() {
+    return projects;
+  }
+
+  public void setProjects(int projects) {
+    this.projects = atLeast(0, projects, "project count");
+  }
+
+  public int getCategories() {
+    return categories;
+  }
+
+  public void setCategories(int categories) {
+    this.categories = atLeast(1, categories, "category count");
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = atLeast(1, threads, "thread count");
+  }
+
+  /**
+   * @return The number of consecutive project IDs one task generates. Tasks are the unit of
+   *         parallel work and, when writing files, of output files.
+   */
+  public int getProjectsPerTask() {
+    return projectsPerTask;
+  }
+
+  public void setProjectsPerTask(int projectsPerTask) {
+    this.projectsPerTask = atLeast(1, projectsPerTask, "task size");
+  }
+
+  /**
+   * @return The number of projects, with their child rows, sent in one JDBC batch and committed
+   *         together.
+   */
+  public int getProjectsPerBatch() {
+    return projectsPerBatch;
+  }
+
+  public void setProjectsPerBatch(int projectsPerBatch) {
+    this.projectsPerBatch = atLeast(1, projectsPerBatch, "batch size");
+  }
+
+  /**
+   * @return The directory for LOAD DATA files, or null to write through JDBC.
+   */
+  public Path getOutputDirectory() {
+    return outputDirectory;
+  }
+
+  public void setOutputDirectory(Path outputDirectory) {
+    this.outputDirectory = outputDirectory;
+  }
+
+  private static int atLeast(int minimum, int value, String name) {
+    if(value < minimum) {
+      throw new IllegalArgumentException("The " + name + " must be at least " + minimum + ".");
+    }
+
+    return value;
+  }
+}
@@ -0,0 +1,134 @@
+package projects.bench;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * This writes generated rows through batched prepared statements on one connection. Every batch
+ * of projects is sent parents first, because of the foreign keys, and committed as one
+ * transaction.
+ */
+class JdbcRowSink implements RowSink {
+  // @formatter:off
+  private static final String CATEGORY_SQL = "INSERT INTO category (category_id, category_name) VALUES (?, ?)";
+  private static final String PROJECT_SQL = "INSERT INTO project "
+      + "(project_id, project_name, estimated_hours, actual_hours, difficulty, notes) VALUES (?, ?, ?, ?, ?, ?)";
+  private static final String MATERIAL_SQL = "INSERT INTO material "
+      + "(project_id, material_name, num_required, cost) VALUES (?, ?, ?, ?)";
+  private static final String STEP_SQL = "INSERT INTO step (project_id, step_text, step_order) VALUES (?, ?, ?)";
+  private static final String PROJECT_CATEGORY_SQL = "INSERT INTO project_category (project_id, category_id) VALUES (?, ?)";
+  // @formatter:on
+
+  private final Connection conn;
+  private final int projectsPerBatch;
+  private final PreparedStatement categories;
+  private final PreparedStatement projects;
+  private final PreparedStatement materials;
+  private final PreparedStatement steps;
+  private final PreparedStatement projectCategories;
+
+  private int pendingProjects;
+  private boolean pendingCategories;
+
+  JdbcRowSink(Connection conn, int projectsPerBatch) throws SQLException {
+    this.conn = conn;
+    this.projectsPerBatch = projectsPerBatch;
+
+    conn.setAutoCommit(false);
+
+    categories = conn.prepareStatement(CATEGORY_SQL);
+    projects = conn.prepareStatement(PROJECT_SQL);
+    materials = conn.prepareStatement(MATERIAL_SQL);
+    steps = conn.prepareStatement(STEP_SQL);
+    projectCategories = conn.prepareStatement(PROJECT_CATEGORY_SQL);
+  }
+
+  @Override
+  public void category(int categoryId, String categoryName) throws SQLException {
+    categories.setInt(1, categoryId);
+    categories.setString(2, categoryName);
+    categories.addBatch();
+    pendingCategories = true;
+  }
+
+  @Override
+  public void project(int projectId, String projectName, long estimatedHundredths, long actualHundredths,
+      int difficulty, String notes) throws SQLException {
+    projects.setInt(1, projectId);
+    projects.setString(2, projectName);
+    setHundredths(projects, 3, estimatedHundredths);
+    setHundredths(projects, 4, actualHundredths);
+    projects.setInt(5, difficulty);
+    projects.setString(6, notes);
+    projects.addBatch();
+  }
+
+  @Override
+  public void material(int projectId, String materialName, int numRequired, long costHundredths)
+      throws SQLException {
+    materials.setInt(1, projectId);
+    materials.setString(2, materialName);
+    materials.setInt(3, numRequired);
+    setHundredths(materials, 4, costHundredths);
+    materials.addBatch();
+  }
+
+  @Override
+  public void step(int projectId, String stepText, int stepOrder) throws SQLException {
+    steps.setInt(1, projectId);
+    steps.setString(2, stepText);
+    steps.setInt(3, stepOrder);
+    steps.addBatch();
+  }
+
+  @Override
+  public void projectCategory(int projectId, int categoryId) throws SQLException {
+    projectCategories.setInt(1, projectId);
+    projectCategories.setInt(2, categoryId);
+    projectCategories.addBatch();
+  }
+
+  @Override
+  public void endProject() throws SQLException {
+    if(++pendingProjects >= projectsPerBatch) {
+      flush();
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    try(conn; categories; projects; materials; steps; projectCategories) {
+      flush();
+      conn.setAutoCommit(true);
+    }
+  }
+
+  private void flush() throws SQLException {
+    if(pendingCategories) {
+      categories.executeBatch();
+      pendingCategories = false;
+    }
+
+    if(pendingProjects > 0) {
+      projects.executeBatch();
+      materials.executeBatch();
+      steps.executeBatch();
+      projectCategories.executeBatch();
+      pendingProjects = 0;
+    }
+
+    conn.commit();
+  }
+
+  private static void setHundredths(PreparedStatement stmt, int index, long hundredths) throws SQLException {
+    if(hundredths == NULL) {
+      stmt.setNull(index, Types.DECIMAL);
+    }
+    else {
+      stmt.setBigDecimal(index, BigDecimal.valueOf(hundredths, 2));
+    }
+  }
+}
@@ -0,0 +1,518 @@
+package projects.bench;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * A prepared statement that sends nothing anywhere, so that a benchmark measures only the code on
+ * the application side of the driver. Every method is a plain override, so the JIT can inline the
+ * setters the way it would a driver's. Each setter keeps its value in a parameter array, as a
+ * driver does; without that the JIT could drop the binding code being measured. Methods that
+ * return a primitive return zero or false, executeBatch returns no update counts, and all others
+ * return null.
+ */
+final class NoOpPreparedStatement implements PreparedStatement {
+  private static final int[] NO_COUNTS = new int[0];
+
+  /* Indexed by parameter index; large enough for any benchmark statement. */
+  private final Object[] parameters = new Object[64];
+
+  @Override
+  public void setArray(int parameterIndex, Array x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setAsciiStream(int parameterIndex, InputStream x, int length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setAsciiStream(int parameterIndex, InputStream x, long length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setAsciiStream(int parameterIndex, InputStream x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setBigDecimal(int parameterIndex, BigDecimal x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setBinaryStream(int parameterIndex, InputStream x, int length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setBinaryStream(int parameterIndex, InputStream x, long length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setBinaryStream(int parameterIndex, InputStream x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setBlob(int parameterIndex, InputStream x, long length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setBlob(int parameterIndex, InputStream x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setBlob(int parameterIndex, Blob x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setBoolean(int parameterIndex, boolean x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setByte(int parameterIndex, byte x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setBytes(int parameterIndex, byte[] x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setCharacterStream(int parameterIndex, Reader x, int length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setCharacterStream(int parameterIndex, Reader x, long length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setCharacterStream(int parameterIndex, Reader x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setClob(int parameterIndex, Reader x, long length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setClob(int parameterIndex, Reader x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setClob(int parameterIndex, Clob x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setDate(int parameterIndex, Date x, Calendar cal) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setDate(int parameterIndex, Date x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setDouble(int parameterIndex, double x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setFloat(int parameterIndex, float x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setInt(int parameterIndex, int x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setLong(int parameterIndex, long x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setNCharacterStream(int parameterIndex, Reader x, long length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setNCharacterStream(int parameterIndex, Reader x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setNClob(int parameterIndex, Reader x, long length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setNClob(int parameterIndex, Reader x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setNClob(int parameterIndex, NClob x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setNString(int parameterIndex, String x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setNull(int parameterIndex, int sqlType, String typeName) {
+    parameters[parameterIndex] = null;
+  }
+
+  @Override
+  public void setNull(int parameterIndex, int sqlType) {
+    parameters[parameterIndex] = null;
+  }
+
+  @Override
+  public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setObject(int parameterIndex, Object x, int targetSqlType) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setObject(int parameterIndex, Object x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setRef(int parameterIndex, Ref x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setRowId(int parameterIndex, RowId x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setSQLXML(int parameterIndex, SQLXML x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setShort(int parameterIndex, short x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setString(int parameterIndex, String x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setTime(int parameterIndex, Time x, Calendar cal) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setTime(int parameterIndex, Time x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setTimestamp(int parameterIndex, Timestamp x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void setURL(int parameterIndex, URL x) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  @Deprecated
+  public void setUnicodeStream(int parameterIndex, InputStream x, int length) {
+    parameters[parameterIndex] = x;
+  }
+
+  @Override
+  public void addBatch() {
+  }
+
+  @Override
+  public void addBatch(String sql) {
+  }
+
+  @Override
+  public void cancel() {
+  }
+
+  @Override
+  public void clearBatch() {
+  }
+
+  @Override
+  public void clearParameters() {
+  }
+
+  @Override
+  public void clearWarnings() {
+  }
+
+  @Override
+  public void closeOnCompletion() {
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public int[] executeBatch() {
+    return NO_COUNTS;
+  }
+
+  @Override
+  public ResultSet executeQuery() {
+    return null;
+  }
+
+  @Override
+  public ResultSet executeQuery(String sql) {
+    return null;
+  }
+
+  @Override
+  public int executeUpdate() {
+    return 0;
+  }
+
+  @Override
+  public int executeUpdate(String sql, int[] columnIndexes) {
+    return 0;
+  }
+
+  @Override
+  public int executeUpdate(String sql, String[] columnNames) {
+    return 0;
+  }
+
+  @Override
+  public int executeUpdate(String sql, int autoGeneratedKeys) {
+    return 0;
+  }
+
+  @Override
+  public int executeUpdate(String sql) {
+    return 0;
+  }
+
+  @Override
+  public boolean execute() {
+    return false;
+  }
+
+  @Override
+  public boolean execute(String sql, int[] columnIndexes) {
+    return false;
+  }
+
+  @Override
+  public boolean execute(String sql, String[] columnNames) {
+    return false;
+  }
+
+  @Override
+  public boolean execute(String sql, int autoGeneratedKeys) {
+    return false;
+  }
+
+  @Override
+  public boolean execute(String sql) {
+    return false;
+  }
+
+  @Override
+  public Connection getConnection() {
+    return null;
+  }
+
+  @Override
+  public int getFetchDirection() {
+    return 0;
+  }
+
+  @Override
+  public int getFetchSize() {
+    return 0;
+  }
+
+  @Override
+  public ResultSet getGeneratedKeys() {
+    return null;
+  }
+
+  @Override
+  public int getMaxFieldSize() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxRows() {
+    return 0;
+  }
+
+  @Override
+  public ResultSetMetaData getMetaData() {
+    return null;
+  }
+
+  @Override
+  public boolean getMoreResults() {
+    return false;
+  }
+
+  @Override
+  public boolean getMoreResults(int current) {
+    return false;
+  }
+
+  @Override
+  public ParameterMetaData getParameterMetaData() {
+    return null;
+  }
+
+  @Override
+  public int getQueryTimeout() {
+    return 0;
+  }
+
+  @Override
+  public int getResultSetConcurrency() {
+    return 0;
+  }
+
+  @Override
+  public int getResultSetHoldability() {
+    return 0;
+  }
+
+  @Override
+  public int getResultSetType() {
+    return 0;
+  }
+
+  @Override
+  public ResultSet getResultSet() {
+    return null;
+  }
+
+  @Override
+  public int getUpdateCount() {
+    return 0;
+  }
+
+  @Override
+  public SQLWarning getWarnings() {
+    return null;
+  }
+
+  @Override
+  public boolean isCloseOnCompletion() {
+    return false;
+  }
+
+  @Override
+  public boolean isClosed() {
+    return false;
+  }
+
+  @Override
+  public boolean isPoolable() {
+    return false;
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return false;
+  }
+
+  @Override
+  public void setCursorName(String name) {
+  }
+
+  @Override
+  public void setEscapeProcessing(boolean enable) {
+  }
+
+  @Override
+  public void setFetchDirection(int direction) {
+  }
+
+  @Override
+  public void setFetchSize(int rows) {
+  }
+
+  @Override
+  public void setMaxFieldSize(int max) {
+  }
+
+  @Override
+  public void setMaxRows(int max) {
+  }
+
+  @Override
+  public void setPoolable(boolean poolable) {
+  }
+
+  @Override
+  public void setQueryTimeout(int seconds) {
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) {
+    return null;
+  }
+}
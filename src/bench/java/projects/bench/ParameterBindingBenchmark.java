@@ -0,0 +1,219 @@
+package projects.bench;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.dao.binding.StatementBinder;
+import projects.entity.Project;
+import projects.entity.ProjectMapper;
+import provided.util.DaoBase;
+
+/**
+ * This compares the ways of binding statement parameters:
+ *
+ * <ul>
+ * <li>setParameter: {@link DaoBase}'s setParameter, which the DAO used before.</li>
+ * <li>generated: the straight-line binder that MapperProcessor writes into ProjectMapper.</li>
+ * <li>built: the same columns bound by a {@link StatementBinder.Builder}, one lambda per
+ * column.</li>
+ * </ul>
+ *
+ * Each is run for one project row and for a batch of {@value #BATCH_SIZE} rows. The timed* cases
+ * bind a Long, a Boolean, a LocalDate and a LocalDateTime, which setParameter doesn't support, so
+ * they compare only a built binder with a straight-line one written the way the processor writes
+ * them. The statement is a stub that sends nothing, so the benchmark measures only the cost of the
+ * binding code.
+ *
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main ParameterBindingBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterBindingBenchmark {
+  static final int BATCH_SIZE = 100;
+
+  private static final StatementBinder<Project> GENERATED_BINDER = ProjectMapper.INSERT_BINDER;
+
+  private static final StatementBinder<Project> BUILT_BINDER = StatementBinder.<Project>builder()
+      .string(Project::getProjectName)
+      .decimal(Project::getEstimatedHours)
+      .decimal(Project::getActualHours)
+      .integer(Project::getDifficulty)
+      .string(Project::getNotes)
+      .build();
+
+  private static final StatementBinder<TimeEntry> BUILT_TIME_ENTRY_BINDER = StatementBinder.<TimeEntry>builder()
+      .bigint(TimeEntry::getEntryId)
+      .bool(TimeEntry::getBillable)
+      .date(TimeEntry::getWorkDate)
+      .dateTime(TimeEntry::getRecordedAt)
+      .build();
+
+  private static final StatementBinder<TimeEntry> STRAIGHT_TIME_ENTRY_BINDER = new StatementBinder<>(4) {
+    @Override
+    public int bind(PreparedStatement stmt, int firstIndex, TimeEntry entity) throws SQLException {
+      bindBigint(stmt, firstIndex, entity.getEntryId());
+      bindBool(stmt, firstIndex + 1, entity.getBillable());
+      bindDate(stmt, firstIndex + 2, entity.getWorkDate());
+      bindDateTime(stmt, firstIndex + 3, entity.getRecordedAt());
+      return firstIndex + 4;
+    }
+  };
+
+  private final SetParameterBinder setParameterBinder = new SetParameterBinder();
+  private PreparedStatement stmt;
+  private Project project;
+  private List<Project> projects;
+  private TimeEntry timeEntry;
+
+  @Setup
+  public void setUp() {
+    stmt = new NoOpPreparedStatement();
+    projects = new ArrayList<>();
+
+    for(int i = 0; i < BATCH_SIZE; i++) {
+      Project row = new Project();
+      row.setProjectName("Hang door " + i);
+      row.setEstimatedHours(new BigDecimal("4.50"));
+      row.setActualHours(i % 3 == 0 ? null : new BigDecimal(i).movePointLeft(1));
+      row.setDifficulty(1 + i % 5);
+      row.setNotes(i % 2 == 0 ? null : "Use the good hinges");
+      projects.add(row);
+    }
+
+    project = projects.get(1);
+
+    timeEntry = new TimeEntry();
+    timeEntry.setEntryId(123_456_789_012L);
+    timeEntry.setBillable(Boolean.TRUE);
+    timeEntry.setWorkDate(LocalDate.of(2024, 3, 15));
+    timeEntry.setRecordedAt(LocalDateTime.of(2024, 3, 15, 17, 30));
+  }
+
+  @Benchmark
+  public PreparedStatement setParameter() throws SQLException {
+    setParameterBinder.bind(stmt, project);
+    return stmt;
+  }
+
+  @Benchmark
+  public PreparedStatement generated() throws SQLException {
+    GENERATED_BINDER.bind(stmt, project);
+    return stmt;
+  }
+
+  @Benchmark
+  public PreparedStatement built() throws SQLException {
+    BUILT_BINDER.bind(stmt, project);
+    return stmt;
+  }
+
+  @Benchmark
+  public int[] setParameterBatch() throws SQLException {
+    for(Project row : projects) {
+      setParameterBinder.bind(stmt, row);
+      stmt.addBatch();
+    }
+
+    return stmt.executeBatch();
+  }
+
+  @Benchmark
+  public int[] generatedBatch() throws SQLException {
+    return GENERATED_BINDER.executeBatch(stmt, projects);
+  }
+
+  @Benchmark
+  public int[] builtBatch() throws SQLException {
+    return BUILT_BINDER.executeBatch(stmt, projects);
+  }
+
+  @Benchmark
+  public PreparedStatement timedStraight() throws SQLException {
+    STRAIGHT_TIME_ENTRY_BINDER.bind(stmt, timeEntry);
+    return stmt;
+  }
+
+  @Benchmark
+  public PreparedStatement timedBuilt() throws SQLException {
+    BUILT_TIME_ENTRY_BINDER.bind(stmt, timeEntry);
+    return stmt;
+  }
+
+  /**
+   * Binds the project columns the way the DAO did before, through DaoBase.setParameter.
+   */
+  private static class SetParameterBinder extends DaoBase {
+    void bind(PreparedStatement stmt, Project project) throws SQLException {
+      setParameter(stmt, 1, project.getProjectName(), String.class);
+      setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+      setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+      setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+      setParameter(stmt, 5, project.getNotes(), String.class);
+    }
+  }
+
+  /**
+   * A row with the column types that projects don't have.
+   */
+  private static class TimeEntry {
+    private Long entryId;
+    private Boolean billable;
+    private LocalDate workDate;
+    private LocalDateTime recordedAt;
+
+    public Long getEntryId() {
+      return entryId;
+    }
+
+    public void setEntryId(Long entryId) {
+      this.entryId = entryId;
+    }
+
+    public Boolean getBillable() {
+      return billable;
+    }
+
+    public void setBillable(Boolean billable) {
+      this.billable = billable;
+    }
+
+    public LocalDate getWorkDate() {
+      return workDate;
+    }
+
+    public void setWorkDate(LocalDate workDate) {
+      this.workDate = workDate;
+    }
+
+    public LocalDateTime getRecordedAt() {
+      return recordedAt;
+    }
+
+    public void setRecordedAt(LocalDateTime recordedAt) {
+      this.recordedAt = recordedAt;
+    }
+  }
+}
@@ -0,0 +1,489 @@
+package projects.bench;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+
+import projects.dao.DbConnection;
+import projects.dao.FetchProfile;
+import projects.dao.ProjectDao;
+import projects.dao.ProjectStore;
+import projects.dao.StepCursor;
+import projects.dao.TransactionOptions;
+import projects.dao.memory.InMemoryProjectStore;
+import projects.dao.memory.InMemoryStoreOptions;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * This runs one set of checks against every {@link ProjectStore}: the {@link ProjectDao} on a
+ * freshly built database (embedded H2 unless projects.db.url is set), an
+ * {@link InMemoryProjectStore}, and an in-memory store with a log. Each store is seeded with the
+ * same synthetic projects from the {@link DataGenerator}, and the seeded contents are compared
+ * across stores before the checks change them. The logged store is then reopened from its log,
+ * compacted and reopened again, and reopened after a torn write, and must come back the same each
+ * time. Each store also gets a short read timing. The exit status is 1 if any check fails.
+ *
+ * Settings, as system properties:
+ *
+ * <ul>
+ * <li>projects.conformance.projects: the number of seeded projects (1000).</li>
+ * <li>projects.conformance.seed: the random seed for the synthetic data (42).</li>
+ * <li>projects.conformance.reads: the number of timed reads per store (20000).</li>
+ * </ul>
+ *
+ * <pre>
+ * java -cp ... projects.bench.ProjectStoreConformance
+ * </pre>
+ */
+public class ProjectStoreConformance {
+  private static final int THREADS = 4;
+
+  private final int projectCount = Integer.getInteger("projects.conformance.projects", 1000);
+  private final long seed = Long.getLong("projects.conformance.seed", 42);
+  private final int reads = Integer.getInteger("projects.conformance.reads", 20_000);
+  private final Random random = new Random(seed);
+
+  private final List<String> failures = new ArrayList<>();
+  private String backend;
+
+  public static void main(String[] args) throws Exception {
+    boolean embedded = Objects.isNull(System.getProperty("projects.db.url"))
+        && Objects.isNull(System.getenv("PROJECTS_DB_URL"));
+
+    if(embedded) {
+      System.setProperty("projects.db.url", DaoHarness.H2_URL);
+      System.setProperty("projects.db.user", "sa");
+      System.setProperty("projects.db.password", "");
+    }
+
+    System.exit(new ProjectStoreConformance().run(embedded) ? 0 : 1);
+  }
+
+  private boolean run(boolean embedded) throws Exception {
+    DaoHarness.buildDatabase(embedded, projectCount, seed);
+    ProjectDao dao = new ProjectDao();
+    List<String> seeded = fingerprint(dao);
+    runSuite("database", dao);
+    DbConnection.closePools();
+
+    InMemoryProjectStore memory = new InMemoryProjectStore();
+    seed(memory);
+    backend = "memory";
+    check("seeded contents match the database", seeded.equals(fingerprint(memory)));
+    runSuite("memory", memory);
+
+    Path logFile = Files.createTempFile("projects-", ".log");
+    Files.delete(logFile);
+
+    try {
+      runLogged(logFile, seeded);
+    }
+    finally {
+      Files.deleteIfExists(logFile);
+    }
+
+    if(failures.isEmpty()) {
+      System.out.println("All checks passed.");
+      return true;
+    }
+
+    System.out.println(failures.size() + " check(s) failed:");
+    failures.forEach(failure -> System.out.println("  " + failure));
+    return false;
+  }
+
+  /**
+   * Run the suite on a logged store, then check that it survives a restart, a log compaction and a
+   * torn last record.
+   */
+  private void runLogged(Path logFile, List<String> seeded) throws Exception {
+    InMemoryStoreOptions options = new InMemoryStoreOptions();
+    options.setLogFile(logFile);
+    options.setSyncOnWrite(false);
+
+    List<String> before;
+    Instant beforeChange;
+    Project changed;
+
+    try(InMemoryProjectStore store = new InMemoryProjectStore(options)) {
+      seed(store);
+      backend = "memory+log";
+      check("seeded contents match the database", seeded.equals(fingerprint(store)));
+      runSuite("memory+log", store);
+
+      beforeChange = Instant.now();
+      Thread.sleep(5);
+      changed = store.fetchProjectById(2).orElseThrow();
+      changed.setNotes("Changed before the restart");
+      store.modifyProjectDetails(changed);
+      before = fingerprint(store);
+    }
+
+    backend = "restart";
+    long start = System.nanoTime();
+
+    try(InMemoryProjectStore store = new InMemoryProjectStore(options)) {
+      System.out.printf("Replayed %d projects from a %,d byte log in %d ms%n", store.size(), Files.size(logFile),
+          (System.nanoTime() - start) / 1_000_000);
+
+      check("a restart restores every project", before.equals(fingerprint(store)));
+      check("a restart restores the history", store.fetchProjectAsOf(2, beforeChange)
+          .map(p -> !Objects.equals(p.getNotes(), changed.getNotes())).orElse(false));
+      check("a restart continues the project IDs", store.insertProject(newProject("After restart")).getProjectId()
+          > projectCount);
+
+      before = fingerprint(store);
+      long uncompacted = Files.size(logFile);
+      store.compactLog();
+      check("compaction shrinks the log", Files.size(logFile) < uncompacted);
+    }
+
+    try(InMemoryProjectStore store = new InMemoryProjectStore(options)) {
+      check("a compacted log restores every project", before.equals(fingerprint(store)));
+      check("a compacted log keeps the history", store.fetchProjectAsOf(2, beforeChange).isPresent());
+    }
+
+    /* A record header that promises more bytes than were written, as a crash mid-append leaves. */
+    try(FileChannel file = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      file.write(ByteBuffer.wrap(new byte[] {0, 0, 1, 0, 1, 2, 3, 4, 5, 6}));
+    }
+
+    long torn = Files.size(logFile);
+
+    try(InMemoryProjectStore store = new InMemoryProjectStore(options)) {
+      check("a torn record is dropped on replay", before.equals(fingerprint(store)));
+      check("the torn record is truncated", Files.size(logFile) < torn);
+    }
+  }
+
+  private void seed(InMemoryProjectStore store) throws Exception {
+    GeneratorOptions options = new GeneratorOptions();
+    options.setSeed(seed);
+    options.setProjects(projectCount);
+    options.setCategories(12);
+
+    new DataGenerator(options).generateToStore(store);
+  }
+
+  private void runSuite(String name, ProjectStore store) throws Exception {
+    backend = name;
+    System.out.println("Store: " + name);
+
+    checkCrud(store);
+    checkCopies(store);
+    checkSteps(store);
+    checkPublisher(store);
+    checkHistory(store);
+    checkConcurrentUpdates(store);
+    checkTransactions(store);
+    timeReads(store);
+  }
+
+  /*
+   * The shared checks.
+   */
+
+  private void checkCrud(ProjectStore store) {
+    int before = store.fetchAllProjects().size();
+    Project project = newProject("Conformance project");
+
+    Integer projectId = store.insertProject(project).getProjectId();
+    check("insertProject assigns an ID", Objects.nonNull(projectId));
+    check("fetchProjectById finds the new project", store.fetchProjectById(projectId)
+        .map(p -> p.getProjectName().equals("Conformance project") && p.getMaterials().isEmpty()
+            && p.getSteps().isEmpty() && p.getCategories().isEmpty())
+        .orElse(false));
+    check("fetchAllProjects includes the new project", store.fetchAllProjects().size() == before + 1);
+
+    project.setDifficulty(5);
+    project.getSteps().add(new Step());
+    check("modifyProjectDetails reports the update", store.modifyProjectDetails(project));
+    check("modifyProjectDetails changes only the row", store.fetchProjectById(projectId)
+        .map(p -> p.getDifficulty() == 5 && p.getSteps().isEmpty()).orElse(false));
+
+    Project missing = newProject("Missing");
+    missing.setProjectId(Integer.MAX_VALUE);
+    check("modifying a missing project reports nothing updated", !store.modifyProjectDetails(missing));
+
+    Map<Integer, BigDecimal> hours = new HashMap<>();
+    hours.put(projectId, new BigDecimal("7.25"));
+    hours.put(1, new BigDecimal("1.50"));
+    hours.put(Integer.MAX_VALUE, new BigDecimal("1.00"));
+    check("updateActualHours counts the projects that exist", store.updateActualHours(hours) == 2);
+    check("updated hours are visible", store.fetchProjectById(1, FetchProfile.SCALARS)
+        .map(p -> p.getActualHours().compareTo(new BigDecimal("1.50")) == 0).orElse(false));
+    check("updating hours keeps the children", store.fetchProjectById(1)
+        .map(p -> !p.getSteps().isEmpty()).orElse(false));
+
+    check("deleteProject deletes", store.deleteProject(projectId));
+    check("deleted project is gone", store.fetchProjectById(projectId).isEmpty()
+        && store.fetchAllProjects().size() == before);
+    check("deleting again reports nothing deleted", !store.deleteProject(projectId));
+  }
+
+  /**
+   * Projects handed out belong to the caller.
+   */
+  private void checkCopies(ProjectStore store) {
+    Project fetched = store.fetchProjectById(1).orElseThrow();
+    int steps = fetched.getSteps().size();
+
+    fetched.setProjectName("Changed by the caller");
+    fetched.getSteps().clear();
+
+    Project again = store.fetchProjectById(1).orElseThrow();
+    check("changing a fetched project doesn't change the store",
+        !again.getProjectName().equals("Changed by the caller") && again.getSteps().size() == steps);
+
+    store.fetchAllProjects().get(0).setProjectName("Changed by the caller");
+    check("changing a listed project doesn't change the store", store.fetchAllProjects().stream()
+        .noneMatch(p -> p.getProjectName().equals("Changed by the caller")));
+  }
+
+  private void checkSteps(ProjectStore store) {
+    List<Step> all = store.fetchProjectById(1).orElseThrow().getSteps();
+    List<Step> paged = new ArrayList<>();
+    int after = 0;
+
+    while(true) {
+      List<Step> page = store.fetchStepRange(1, after, 2);
+
+      if(page.isEmpty()) {
+        break;
+      }
+
+      paged.addAll(page);
+      after = page.get(page.size() - 1).getStepOrder();
+    }
+
+    check("fetchStepRange pages through every step", stepOrders(paged).equals(stepOrders(all)));
+
+    List<Step> streamed = new ArrayList<>();
+
+    try(StepCursor cursor = store.openStepCursor(1)) {
+      cursor.forEachRemaining(streamed::add);
+    }
+
+    check("openStepCursor streams every step in order", stepOrders(streamed).equals(stepOrders(all)));
+
+    try(StepCursor cursor = store.openStepCursor(Integer.MAX_VALUE)) {
+      check("a missing project has no steps", !cursor.hasNext());
+    }
+  }
+
+  private void checkPublisher(ProjectStore store) {
+    List<Project> exported = export(store, Long.MAX_VALUE);
+    boolean ordered = true;
+
+    for(int i = 1; i < exported.size(); i++) {
+      ordered &= exported.get(i - 1).getProjectId() < exported.get(i).getProjectId();
+    }
+
+    check("publishAllProjects publishes every project in ID order",
+        exported.size() == store.fetchAllProjects().size() && ordered);
+
+    Project first = exported.get(0);
+    Project fetched = store.fetchProjectById(first.getProjectId()).orElseThrow();
+    check("published projects have their children", first.getMaterials().size() == fetched.getMaterials().size()
+        && first.getSteps().size() == fetched.getSteps().size()
+        && first.getCategories().size() == fetched.getCategories().size());
+
+    check("a cancelled export stops", export(store, 10).size() == 10);
+  }
+
+  private void checkHistory(ProjectStore store) throws InterruptedException {
+    Project project = newProject("History project");
+    project.setDifficulty(1);
+
+    Integer projectId = store.insertProject(project).getProjectId();
+    Instant created = Instant.now();
+    Thread.sleep(5);
+
+    project.setDifficulty(2);
+    store.modifyProjectDetails(project);
+    Instant modified = Instant.now();
+    Thread.sleep(5);
+
+    store.updateActualHours(Map.of(projectId, new BigDecimal("3.00")));
+    Instant updated = Instant.now();
+    Thread.sleep(5);
+
+    store.deleteProject(projectId);
+
+    check("as-of before the insert finds nothing", store.fetchProjectAsOf(projectId, created.minusSeconds(60)).isEmpty());
+    check("as-of finds each version", store.fetchProjectAsOf(projectId, created).map(p -> p.getDifficulty() == 1)
+        .orElse(false) && store.fetchProjectAsOf(projectId, modified).map(p -> p.getDifficulty() == 2).orElse(false)
+        && store.fetchProjectAsOf(projectId, updated)
+            .map(p -> p.getActualHours().compareTo(new BigDecimal("3.00")) == 0).orElse(false));
+    check("as-of after the delete finds nothing", store.fetchProjectAsOf(projectId, Instant.now()).isEmpty());
+  }
+
+  /**
+   * Several threads set the hours of the same pair of projects in one call each. Every call is
+   * atomic, so the two projects end with the same hours.
+   */
+  private void checkConcurrentUpdates(ProjectStore store) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> tasks = new ArrayList<>();
+
+    try {
+      for(int thread = 0; thread < THREADS; thread++) {
+        int offset = thread;
+
+        tasks.add(executor.submit(() -> {
+          for(int i = 0; i < 50; i++) {
+            BigDecimal hours = BigDecimal.valueOf(100 * offset + i, 2);
+            store.updateActualHours(new TreeMap<>(Map.of(3, hours, 4, hours)));
+          }
+        }));
+      }
+
+      for(Future<?> task : tasks) {
+        task.get();
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    BigDecimal first = store.fetchProjectById(3, FetchProfile.SCALARS).orElseThrow().getActualHours();
+    BigDecimal second = store.fetchProjectById(4, FetchProfile.SCALARS).orElseThrow().getActualHours();
+    check("concurrent multi-project updates are atomic", first.compareTo(second) == 0);
+  }
+
+  /**
+   * A store either runs several calls as one unit of work or says it can't.
+   */
+  private void checkTransactions(ProjectStore store) {
+    boolean behaved;
+
+    try {
+      behaved = store.inTransaction(TransactionOptions.readOnly(), () -> store.fetchProjectById(1)).isPresent();
+    }
+    catch(UnsupportedOperationException e) {
+      behaved = true;
+    }
+
+    check("inTransaction runs the work or is unsupported", behaved);
+  }
+
+  private void timeReads(ProjectStore store) {
+    int ids = store.fetchAllProjects().size();
+    long start = System.nanoTime();
+
+    for(int i = 0; i < reads; i++) {
+      store.fetchProjectById(1 + random.nextInt(ids));
+    }
+
+    double micros = (System.nanoTime() - start) / 1_000.0 / reads;
+    System.out.printf("  %,d full project reads, mean %.1f us%n", reads, micros);
+  }
+
+  /*
+   * Helpers.
+   */
+
+  /**
+   * @return Each project in list order, with the counts of its children for the first few.
+   */
+  private List<String> fingerprint(ProjectStore store) {
+    List<String> lines = new ArrayList<>();
+
+    for(Project project : store.fetchAllProjects()) {
+      lines.add(project.getProjectId() + " " + project.getProjectName() + " " + project.getActualHours() + " "
+          + project.getNotes());
+    }
+
+    for(int projectId = 1; projectId <= Math.min(20, projectCount); projectId++) {
+      store.fetchProjectById(projectId).ifPresent(p -> lines.add(p.getProjectId() + ": " + p.getMaterials().size()
+          + " materials, " + stepOrders(p.getSteps()) + " steps, " + p.getCategories().size() + " categories"));
+    }
+
+    return lines;
+  }
+
+  private List<Integer> stepOrders(List<Step> steps) {
+    List<Integer> orders = new ArrayList<>();
+    steps.forEach(step -> orders.add(step.getStepOrder()));
+    return orders;
+  }
+
+  private Project newProject(String name) {
+    Project project = new Project();
+    project.setProjectName(name);
+    project.setEstimatedHours(new BigDecimal("3.50"));
+    project.setActualHours(new BigDecimal("4.25"));
+    project.setDifficulty(2);
+    project.setNotes("Inserted by the conformance suite");
+    return project;
+  }
+
+  /**
+   * Subscribe, request one project at a time, and cancel after the given number.
+   */
+  private List<Project> export(ProjectStore store, long limit) {
+    List<Project> projects = new ArrayList<>();
+    CompletableFuture<Void> done = new CompletableFuture<>();
+
+    store.publishAllProjects().subscribe(new Flow.Subscriber<Project>() {
+      private Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      }
+
+      @Override
+      public void onNext(Project project) {
+        projects.add(project);
+
+        if(projects.size() == limit) {
+          subscription.cancel();
+          done.complete(null);
+        }
+        else {
+          subscription.request(1);
+        }
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        done.completeExceptionally(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        done.complete(null);
+      }
+    });
+
+    done.join();
+    return projects;
+  }
+
+  private void check(String description, boolean passed) {
+    System.out.println((passed ? "  PASS " : "  FAIL ") + backend + ": " + description);
+
+    if(!passed) {
+      failures.add(backend + ": " + description);
+    }
+  }
+}
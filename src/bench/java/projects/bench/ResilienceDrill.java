@@ -0,0 +1,106 @@
+package projects.bench;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+import projects.dao.ProjectDao;
+import projects.dao.resilience.ResilienceMetricsMXBean;
+import projects.dao.resilience.ResilienceOptions;
+import projects.dao.resilience.ResilientProjectDao;
+import projects.exception.DbException;
+
+/**
+ * This runs reads through a {@link FaultInjectingProxy} while switching faults on and off, and
+ * checks that the resilience layer reacts: a reset is absorbed by retries, a black hole trips the
+ * circuit after the socket timeout, and the circuit closes again once the proxy recovers. It needs
+ * a running MySQL server with the projects schema and exits with status 1 if a check fails.
+ *
+ * <pre>
+ * java -cp ... projects.bench.ResilienceDrill [mysql host] [mysql port]
+ * </pre>
+ */
+public class ResilienceDrill {
+  private static final Duration OPEN_DURATION = Duration.ofSeconds(2);
+
+  private int failures;
+
+  public static void main(String[] args) throws Exception {
+    String host = args.length > 0 ? args[0] : "localhost";
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : 3306;
+
+    try(FaultInjectingProxy proxy = new FaultInjectingProxy(0, host, port)) {
+      /* DbConnection reads these once, so they must be set before it is first used. */
+      System.setProperty("projects.db.host", "127.0.0.1");
+      System.setProperty("projects.db.port", String.valueOf(proxy.getPort()));
+      System.setProperty("projects.db.connectTimeoutMillis", "1000");
+      System.setProperty("projects.db.socketTimeoutMillis", "1000");
+
+      System.exit(new ResilienceDrill().run(proxy) ? 0 : 1);
+    }
+  }
+
+  private boolean run(FaultInjectingProxy proxy) throws InterruptedException {
+    ResilienceOptions options = new ResilienceOptions();
+    options.setFailureThreshold(3);
+    options.setOpenDuration(OPEN_DURATION);
+
+    ResilientProjectDao dao = new ResilientProjectDao(new ProjectDao(), options);
+    ResilienceMetricsMXBean metrics = dao.getMetrics();
+
+    phase("healthy", dao, 5);
+    check("no failures while healthy", metrics, m -> m.getFailedAttempts() == 0);
+
+    /* New connections are closed on accept, so every attempt fails to connect and is retried. */
+    proxy.setFault(FaultInjectingProxy.Fault.RESET);
+    phase("reset", dao, 3);
+    check("connect failures were retried", metrics, m -> m.getRetries() > 0);
+    check("circuit opened after repeated failures", metrics, m -> m.getCircuitOpenings() > 0);
+
+    phase("open circuit", dao, 5);
+    check("calls fail fast while open", metrics, m -> m.getShortCircuited() > 0);
+
+    /* Let the circuit go half open and probe into a black hole: the socket timeout ends it. */
+    Thread.sleep(OPEN_DURATION.toMillis() + 100);
+    proxy.setFault(FaultInjectingProxy.Fault.BLACKHOLE);
+    long openings = metrics.getCircuitOpenings();
+    phase("blackhole", dao, 1);
+    check("failed probe reopened the circuit", metrics, m -> m.getCircuitOpenings() > openings);
+
+    proxy.setFault(FaultInjectingProxy.Fault.NONE);
+    Thread.sleep(OPEN_DURATION.toMillis() + 100);
+    phase("recovered", dao, 5);
+    check("circuit closed after a good probe", metrics, m -> m.getCircuitState().equals("CLOSED"));
+
+    System.out.println(failures == 0 ? "All checks passed." : failures + " check(s) failed.");
+    return failures == 0;
+  }
+
+  private void phase(String name, ProjectDao dao, int calls) {
+    int ok = 0;
+    long start = System.nanoTime();
+
+    for(int call = 0; call < calls; call++) {
+      try {
+        dao.fetchAllProjects();
+        ok++;
+      }
+      catch(DbException e) {
+        /* Counted by the metrics. */
+      }
+    }
+
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    System.out.printf("%-12s %d/%d calls succeeded in %d ms%n", name, ok, calls, millis);
+  }
+
+  private void check(String description, ResilienceMetricsMXBean metrics,
+      Predicate<ResilienceMetricsMXBean> condition) {
+    boolean passed = condition.test(metrics);
+
+    if(!passed) {
+      failures++;
+    }
+
+    System.out.println((passed ? "  PASS " : "  FAIL ") + description + " (" + metrics + ")");
+  }
+}
@@ -0,0 +1,34 @@
+package projects.bench;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * This receives the rows made by the {@link DataGenerator}. Each generator task has its own sink.
+ * Decimal columns are passed as whole hundredths, with {@link #NULL} for SQL NULL.
+ */
+interface RowSink extends AutoCloseable {
+  long NULL = Long.MIN_VALUE;
+
+  void category(int categoryId, String categoryName) throws Exception;
+
+  void project(int projectId, String projectName, long estimatedHundredths, long actualHundredths,
+      int difficulty, String notes) throws Exception;
+
+  void material(int projectId, String materialName, int numRequired, long costHundredths) throws Exception;
+
+  void step(int projectId, String stepText, int stepOrder) throws Exception;
+
+  void projectCategory(int projectId, int categoryId) throws Exception;
+
+  /**
+   * Called after each project's rows; a sink may send or commit a batch here.
+   */
+  void endProject() throws Exception;
+
+  /**
+   * Send anything still buffered and release the sink's connection or files.
+   */
+  @Override
+  void close() throws IOException, SQLException;
+}
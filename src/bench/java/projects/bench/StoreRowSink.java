@@ -0,0 +1,88 @@
+package projects.bench;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Objects;
+
+import projects.dao.memory.InMemoryProjectStore;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * This assembles generated rows into whole projects and loads each one into an
+ * {@link InMemoryProjectStore} when its rows are complete. The category names are collected in a
+ * map shared by every sink, filled before the project tasks start.
+ */
+class StoreRowSink implements RowSink {
+  private final InMemoryProjectStore store;
+  private final Map<Integer, String> categoryNames;
+  private Project project;
+
+  StoreRowSink(InMemoryProjectStore store, Map<Integer, String> categoryNames) {
+    this.store = store;
+    this.categoryNames = categoryNames;
+  }
+
+  @Override
+  public void category(int categoryId, String categoryName) {
+    categoryNames.put(categoryId, categoryName);
+  }
+
+  @Override
+  public void project(int projectId, String projectName, long estimatedHundredths, long actualHundredths,
+      int difficulty, String notes) {
+    project = new Project();
+    project.setProjectId(projectId);
+    project.setProjectName(projectName);
+    project.setEstimatedHours(decimal(estimatedHundredths));
+    project.setActualHours(decimal(actualHundredths));
+    project.setDifficulty(difficulty);
+    project.setNotes(notes);
+  }
+
+  @Override
+  public void material(int projectId, String materialName, int numRequired, long costHundredths) {
+    Material material = new Material();
+    material.setProjectId(projectId);
+    material.setMaterialName(materialName);
+    material.setNumRequired(numRequired);
+    material.setCost(decimal(costHundredths));
+    project.getMaterials().add(material);
+  }
+
+  @Override
+  public void step(int projectId, String stepText, int stepOrder) {
+    Step step = new Step();
+    step.setProjectId(projectId);
+    step.setStepText(stepText);
+    step.setStepOrder(stepOrder);
+    project.getSteps().add(step);
+  }
+
+  @Override
+  public void projectCategory(int projectId, int categoryId) {
+    Category category = new Category();
+    category.setCategoryId(categoryId);
+    category.setCategoryName(categoryNames.get(categoryId));
+    project.getCategories().add(category);
+  }
+
+  @Override
+  public void endProject() {
+    if(Objects.nonNull(project)) {
+      store.load(project);
+      project = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    /* Each project was loaded when its rows ended. */
+  }
+
+  private static BigDecimal decimal(long hundredths) {
+    return hundredths == NULL ? null : BigDecimal.valueOf(hundredths, 2);
+  }
+}
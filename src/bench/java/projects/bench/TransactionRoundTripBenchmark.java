@@ -0,0 +1,196 @@
+package projects.bench;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import projects.dao.DbConnection;
+import projects.dao.FetchProfile;
+import projects.dao.ProjectDao;
+import projects.dao.TransactionCallback;
+import projects.dao.TransactionOptions;
+import projects.dao.TransactionTemplate;
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/**
+ * This measures the round trips and time saved by {@link TransactionTemplate}. Each scenario is
+ * run the way the DAO used to run it, with a connection and transaction per call, and then the
+ * way it runs now. The round trips are counted by the {@link CountingDriver}, which sits in front
+ * of the real driver; see it for what is counted. The query cache is turned off so every read
+ * reaches the database.
+ *
+ * Unless projects.db.url is set, the database is the embedded H2 database that the
+ * {@link DaoHarness} uses. There the round trips cost little, so the times mostly show the
+ * overhead of the driver calls; against MySQL each round trip adds a network latency.
+ *
+ * Settings, as system properties:
+ *
+ * <ul>
+ * <li>projects.bench.projects: the number of seeded projects (1000).</li>
+ * <li>projects.bench.iterations: the number of runs of each scenario (2000).</li>
+ * </ul>
+ *
+ * <pre>
+ * java -cp ... projects.bench.TransactionRoundTripBenchmark
+ * </pre>
+ */
+public class TransactionRoundTripBenchmark {
+  // @formatter:off
+  private static final String PROJECT_SQL = ""
+      + "SELECT project_id, project_name, estimated_hours, actual_hours, difficulty, notes "
+      + "FROM project WHERE project_id = ? AND deleted_at IS NULL";
+
+  private static final String[] CHILD_SQL = {
+      "SELECT material_id, project_id, material_name, num_required, cost FROM material WHERE project_id = ?",
+      "SELECT step_id, project_id, step_text, step_order FROM step WHERE project_id = ? ORDER BY step_order",
+      "SELECT category_id FROM project_category WHERE project_id = ?"};
+
+  private static final String UPDATE_SQL = ""
+      + "UPDATE project SET actual_hours = ? WHERE project_id = ? AND deleted_at IS NULL";
+  // @formatter:on
+
+  private final int projectCount = Integer.getInteger("projects.bench.projects", 1000);
+  private final int iterations = Integer.getInteger("projects.bench.iterations", 2000);
+  private final Random random = new Random(42);
+  private final LegacyTransactions legacy = new LegacyTransactions();
+  private ProjectDao dao;
+
+  public static void main(String[] args) throws Exception {
+    String url = System.getProperty("projects.db.url", System.getenv("PROJECTS_DB_URL"));
+    boolean embedded = Objects.isNull(url);
+
+    /* DbConnection and the query cache read these once, so they must be set before first use. */
+    System.setProperty("projects.cache.maxBytes", "0");
+    System.setProperty("projects.db.url", CountingDriver.PREFIX + (embedded ? DaoHarness.H2_URL : url));
+
+    if(embedded) {
+      System.setProperty("projects.db.user", "sa");
+      System.setProperty("projects.db.password", "");
+    }
+
+    CountingDriver.register();
+    new TransactionRoundTripBenchmark().run(embedded);
+  }
+
+  private void run(boolean embedded) throws Exception {
+    DaoHarness.buildDatabase(embedded, projectCount, 42);
+    dao = new ProjectDao();
+
+    System.out.printf("%-34s %12s %12s%n", "scenario", "round trips", "mean us");
+
+    measure("single read, per-call transaction", () -> legacy.inTransaction(conn -> readProject(conn, randomId())));
+    measure("single read, auto-commit", () -> dao.fetchProjectById(randomId(), FetchProfile.SCALARS));
+
+    measure("full project, per-call transaction", () -> legacy.inTransaction(conn -> readFullProject(conn, randomId())));
+    measure("full project, read-only unit", () -> dao.fetchProjectById(randomId()));
+
+    measure("3 updates, per-call transactions", () -> {
+      for(int i = 0; i < 3; i++) {
+        legacy.inTransaction(conn -> update(conn, randomId()));
+      }
+    });
+
+    measure("3 updates, one unit of work", () -> dao.getTransactions().execute(new TransactionOptions(), conn -> {
+      for(int i = 0; i < 3; i++) {
+        dao.updateActualHours(Map.of(randomId(), hours()));
+      }
+
+      return null;
+    }));
+
+    DbConnection.closePools();
+  }
+
+  private void measure(String scenario, Runnable operation) {
+    for(int i = 0; i < iterations / 10; i++) {
+      operation.run();
+    }
+
+    long roundTrips = CountingDriver.roundTrips();
+    long start = System.nanoTime();
+
+    for(int i = 0; i < iterations; i++) {
+      operation.run();
+    }
+
+    long elapsed = System.nanoTime() - start;
+    double perOperation = (double)(CountingDriver.roundTrips() - roundTrips) / iterations;
+
+    System.out.printf("%-34s %12.1f %12.1f%n", scenario, perOperation, elapsed / 1_000.0 / iterations);
+  }
+
+  private boolean readProject(Connection conn, int projectId) throws SQLException {
+    try(PreparedStatement stmt = conn.prepareStatement(PROJECT_SQL)) {
+      stmt.setInt(1, projectId);
+
+      try(ResultSet rs = stmt.executeQuery()) {
+        return rs.next();
+      }
+    }
+  }
+
+  private int readFullProject(Connection conn, int projectId) throws SQLException {
+    int rows = readProject(conn, projectId) ? 1 : 0;
+
+    for(String sql : CHILD_SQL) {
+      try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+        stmt.setInt(1, projectId);
+
+        try(ResultSet rs = stmt.executeQuery()) {
+          while(rs.next()) {
+            rows++;
+          }
+        }
+      }
+    }
+
+    return rows;
+  }
+
+  private int update(Connection conn, int projectId) throws SQLException {
+    try(PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+      stmt.setBigDecimal(1, hours());
+      stmt.setInt(2, projectId);
+      return stmt.executeUpdate();
+    }
+  }
+
+  private int randomId() {
+    return 1 + random.nextInt(projectCount);
+  }
+
+  private BigDecimal hours() {
+    return BigDecimal.valueOf(100 + random.nextInt(5000), 2);
+  }
+
+  /**
+   * The scaffolding every DAO method used before the template: a new connection and a transaction
+   * per call, committed even for reads.
+   */
+  private static class LegacyTransactions extends DaoBase {
+    <T> T inTransaction(TransactionCallback<T> work) {
+      try(Connection conn = DbConnection.getConnection()) {
+        startTransaction(conn);
+
+        try {
+          T result = work.doInTransaction(conn);
+          commitTransaction(conn);
+          return result;
+        }
+        catch(Exception e) {
+          rollbackTransaction(conn);
+          throw new DbException(e);
+        }
+      }
+      catch(SQLException e) {
+        throw new DbException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package projects.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This writes generated rows to tab-separated files in the format LOAD DATA INFILE reads by
+ * default: one line per row, tab between fields and \N for NULL. Each table gets its own file,
+ * named table-part.tsv. The generated text never contains tabs, newlines or backslashes, so no
+ * escaping is needed.
+ */
+class TsvRowSink implements RowSink {
+  private final Path directory;
+  private final String part;
+  private final List<Writer> writers = new ArrayList<>();
+
+  private Writer categories;
+  private Writer projects;
+  private Writer materials;
+  private Writer steps;
+  private Writer projectCategories;
+
+  TsvRowSink(Path directory, String part) {
+    this.directory = directory;
+    this.part = part;
+  }
+
+  /**
+   * @return The file that holds a table's rows for the given part.
+   */
+  static Path fileFor(Path directory, String table, String part) {
+    return directory.resolve(table + "-" + part + ".tsv");
+  }
+
+  @Override
+  public void category(int categoryId, String categoryName) throws IOException {
+    categories = open(categories, "category");
+    categories.write(categoryId + "\t" + categoryName + "\n");
+  }
+
+  @Override
+  public void project(int projectId, String projectName, long estimatedHundredths, long actualHundredths,
+      int difficulty, String notes) throws IOException {
+    projects = open(projects, "project");
+    projects.write(projectId + "\t" + projectName + "\t" + hundredths(estimatedHundredths) + "\t"
+        + hundredths(actualHundredths) + "\t" + difficulty + "\t" + (Objects.isNull(notes) ? "\\N" : notes) + "\n");
+  }
+
+  @Override
+  public void material(int projectId, String materialName, int numRequired, long costHundredths)
+      throws IOException {
+    materials = open(materials, "material");
+    materials.write(projectId + "\t" + materialName + "\t" + numRequired + "\t" + hundredths(costHundredths) + "\n");
+  }
+
+  @Override
+  public void step(int projectId, String stepText, int stepOrder) throws IOException {
+    steps = open(steps, "step");
+    steps.write(projectId + "\t" + stepText + "\t" + stepOrder + "\n");
+  }
+
+  @Override
+  public void projectCategory(int projectId, int categoryId) throws IOException {
+    projectCategories = open(projectCategories, "project_category");
+    projectCategories.write(projectId + "\t" + categoryId + "\n");
+  }
+
+  @Override
+  public void endProject() {
+    /* Files are written as they go. */
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+
+    for(Writer writer : writers) {
+      try {
+        writer.close();
+      }
+      catch(IOException e) {
+        failure = Objects.isNull(failure) ? e : failure;
+      }
+    }
+
+    if(Objects.nonNull(failure)) {
+      throw failure;
+    }
+  }
+
+  private Writer open(Writer writer, String table) throws IOException {
+    if(Objects.nonNull(writer)) {
+      return writer;
+    }
+
+    BufferedWriter opened = Files.newBufferedWriter(fileFor(directory, table, part), StandardCharsets.UTF_8);
+    writers.add(opened);
+    return opened;
+  }
+
+  /**
+   * Format whole hundredths as a decimal without creating a BigDecimal.
+   */
+  private static String hundredths(long value) {
+    if(value == NULL) {
+      return "\\N";
+    }
+
+    long fraction = value % 100;
+    return (value / 100) + "." + (fraction < 10 ? "0" : "") + fraction;
+  }
+}
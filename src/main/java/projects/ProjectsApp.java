@@ -1,11 +1,24 @@
 package projects;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
 
+import projects.dao.DbConnection;
+import projects.dao.ProfileAdvisor;
 import projects.entity.Project;
+import projects.entity.ProjectMapper;
 import projects.exception.DbException;
 import projects.service.ProjectService;
 
@@ -24,7 +37,134 @@ public class ProjectsApp {
     );
 
     public static void main(String[] args) {
-        new ProjectsApp().processUserSelections();
+        if (args.length > 0) {
+            System.exit(new ProjectsApp().runCommand(args));
+        }
+
+        ProjectsApp app = new ProjectsApp();
+
+        try {
+            app.projectService.migrateSchemas();
+        } catch (Exception e) {
+            System.out.println("\nError: " + e.toString());
+        }
+
+        app.processUserSelections();
+    }
+
+    /**
+     * Run a single command without the menu. This is the mode used by scripts:
+     *
+     * <pre>
+     * ProjectsApp list [--timings]
+     * ProjectsApp get &lt;project ID&gt; [--timings]
+     * ProjectsApp as-of &lt;project ID&gt; &lt;ISO-8601 instant&gt;
+     * ProjectsApp migrate
+     * ProjectsApp warmup
+     * ProjectsApp cost-report [&lt;CSV file&gt;]
+     * ProjectsApp duplicates
+     * ProjectsApp tune
+     * </pre>
+     *
+     * Schema migrations are not run for list and get, which keeps the launch to a single
+     * connection and query. --timings prints the time from JVM start to main and from main to the
+     * end of the first query on standard error.
+     *
+     * Standard output carries only the command's result, so it can be piped. Connection and
+     * migration messages, errors and the usage line go to standard error. cost-report writes the
+     * CSV to the named file, or to standard output if none is given.
+     *
+     * @return The process exit status: 0 on success, 1 on error and 2 for bad usage.
+     */
+    private int runCommand(String[] args) {
+        long mainStarted = System.currentTimeMillis();
+        List<String> arguments = new ArrayList<>(List.of(args));
+        boolean timings = arguments.remove("--timings");
+
+        try {
+            switch (arguments.isEmpty() ? "" : arguments.get(0)) {
+                case "list":
+                    listProjects();
+                    break;
+                case "get":
+                    if (arguments.size() != 2) {
+                        return usage();
+                    }
+                    System.out.println(projectService.fetchProjectById(Integer.valueOf(arguments.get(1))));
+                    break;
+                case "as-of":
+                    if (arguments.size() != 3) {
+                        return usage();
+                    }
+                    System.out.println(projectService.fetchProjectAsOf(Integer.valueOf(arguments.get(1)),
+                            Instant.parse(arguments.get(2))));
+                    break;
+                case "migrate":
+                    projectService.migrateSchemas();
+                    System.out.println("Schema migrations are up to date.");
+                    break;
+                case "warmup":
+                    warmUp();
+                    break;
+                case "duplicates":
+                    projectService.findDuplicateProjects().forEach(System.out::println);
+                    break;
+                case "cost-report":
+                    if (arguments.size() > 2) {
+                        return usage();
+                    }
+                    writeCostReport(arguments.size() == 2 ? Path.of(arguments.get(1)) : null);
+                    break;
+                case "tune":
+                    new ProfileAdvisor(DbConnection.getSchema()).advise();
+                    break;
+                default:
+                    return usage();
+            }
+        } catch (Exception e) {
+            System.err.println("Error: " + e.toString());
+            return 1;
+        }
+
+        if (timings) {
+            long jvmStarted = ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.err.println("JVM start to main: " + (mainStarted - jvmStarted) + " ms");
+            System.err.println("main to first query result: " + (System.currentTimeMillis() - mainStarted) + " ms");
+        }
+
+        return 0;
+    }
+
+    /**
+     * Load and initialize the classes that list and get use without touching the database. This is
+     * run when the class data sharing archive is created (see the cds profile in pom.xml) so that
+     * the archive holds the JDBC driver and DAO classes.
+     */
+    private void warmUp() {
+        DriverManager.drivers().forEach(driver -> driver.getMajorVersion());
+
+        Project project = new Project();
+        ProjectMapper.INSERT_BINDER.size();
+        System.out.println("Warmed up " + project.getClass().getPackageName() + " classes.");
+    }
+
+    /**
+     * @param file The CSV file to write, or null for standard output.
+     */
+    private void writeCostReport(Path file) throws IOException {
+        if (Objects.isNull(file)) {
+            projectService.writeCostReport(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            return;
+        }
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            projectService.writeCostReport(out);
+        }
+    }
+
+    private int usage() {
+        System.err.println("Usage: ProjectsApp [list | get <project ID> | as-of <project ID> <instant> | migrate | warmup | cost-report [<CSV file>] | duplicates | tune] [--timings]");
+        return 2;
     }
 
     private void processUserSelections() {
@@ -0,0 +1,383 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import projects.entity.Category;
+import projects.exception.DbException;
+
+/**
+ * This is a process-wide, in-memory copy of the category table. The category table is small and
+ * rarely changes, so rather than join to it every time a project is loaded, the DAO reads only the
+ * category IDs from project_category and resolves them here.
+ *
+ * Every project that has a given category shares the same {@link Category} object. These objects
+ * are immutable: calling a setter on one throws an {@link UnsupportedOperationException}.
+ *
+ * The dictionary is loaded on first use and reloaded when {@link #invalidate()} is called, when an
+ * unknown category ID is seen, or on a timer if {@link #startRefresh(Duration)} has been called.
+ * It also keeps a reverse index of the projects in each category, which is loaded on first use and
+ * dropped whenever a project is deleted.
+ *
+ * The dictionary reads the default schema unless {@link #setSchemas(List)} names others. With
+ * sharding it reads every shard: the categories of all shards are combined, and each category's
+ * sorted project IDs from the shards are merged into one sorted array.
+ */
+public class CategoryDictionary {
+  private static final CategoryDictionary INSTANCE = new CategoryDictionary();
+
+  private static final String CATEGORY_TABLE = "category";
+  private static final String PROJECT_TABLE = "project";
+  private static final String PROJECT_CATEGORY_TABLE = "project_category";
+
+  private static final int[] NO_PROJECTS = new int[0];
+
+  /* Replaced as a whole on reload, so readers always see a consistent set of categories. */
+  private volatile Map<Integer, Category> categories;
+  private volatile Map<Integer, int[]> projectsByCategory;
+  private volatile List<String> schemas;
+
+  /*
+   * Counts invalidations. A load notes the count before it queries and publishes its result only
+   * if the count hasn't moved, so a load that overlaps an invalidation can't put back what it read
+   * before the change. Guarded by publishLock, which is never held during a query.
+   */
+  private final Object publishLock = new Object();
+  private long categoriesGeneration;
+  private long projectsGeneration;
+
+  private ScheduledExecutorService refresher;
+  private ScheduledFuture<?> refreshTask;
+
+  private CategoryDictionary() {}
+
+  /**
+   * @return The process-wide category dictionary.
+   */
+  public static CategoryDictionary getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Read the categories and project index from the given schemas instead of the default schema.
+   * The loaded copies are dropped.
+   *
+   * @param schemas The schemas, such as every shard. Categories found in more than one schema are
+   *        taken from the first.
+   */
+  public void setSchemas(List<String> schemas) {
+    if(schemas.isEmpty()) {
+      throw new IllegalArgumentException("At least one schema is required.");
+    }
+
+    this.schemas = List.copyOf(schemas);
+    invalidate();
+  }
+
+  /**
+   * Look up a category by ID. If the ID is not in the dictionary, the dictionary is reloaded once
+   * in case the category was added after the last load.
+   *
+   * @param categoryId The category ID.
+   * @return The shared category, or null if there is no category with the given ID.
+   */
+  public Category getCategory(Integer categoryId) {
+    Category category = categories().get(categoryId);
+
+    if(Objects.isNull(category)) {
+      category = reload().get(categoryId);
+    }
+
+    return category;
+  }
+
+  /**
+   * @return All categories, ordered by category ID.
+   */
+  public List<Category> getCategories() {
+    List<Category> all = new LinkedList<>(categories().values());
+    all.sort((a, b) -> a.getCategoryId().compareTo(b.getCategoryId()));
+    return all;
+  }
+
+  /**
+   * Resolve a list of category IDs to the shared categories. IDs that don't match a category are
+   * skipped.
+   *
+   * @param categoryIds The category IDs.
+   * @return The categories in the same order as the IDs.
+   */
+  public List<Category> resolve(List<Integer> categoryIds) {
+    List<Category> resolved = new LinkedList<>();
+
+    for(Integer categoryId : categoryIds) {
+      Category category = getCategory(categoryId);
+
+      if(Objects.nonNull(category)) {
+        resolved.add(category);
+      }
+    }
+
+    return resolved;
+  }
+
+  /**
+   * Return the IDs of the projects in a category.
+   *
+   * @param categoryId The category ID.
+   * @return A copy of the project IDs, in ascending order.
+   */
+  public int[] getProjectIdsInCategory(Integer categoryId) {
+    Map<Integer, int[]> index = projectsByCategory;
+
+    if(Objects.isNull(index)) {
+      index = loadProjectsByCategory();
+    }
+
+    return index.getOrDefault(categoryId, NO_PROJECTS).clone();
+  }
+
+  /**
+   * Drop the loaded categories and reverse index. They are reloaded on next use. Call this after
+   * changing the category table.
+   */
+  public void invalidate() {
+    synchronized(publishLock) {
+      categoriesGeneration++;
+      categories = null;
+      invalidateProjects();
+    }
+  }
+
+  /**
+   * Drop the project reverse index. It is reloaded on next use. The DAO calls this after changing
+   * the projects that belong to a category.
+   */
+  public void invalidateProjects() {
+    synchronized(publishLock) {
+      projectsGeneration++;
+      projectsByCategory = null;
+    }
+  }
+
+  /**
+   * Reload the dictionary on a fixed interval in a background thread. Calling this again replaces
+   * the interval.
+   *
+   * @param interval The time between reloads.
+   */
+  public synchronized void startRefresh(Duration interval) {
+    stopRefresh();
+
+    if(Objects.isNull(refresher)) {
+      refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-dictionary-refresh");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    long millis = interval.toMillis();
+    refreshTask = refresher.scheduleWithFixedDelay(this::refresh, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop the background reloads started by {@link #startRefresh(Duration)}.
+   */
+  public synchronized void stopRefresh() {
+    if(Objects.nonNull(refreshTask)) {
+      refreshTask.cancel(false);
+      refreshTask = null;
+    }
+  }
+
+  private void refresh() {
+    try {
+      reload();
+      invalidateProjects();
+    }
+    catch(DbException e) {
+      /* Keep serving the last good copy. The next refresh will try again. */
+      System.err.println("Unable to refresh categories: " + e.getMessage());
+    }
+  }
+
+  private Map<Integer, Category> categories() {
+    Map<Integer, Category> loaded = categories;
+    return Objects.isNull(loaded) ? reload() : loaded;
+  }
+
+  private synchronized Map<Integer, Category> reload() {
+    String sql = "SELECT category_id, category_name FROM " + CATEGORY_TABLE;
+    Map<Integer, Category> loaded = new HashMap<>();
+    long generation;
+
+    synchronized(publishLock) {
+      generation = categoriesGeneration;
+    }
+
+    for(String schema : schemas()) {
+      try(Connection conn = DbConnection.getConnection(schema);
+          PreparedStatement stmt = conn.prepareStatement(sql);
+          ResultSet rs = stmt.executeQuery()) {
+        while(rs.next()) {
+          Category category = new SharedCategory(rs.getInt("category_id"), rs.getString("category_name"));
+          loaded.putIfAbsent(category.getCategoryId(), category);
+        }
+      }
+      catch(SQLException e) {
+        throw new DbException(e);
+      }
+    }
+
+    Map<Integer, Category> result = Collections.unmodifiableMap(loaded);
+
+    synchronized(publishLock) {
+      if(categoriesGeneration == generation) {
+        categories = result;
+      }
+    }
+
+    return result;
+  }
+
+  private List<String> schemas() {
+    List<String> configured = schemas;
+    return Objects.isNull(configured) ? List.of(DbConnection.getSchema()) : configured;
+  }
+
+  /**
+   * Load the reverse index of each schema and merge the project IDs of each category. A project
+   * lives in only one schema, so the merged arrays have no duplicates.
+   */
+  private synchronized Map<Integer, int[]> loadProjectsByCategory() {
+    Map<Integer, int[]> merged = new HashMap<>();
+    long generation;
+
+    synchronized(publishLock) {
+      generation = projectsGeneration;
+    }
+
+    for(String schema : schemas()) {
+      loadProjectsByCategory(schema).forEach((categoryId, ids) -> merged.merge(categoryId, ids, CategoryDictionary::merge));
+    }
+
+    Map<Integer, int[]> result = Collections.unmodifiableMap(merged);
+
+    synchronized(publishLock) {
+      if(projectsGeneration == generation) {
+        projectsByCategory = result;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Read project_category in category order and pack the project IDs for each category into a
+   * sorted array. The (category_id, project_id) index lets this be read without a sort. Projects
+   * that have been soft-deleted are left out.
+   */
+  private static Map<Integer, int[]> loadProjectsByCategory(String schema) {
+    // @formatter:off
+    String sql = ""
+        + "SELECT pc.category_id, pc.project_id FROM " + PROJECT_CATEGORY_TABLE + " pc "
+        + "JOIN " + PROJECT_TABLE + " p USING (project_id) "
+        + "WHERE p.deleted_at IS NULL "
+        + "ORDER BY pc.category_id, pc.project_id";
+    // @formatter:on
+
+    try(Connection conn = DbConnection.getConnection(schema);
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        ResultSet rs = stmt.executeQuery()) {
+      Map<Integer, int[]> loaded = new HashMap<>();
+      int currentCategory = 0;
+      int[] ids = new int[16];
+      int count = 0;
+
+      while(rs.next()) {
+        int categoryId = rs.getInt(1);
+
+        if(categoryId != currentCategory && count > 0) {
+          loaded.put(currentCategory, Arrays.copyOf(ids, count));
+          count = 0;
+        }
+
+        currentCategory = categoryId;
+
+        if(count == ids.length) {
+          ids = Arrays.copyOf(ids, count * 2);
+        }
+
+        ids[count++] = rs.getInt(2);
+      }
+
+      if(count > 0) {
+        loaded.put(currentCategory, Arrays.copyOf(ids, count));
+      }
+
+      return loaded;
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Merge two ascending arrays of project IDs into one.
+   */
+  private static int[] merge(int[] left, int[] right) {
+    int[] merged = new int[left.length + right.length];
+    int l = 0;
+    int r = 0;
+    int m = 0;
+
+    while(l < left.length && r < right.length) {
+      merged[m++] = left[l] <= right[r] ? left[l++] : right[r++];
+    }
+
+    while(l < left.length) {
+      merged[m++] = left[l++];
+    }
+
+    while(r < right.length) {
+      merged[m++] = right[r++];
+    }
+
+    return merged;
+  }
+
+  /**
+   * A category that can't be changed once the dictionary has created it.
+   */
+  private static class SharedCategory extends Category {
+    SharedCategory(Integer categoryId, String categoryName) {
+      super.setCategoryId(categoryId);
+      super.setCategoryName(categoryName);
+    }
+
+    @Override
+    public void setCategoryId(Integer categoryId) {
+      throw new UnsupportedOperationException("Shared categories can't be modified.");
+    }
+
+    @Override
+    public void setCategoryName(String categoryName) {
+      throw new UnsupportedOperationException("Shared categories can't be modified.");
+    }
+  }
+}
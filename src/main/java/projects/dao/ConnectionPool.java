@@ -0,0 +1,270 @@
+package projects.dao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import projects.exception.DbConnectException;
+
+/**
+ * This is a small fixed-size pool of connections to one schema. A borrowed connection is a proxy
+ * whose close() returns the real connection to the pool instead of closing it, so the DAOs'
+ * try-with-resources blocks work unchanged.
+ *
+ * A returned connection is put back in a clean state: an open transaction is rolled back and
+ * auto-commit, read-only and the isolation level are restored. The proxy notes which of these the
+ * borrower changed, and only those are checked and restored, since with MySQL each check or
+ * restore can be a round trip to the server. Statements and result sets must be closed before the
+ * connection is, as the DAOs already do. A connection that has sat idle for a
+ * while is checked with isValid before it is handed out again.
+ */
+class ConnectionPool {
+  private static final long VALIDATE_AFTER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+  private final String schema;
+  private final String url;
+  private final String user;
+  private final String password;
+  private final long maxWaitMillis;
+
+  /* One permit per connection that may be borrowed. */
+  private final Semaphore permits;
+
+  /* Guarded by this. Most recently returned first, so the warmest connection is reused. */
+  private final Deque<Idle> idle = new ArrayDeque<>();
+  private boolean closed;
+
+  ConnectionPool(String schema, String url, String user, String password, int maxSize, long maxWaitMillis) {
+    this.schema = schema;
+    this.url = url;
+    this.user = user;
+    this.password = password;
+    this.maxWaitMillis = maxWaitMillis;
+    this.permits = new Semaphore(maxSize, true);
+  }
+
+  /**
+   * Open a new, unpooled connection.
+   */
+  static Connection open(String schema, String url, String user, String password) {
+    try {
+      Connection conn = DriverManager.getConnection(url, user, password);
+      System.err.println("Connection to schema '" + schema + "' is successful.");
+      return conn;
+    }
+    catch(SQLException e) {
+      System.err.println("Unable to get connection at " + url);
+      throw new DbConnectException("Unable to get connection at " + url, e);
+    }
+  }
+
+  /**
+   * @return A pooled connection. Close it to return it.
+   * @throws DbConnectException Thrown if no connection is free within the wait time, or a new
+   *         connection can't be opened.
+   */
+  Connection borrow() {
+    try {
+      if(!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+        throw new DbConnectException("Timed out after " + maxWaitMillis
+            + " ms waiting for a connection to schema '" + schema + "'.", null);
+      }
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbConnectException("Interrupted while waiting for a connection.", e);
+    }
+
+    try {
+      return wrap(takeIdleOrOpen());
+    }
+    catch(RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Close the idle connections and stop pooling returned ones.
+   */
+  synchronized void close() {
+    closed = true;
+
+    while(!idle.isEmpty()) {
+      closeQuietly(idle.pop().conn);
+    }
+  }
+
+  private Connection takeIdleOrOpen() {
+    while(true) {
+      Idle candidate;
+
+      synchronized(this) {
+        candidate = idle.poll();
+      }
+
+      if(Objects.isNull(candidate)) {
+        return open(schema, url, user, password);
+      }
+
+      if(System.nanoTime() - candidate.since < VALIDATE_AFTER_IDLE_NANOS || isValid(candidate.conn)) {
+        return candidate.conn;
+      }
+
+      closeQuietly(candidate.conn);
+    }
+  }
+
+  private void release(Connection conn, PooledState state) {
+    try {
+      boolean reusable = !conn.isClosed() && reset(conn, state);
+
+      synchronized(this) {
+        if(reusable && !closed) {
+          idle.push(new Idle(conn));
+          return;
+        }
+      }
+
+      closeQuietly(conn);
+    }
+    catch(SQLException e) {
+      closeQuietly(conn);
+    }
+    finally {
+      permits.release();
+    }
+  }
+
+  private boolean reset(Connection conn, PooledState state) {
+    try {
+      if(state.autoCommitChanged && !conn.getAutoCommit()) {
+        conn.rollback();
+        conn.setAutoCommit(true);
+      }
+
+      if(state.readOnlyChanged && conn.isReadOnly()) {
+        conn.setReadOnly(false);
+      }
+
+      if(state.isolationChanged && conn.getTransactionIsolation() != state.isolation) {
+        conn.setTransactionIsolation(state.isolation);
+      }
+
+      return true;
+    }
+    catch(SQLException e) {
+      return false;
+    }
+  }
+
+  private Connection wrap(Connection conn) {
+    PooledState state = new PooledState();
+
+    return (Connection)Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+        new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+          switch(method.getName()) {
+            case "close":
+              if(!state.returned) {
+                state.returned = true;
+                release(conn, state);
+              }
+              return null;
+
+            case "isClosed":
+              return state.returned || conn.isClosed();
+
+            case "unwrap":
+            case "isWrapperFor":
+              return invoke(conn, method, args);
+
+            default:
+              if(state.returned) {
+                throw new SQLException("The connection has been returned to the pool.", "08003");
+              }
+
+              state.recordChange(conn, method.getName());
+              return invoke(conn, method, args);
+          }
+        });
+  }
+
+  private static Object invoke(Connection conn, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(conn, args);
+    }
+    catch(InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static boolean isValid(Connection conn) {
+    try {
+      return conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+    }
+    catch(SQLException e) {
+      return false;
+    }
+  }
+
+  private static void closeQuietly(Connection conn) {
+    try {
+      conn.close();
+    }
+    catch(SQLException e) {
+      /* The connection is being discarded anyway. */
+    }
+  }
+
+  /**
+   * What a borrower has changed and the pool must restore, plus whether it has been returned.
+   */
+  private static class PooledState {
+    boolean autoCommitChanged;
+    boolean readOnlyChanged;
+    boolean isolationChanged;
+    int isolation;
+    boolean returned;
+
+    void recordChange(Connection conn, String methodName) throws SQLException {
+      switch(methodName) {
+        case "setAutoCommit":
+          autoCommitChanged = true;
+          break;
+
+        case "setReadOnly":
+          readOnlyChanged = true;
+          break;
+
+        case "setTransactionIsolation":
+          /* Remember the level the connection had before the borrower first changed it. */
+          if(!isolationChanged) {
+            isolation = conn.getTransactionIsolation();
+            isolationChanged = true;
+          }
+          break;
+
+        default:
+          break;
+      }
+    }
+  }
+
+  private static class Idle {
+    final Connection conn;
+    final long since = System.nanoTime();
+
+    Idle(Connection conn) {
+      this.conn = conn;
+    }
+  }
+}
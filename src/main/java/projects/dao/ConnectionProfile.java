@@ -0,0 +1,148 @@
+package projects.dao;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This selects the Connector/J options a connection is opened with. The workloads want different
+ * things from the driver, and some options can only be set when the connection is opened, so
+ * {@link DbConnection} keeps a separate pool per profile. A profile's pool is only created when
+ * something asks for that profile.
+ *
+ * <ul>
+ * <li>LATENCY is for short reads and single-row writes, which are most calls. Statements are
+ * prepared on the server once per connection and cached, and the driver tracks session state
+ * locally instead of asking the server.</li>
+ * <li>BULK is for batches. Batches are rewritten into multi-row statements, which needs
+ * client-side prepared statements, and the socket send buffer is larger.</li>
+ * <li>STREAMING is for result sets read row by row, such as exports and full scans. The socket
+ * receive buffer is larger and a stalled stream gets more time. {@link DbConnection} also lifts the
+ * query deadline for these connections.</li>
+ * </ul>
+ *
+ * Any option can be changed with a system property named projects.db.profile.&lt;profile&gt;.&lt;option&gt;,
+ * such as projects.db.profile.streaming.useCompression=true. The {@link ProfileAdvisor} measures
+ * the profiles and their main alternatives against the database and prints such overrides.
+ *
+ * The options are only added to Connector/J URLs. An option already in projects.db.url wins.
+ */
+public enum ConnectionProfile {
+  // @formatter:off
+  LATENCY(
+      "useServerPrepStmts", "true",
+      "cachePrepStmts", "true",
+      "prepStmtCacheSize", "250",
+      "prepStmtCacheSqlLimit", "2048",
+      "cacheServerConfiguration", "true",
+      "useLocalSessionState", "true",
+      "elideSetAutoCommits", "true",
+      "tcpNoDelay", "true",
+      "useCompression", "false"),
+
+  BULK(
+      "rewriteBatchedStatements", "true",
+      "useServerPrepStmts", "false",
+      "cachePrepStmts", "true",
+      "cacheServerConfiguration", "true",
+      "useLocalSessionState", "true",
+      "tcpSndBuf", "1048576",
+      "useCompression", "false"),
+
+  STREAMING(
+      "useCursorFetch", "false",
+      "useServerPrepStmts", "false",
+      "cacheServerConfiguration", "true",
+      "useLocalSessionState", "true",
+      "tcpRcvBuf", "1048576",
+      "netTimeoutForStreamingResults", "600",
+      "useCompression", "false");
+  // @formatter:on
+
+  private static final String PROPERTY_PREFIX = "projects.db.profile.";
+
+  private final Map<String, String> options;
+
+  ConnectionProfile(String... namesAndValues) {
+    Map<String, String> defaults = new LinkedHashMap<>();
+
+    for(int i = 0; i < namesAndValues.length; i += 2) {
+      defaults.put(namesAndValues[i], namesAndValues[i + 1]);
+    }
+
+    String prefix = PROPERTY_PREFIX + name().toLowerCase(Locale.ROOT) + ".";
+
+    for(String property : System.getProperties().stringPropertyNames()) {
+      if(property.startsWith(prefix)) {
+        defaults.put(property.substring(prefix.length()), System.getProperty(property));
+      }
+    }
+
+    this.options = Collections.unmodifiableMap(defaults);
+  }
+
+  /**
+   * @return The driver options, including any overrides, in the order they are added to the URL.
+   */
+  public Map<String, String> getOptions() {
+    return options;
+  }
+
+  /**
+   * @param name A profile name, in any case.
+   * @return The profile.
+   * @throws IllegalArgumentException If there is no profile with the name.
+   */
+  public static ConnectionProfile named(String name) {
+    try {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+    catch(IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown connection profile \"" + name + "\"; use latency, bulk or streaming.");
+    }
+  }
+
+  /**
+   * @return The URL with this profile's options added.
+   */
+  String applyTo(String url) {
+    return applyTo(url, options);
+  }
+
+  /**
+   * Add driver options to a Connector/J URL, leaving out any the URL already sets. Other URLs are
+   * returned unchanged.
+   */
+  static String applyTo(String url, Map<String, String> options) {
+    if(!url.contains("jdbc:mysql:")) {
+      return url;
+    }
+
+    StringBuilder result = new StringBuilder(url);
+    int query = url.indexOf('?');
+
+    for(Map.Entry<String, String> option : options.entrySet()) {
+      if(Objects.nonNull(option.getValue()) && !hasOption(url, query, option.getKey())) {
+        result.append(result.indexOf("?") < 0 ? '?' : '&').append(option.getKey()).append('=').append(option.getValue());
+      }
+    }
+
+    return result.toString();
+  }
+
+  private static boolean hasOption(String url, int query, String name) {
+    if(query < 0) {
+      return false;
+    }
+
+    for(String pair : url.substring(query + 1).split("&")) {
+      if(pair.startsWith(name + "=")) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
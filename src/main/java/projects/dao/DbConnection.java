@@ -1,28 +1,180 @@
 package projects.dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
-import projects.exception.DbException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+import projects.exception.DbConnectException;
+
+/**
+ * This opens connections to the projects database. Every setting can be given as a system
+ * property (projects.db.host) or, failing that, an environment variable (PROJECTS_DB_HOST: the
+ * property name upper-cased with dots replaced by underscores). The settings are read once, when
+ * this class is first used.
+ *
+ * <ul>
+ * <li>url: a complete JDBC URL, with {schema} where the schema name goes. When this is set, host,
+ * port and the deadline settings below are ignored; put any driver options in the URL.</li>
+ * <li>host, port, schema, user, password: the MySQL server and account.</li>
+ * <li>pool.maxSize: the most connections open to one schema at a time (10). 0 turns pooling off,
+ * so every getConnection opens a new connection.</li>
+ * <li>pool.maxWaitMillis: how long getConnection waits for a free pooled connection (5000).</li>
+ * <li>profile: the {@link ConnectionProfile} for callers that don't pick one (latency).</li>
+ * </ul>
+ *
+ * Each schema has a pool per connection profile, so a schema can have up to pool.maxSize
+ * connections open for each profile in use.
+ *
+ * Connections to MySQL carry deadlines so that a slow or unreachable server can't hold a caller's
+ * thread indefinitely:
+ *
+ * <ul>
+ * <li>connectTimeoutMillis bounds the TCP connect and handshake.</li>
+ * <li>socketTimeoutMillis bounds any single wait for the server to answer.</li>
+ * <li>queryTimeoutMillis sets max_execution_time, which makes the server abandon long SELECTs.</li>
+ * <li>lockWaitTimeoutSeconds sets innodb_lock_wait_timeout for writes.</li>
+ * </ul>
+ *
+ * {@link ConnectionProfile#STREAMING} connections are the exception. A streamed result set is
+ * read as fast as its consumer asks, so a full scan can legitimately take longer than any query
+ * deadline, and the server may pause while the consumer applies backpressure. They get no
+ * max_execution_time and the longer streamingSocketTimeoutMillis (600000, the same ten minutes the
+ * profile gives the server through netTimeoutForStreamingResults).
+ */
 public class DbConnection {
-  private static String HOST = "localhost";
-  private static String PASSWORD = "projects";
-  private static int PORT = 3306;
-  private static String SCHEMA = "projects";
-  private static String USER = "projects";
+  private static String URL = setting("url", null);
+  private static String HOST = setting("host", "localhost");
+  private static String PASSWORD = setting("password", "projects");
+  private static int PORT = Integer.parseInt(setting("port", "3306"));
+  private static String SCHEMA = setting("schema", "projects");
+  private static String USER = setting("user", "projects");
+
+  private static int CONNECT_TIMEOUT_MILLIS = Integer.parseInt(setting("connectTimeoutMillis", "5000"));
+  private static int SOCKET_TIMEOUT_MILLIS = Integer.parseInt(setting("socketTimeoutMillis", "30000"));
+  private static int STREAMING_SOCKET_TIMEOUT_MILLIS = Integer.parseInt(setting("streamingSocketTimeoutMillis", "600000"));
+  private static int QUERY_TIMEOUT_MILLIS = Integer.parseInt(setting("queryTimeoutMillis", "10000"));
+  private static int LOCK_WAIT_TIMEOUT_SECONDS = Integer.parseInt(setting("lockWaitTimeoutSeconds", "10"));
+
+  private static int POOL_MAX_SIZE = Integer.parseInt(setting("pool.maxSize", "10"));
+  private static long POOL_MAX_WAIT_MILLIS = Long.parseLong(setting("pool.maxWaitMillis", "5000"));
+
+  private static ConnectionProfile DEFAULT_PROFILE = ConnectionProfile.named(setting("profile", "latency"));
+
+  private static final int STREAMING_FETCH_SIZE = 1000;
+
+  private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
 
   public static Connection getConnection() {
-    String uri = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s", HOST, PORT, SCHEMA,
-        USER, PASSWORD);
-
-    try {
-      Connection conn = DriverManager.getConnection(uri);
-      System.out.println("Connection to schema '" + SCHEMA + "' is successful.");
-      return conn;
-    } catch (SQLException e) {
-      System.out.println("Unable to get connection at " + uri);
-      throw new DbException("Unable to get connection at \" + uri");
+    return getConnection(SCHEMA);
+  }
+
+  /**
+   * Get a connection to the given schema on the configured server. This is used to reach the
+   * shard schemas; all other code uses the default schema. Closing the connection returns it to
+   * the pool.
+   *
+   * @param schema The schema name.
+   * @return The connection.
+   * @throws DbConnectException Thrown if the connection can't be opened. Nothing has been sent to
+   *         the server at that point, so the caller may safely try again.
+   */
+  public static Connection getConnection(String schema) {
+    return getConnection(schema, DEFAULT_PROFILE);
+  }
+
+  /**
+   * Get a connection to the given schema opened with the driver options of a profile.
+   *
+   * @param schema The schema name.
+   * @param profile The profile for the kind of work the connection will do.
+   * @return The connection.
+   * @throws DbConnectException Thrown if the connection can't be opened.
+   */
+  public static Connection getConnection(String schema, ConnectionProfile profile) {
+    if(POOL_MAX_SIZE <= 0) {
+      return ConnectionPool.open(schema, profile.applyTo(urlFor(schema, profile)), USER, PASSWORD);
+    }
+
+    return POOLS.computeIfAbsent(schema + "/" + profile.name(), key -> new ConnectionPool(schema,
+        profile.applyTo(urlFor(schema, profile)), USER, PASSWORD, POOL_MAX_SIZE, POOL_MAX_WAIT_MILLIS)).borrow();
+  }
+
+  /**
+   * Open an unpooled connection with the given driver options, for comparing option sets. The
+   * caller closes it.
+   *
+   * @param profile The profile whose deadlines the connection gets.
+   */
+  static Connection openWithOptions(String schema, ConnectionProfile profile, Map<String, String> options) {
+    return ConnectionPool.open(schema, ConnectionProfile.applyTo(urlFor(schema, profile), options), USER, PASSWORD);
+  }
+
+  /**
+   * @return The profile used when a caller doesn't pick one.
+   */
+  public static ConnectionProfile getDefaultProfile() {
+    return DEFAULT_PROFILE;
+  }
+
+  /**
+   * @return The name of the default schema.
+   */
+  public static String getSchema() {
+    return SCHEMA;
+  }
+
+  /**
+   * Ask the driver to stream a statement's result set row by row rather than read it all into
+   * memory. Connector/J streams only with a fetch size of Integer.MIN_VALUE, which other drivers
+   * reject, so other databases get an ordinary fetch size. A Connector/J connection opened with
+   * useCursorFetch=true reads through a server-side cursor instead, a fetch size's worth of rows
+   * at a time, which leaves the connection free for other statements between fetches.
+   *
+   * @param stmt A forward-only, read-only statement.
+   */
+  public static void streamResults(Statement stmt) throws SQLException {
+    DatabaseMetaData metaData = stmt.getConnection().getMetaData();
+    boolean mysql = "MySQL".equalsIgnoreCase(metaData.getDatabaseProductName());
+    boolean cursorFetch = metaData.getURL().contains("useCursorFetch=true");
+
+    stmt.setFetchSize(mysql && !cursorFetch ? Integer.MIN_VALUE : STREAMING_FETCH_SIZE);
+  }
+
+  /**
+   * Close every idle pooled connection. Connections in use are closed when they are returned.
+   */
+  public static void closePools() {
+    POOLS.values().forEach(ConnectionPool::close);
+    POOLS.clear();
+  }
+
+  private static String urlFor(String schema, ConnectionProfile profile) {
+    if(Objects.nonNull(URL)) {
+      return URL.replace("{schema}", schema);
+    }
+
+    boolean streaming = profile == ConnectionProfile.STREAMING;
+
+    // @formatter:off
+    return String.format("jdbc:mysql://%s:%d/%s", HOST, PORT, schema)
+        + "?connectTimeout=" + CONNECT_TIMEOUT_MILLIS
+        + "&socketTimeout=" + (streaming ? STREAMING_SOCKET_TIMEOUT_MILLIS : SOCKET_TIMEOUT_MILLIS)
+        + "&sessionVariables=max_execution_time=" + (streaming ? 0 : QUERY_TIMEOUT_MILLIS)
+        + ",innodb_lock_wait_timeout=" + LOCK_WAIT_TIMEOUT_SECONDS;
+    // @formatter:on
+  }
+
+  private static String setting(String name, String defaultValue) {
+    String value = System.getProperty("projects.db." + name);
+
+    if(Objects.isNull(value)) {
+      value = System.getenv("PROJECTS_DB_" + name.replace('.', '_').toUpperCase());
     }
+
+    return Objects.isNull(value) ? defaultValue : value;
   }
 }
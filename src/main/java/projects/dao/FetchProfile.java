@@ -0,0 +1,39 @@
+package projects.dao;
+
+/**
+ * This selects which child collections of a project are read along with the project row. A child
+ * collection that isn't part of the profile is not lost: it is given a lazy list that loads it the
+ * first time it is used.
+ */
+public enum FetchProfile {
+  /** Only the project row. Materials, steps and categories are loaded on first use. */
+  SCALARS(false, false, false),
+
+  /** The project row and its steps. Materials and categories are loaded on first use. */
+  WITH_STEPS(false, true, false),
+
+  /** The project row and all of its child collections. */
+  FULL(true, true, true);
+
+  private final boolean materials;
+  private final boolean steps;
+  private final boolean categories;
+
+  private FetchProfile(boolean materials, boolean steps, boolean categories) {
+    this.materials = materials;
+    this.steps = steps;
+    this.categories = categories;
+  }
+
+  public boolean includesMaterials() {
+    return materials;
+  }
+
+  public boolean includesSteps() {
+    return steps;
+  }
+
+  public boolean includesCategories() {
+    return categories;
+  }
+}
@@ -0,0 +1,138 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/**
+ * This bounds the growth of the project history. Every change to a project appends a version, so
+ * without compaction the history grows with the write rate forever. Compaction removes versions
+ * that stopped being current longer ago than the retention period; the current version of every
+ * project is always kept, however old it is. Reads as of a time within the retention period are
+ * unaffected.
+ *
+ * Like the {@link ProjectPurger}, compaction walks the history in primary key order and deletes
+ * in bounded chunks, one transaction per chunk with a pause in between, so it never holds long
+ * locks. Each run is one pass over the history table. Runs are started on demand, through
+ * ProjectService.compactHistory.
+ */
+public class HistoryCompactor extends DaoBase {
+  private static final String PROJECT_HISTORY_TABLE = "project_history";
+
+  // @formatter:off
+  private static final String FETCH_EXPIRED_SQL = ""
+      + "SELECT history_id FROM " + PROJECT_HISTORY_TABLE + " "
+      + "WHERE history_id > ? AND valid_to < ? "
+      + "ORDER BY history_id LIMIT ?";
+  // @formatter:on
+
+  private final String schema;
+
+  /**
+   * Create a compactor for the given schema.
+   *
+   * @param schema The schema that holds the project history.
+   */
+  public HistoryCompactor(String schema) {
+    this.schema = schema;
+  }
+
+  /**
+   * Remove the versions that stopped being current before the retention period.
+   *
+   * @param retention How long superseded and deleted versions are kept.
+   * @param options The chunk size and pause. The soft-delete setting is ignored.
+   * @return The number of versions removed.
+   */
+  public long compact(Duration retention, PurgeOptions options) {
+    Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+
+    try(Connection conn = DbConnection.getConnection(schema, ConnectionProfile.BULK)) {
+      long removed = 0;
+      long lastHistoryId = 0;
+
+      while(true) {
+        List<Long> historyIds = fetchNextChunk(conn, cutoff, options, lastHistoryId);
+
+        if(historyIds.isEmpty()) {
+          break;
+        }
+
+        deleteChunk(conn, historyIds);
+
+        removed += historyIds.size();
+        lastHistoryId = historyIds.get(historyIds.size() - 1);
+
+        if(historyIds.size() < options.getChunkSize() || !pause(options.getPauseBetweenChunks())) {
+          break;
+        }
+      }
+
+      return removed;
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * The current versions have no valid_to, so the comparison never selects them.
+   */
+  private List<Long> fetchNextChunk(Connection conn, Timestamp cutoff, PurgeOptions options,
+      long lastHistoryId) throws SQLException {
+    try(PreparedStatement stmt = conn.prepareStatement(FETCH_EXPIRED_SQL)) {
+      stmt.setLong(1, lastHistoryId);
+      stmt.setTimestamp(2, cutoff);
+      setParameter(stmt, 3, options.getChunkSize(), Integer.class);
+
+      try(ResultSet rs = stmt.executeQuery()) {
+        List<Long> historyIds = new LinkedList<>();
+
+        while(rs.next()) {
+          historyIds.add(rs.getLong(1));
+        }
+
+        return historyIds;
+      }
+    }
+  }
+
+  private void deleteChunk(Connection conn, List<Long> historyIds) throws SQLException {
+    /* The IDs came from the database as numbers, so they can safely be written into the SQL. */
+    String ids = historyIds.stream().map(String::valueOf).collect(Collectors.joining(", "));
+
+    try(Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("DELETE FROM " + PROJECT_HISTORY_TABLE + " WHERE history_id IN (" + ids + ")");
+    }
+  }
+
+  /**
+   * @return false if the thread was interrupted, which stops the compaction after the current
+   *         chunk.
+   */
+  private boolean pause(Duration duration) {
+    if(duration.isZero() || duration.isNegative()) {
+      return true;
+    }
+
+    try {
+      Thread.sleep(duration.toMillis());
+      return true;
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package projects.dao;
+
+import java.sql.Connection;
+
+/**
+ * The transaction isolation level of a unit of work. DEFAULT leaves the connection's level alone,
+ * which saves a round trip; for MySQL that is REPEATABLE READ unless the server is configured
+ * otherwise.
+ */
+public enum IsolationLevel {
+  DEFAULT(-1),
+  READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+  READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+  REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+  SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+  private final int jdbcLevel;
+
+  private IsolationLevel(int jdbcLevel) {
+    this.jdbcLevel = jdbcLevel;
+  }
+
+  /**
+   * @return The java.sql.Connection constant for the level, or -1 for DEFAULT.
+   */
+  public int getJdbcLevel() {
+    return jdbcLevel;
+  }
+}
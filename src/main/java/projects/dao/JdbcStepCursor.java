@@ -0,0 +1,79 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.mapping.RowMapper;
+
+/**
+ * A {@link StepCursor} that streams the steps from the database. It owns its connection and
+ * releases it as soon as the last row has been read.
+ */
+class JdbcStepCursor implements StepCursor {
+  private final Connection conn;
+  private final PreparedStatement stmt;
+  private final ResultSet rs;
+  private final RowMapper<Step> mapper;
+
+  private boolean hasRow;
+  private boolean closed;
+
+  JdbcStepCursor(Connection conn, PreparedStatement stmt, ResultSet rs,
+      RowMapper<Step> mapper) throws SQLException {
+    this.conn = conn;
+    this.stmt = stmt;
+    this.rs = rs;
+    this.mapper = mapper;
+    this.hasRow = rs.next();
+  }
+
+  @Override
+  public boolean hasNext() {
+    return hasRow;
+  }
+
+  @Override
+  public Step next() {
+    if(!hasRow) {
+      throw new NoSuchElementException();
+    }
+
+    try {
+      Step step = mapper.map(rs);
+      hasRow = rs.next();
+
+      /* Release the connection as soon as the last row is read. */
+      if(!hasRow) {
+        close();
+      }
+
+      return step;
+    }
+    catch(SQLException e) {
+      close();
+      throw new DbException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if(closed) {
+      return;
+    }
+
+    closed = true;
+    hasRow = false;
+
+    try(conn; stmt; rs) {
+      /* Closes the result set, statement and connection in that order. */
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import projects.exception.DbException;
+
+/**
+ * This measures the {@link ConnectionProfile}s against a database and recommends option
+ * overrides. It first looks at the data: how many rows a project fetch returns and how wide the
+ * rows of a full step scan are. Then it runs one workload per profile, each on fresh connections
+ * with the profile's options, with the driver's defaults, and with the alternatives most likely to
+ * matter for that workload:
+ *
+ * <ul>
+ * <li>Point reads (latency): a project row and its steps, by random ID. The alternative is
+ * client-side prepared statements.</li>
+ * <li>A batch of actual hours updates (bulk), rolled back afterwards. The alternative is sending
+ * the batch without rewriting it.</li>
+ * <li>A streamed scan of the step table (streaming). The alternatives are a server-side cursor
+ * and protocol compression, which pays off for wide rows on a slow network.</li>
+ * </ul>
+ *
+ * Each set of options is run several times, alternating with the others, and its fastest round
+ * counts. An alternative is recommended only if it beat the profile by more than the noise margin;
+ * the recommendation is printed as system properties to add. The driver options only apply to
+ * MySQL Connector/J, so against another database the timings are printed but nothing is
+ * recommended.
+ *
+ * The batch trial takes row locks on the projects it updates until it rolls back, so run this
+ * against a local or test database:
+ *
+ * <pre>
+ * java -cp target/classes:mysql-connector-java.jar projects.dao.ProfileAdvisor
+ * </pre>
+ */
+public class ProfileAdvisor {
+  /* An alternative must be this much faster than the profile to be recommended. */
+  private static final double NOISE_MARGIN = 0.10;
+
+  // @formatter:off
+  private static final String PROJECT_SHAPE_SQL = ""
+      + "SELECT COUNT(*), COALESCE(AVG(LENGTH(project_name) + COALESCE(LENGTH(notes), 0)), 0), "
+      + "COALESCE(MAX(project_id), 0) FROM project WHERE deleted_at IS NULL";
+
+  private static final String STEP_SHAPE_SQL = ""
+      + "SELECT COUNT(*), COALESCE(AVG(LENGTH(step_text)), 0) FROM step";
+  // @formatter:on
+
+  private final String schema;
+  private final int rounds = Integer.getInteger("projects.advisor.rounds", 3);
+  private final int pointReads = Integer.getInteger("projects.advisor.reads", 300);
+  private final int batchSize = Integer.getInteger("projects.advisor.batchSize", 500);
+  private final int maxScanRows = Integer.getInteger("projects.advisor.maxScanRows", 200_000);
+  private final Random random = new Random(42);
+
+  private Shape shape;
+
+  public static void main(String[] args) {
+    new ProfileAdvisor(DbConnection.getSchema()).advise();
+    DbConnection.closePools();
+  }
+
+  /**
+   * @param schema The schema whose data the workloads read.
+   */
+  public ProfileAdvisor(String schema) {
+    this.schema = schema;
+  }
+
+  /**
+   * Run the workloads and print the timings and recommendations.
+   *
+   * @return The recommended system property settings, such as
+   *         projects.db.profile.streaming.useCompression=true. Empty if the profiles are as good as
+   *         their alternatives.
+   */
+  public List<String> advise() {
+    shape = observe();
+
+    System.out.printf("Projects: %,d, %.0f bytes of text per row, %.1f steps and %,d bytes of step text per project%n",
+        shape.projects, shape.projectBytes, shape.stepsPerProject(), Math.round(shape.stepsPerProject() * shape.stepBytes));
+    System.out.printf("Step scan: %,d rows of %.0f bytes of text%n", Math.min(shape.steps, maxScanRows), shape.stepBytes);
+
+    if(shape.projects == 0) {
+      System.out.println("There are no projects to measure with; load some data first.");
+      return List.of();
+    }
+
+    List<String> overrides = new ArrayList<>();
+
+    overrides.addAll(compare(ConnectionProfile.LATENCY, "point reads", this::pointReads,
+        Map.of("useServerPrepStmts", "false")));
+
+    overrides.addAll(compare(ConnectionProfile.BULK, "batched updates", this::batchUpdate,
+        Map.of("rewriteBatchedStatements", "false")));
+
+    overrides.addAll(compare(ConnectionProfile.STREAMING, "step scan", this::scanSteps,
+        Map.of("useCursorFetch", "true"), Map.of("useCompression", "true")));
+
+    if(!shape.mysql) {
+      System.out.println("The database is " + shape.product + ", not MySQL, so the driver options aren't used and the"
+          + " differences above are noise; no changes recommended.");
+      return List.of();
+    }
+
+    if(overrides.isEmpty()) {
+      System.out.println("The profiles are as fast as their alternatives; no changes recommended.");
+    }
+    else {
+      System.out.println("Recommended settings:");
+      overrides.forEach(setting -> System.out.println("  -D" + setting));
+    }
+
+    if(shape.stepBytes > 1024 && !overrides.contains(override(ConnectionProfile.STREAMING, "useCompression", "true"))) {
+      System.out.println("Note: step rows are wide. Compression didn't pay off against this server, but may against a"
+          + " remote one; try projects.db.profile.streaming.useCompression=true there.");
+    }
+
+    return overrides;
+  }
+
+  /**
+   * Time the workload with the profile, with the driver's defaults, and with each alternative.
+   *
+   * @return The overrides of the fastest alternative, if it beat the profile by the noise margin.
+   */
+  @SafeVarargs
+  private List<String> compare(ConnectionProfile profile, String workloadName, Workload workload,
+      Map<String, String>... alternatives) {
+    Map<String, Map<String, String>> candidates = new LinkedHashMap<>();
+    String profileLabel = profile.name().toLowerCase(Locale.ROOT);
+
+    candidates.put(profileLabel, profile.getOptions());
+    candidates.put("driver defaults", Map.of());
+
+    for(Map<String, String> alternative : alternatives) {
+      Map<String, String> options = new LinkedHashMap<>(profile.getOptions());
+      options.putAll(alternative);
+      candidates.put(profileLabel + " " + describe(alternative), options);
+    }
+
+    Map<String, Long> best = new LinkedHashMap<>();
+
+    for(int round = 0; round < rounds; round++) {
+      for(Map.Entry<String, Map<String, String>> candidate : candidates.entrySet()) {
+        long nanos = time(profile, candidate.getValue(), workload);
+        best.merge(candidate.getKey(), nanos, Math::min);
+      }
+    }
+
+    System.out.println(workloadName + ":");
+    best.forEach((label, nanos) -> System.out.printf("  %-40s %10.2f ms%n", label, nanos / 1e6));
+
+    long profileNanos = best.get(profileLabel);
+    String winner = profileLabel;
+
+    for(Map.Entry<String, Long> entry : best.entrySet()) {
+      if(entry.getValue() < best.get(winner)) {
+        winner = entry.getKey();
+      }
+    }
+
+    if(winner.equals(profileLabel) || best.get(winner) > profileNanos * (1 - NOISE_MARGIN)) {
+      return List.of();
+    }
+
+    if(winner.equals("driver defaults") && shape.mysql) {
+      System.out.println("  The driver defaults were fastest; the " + profileLabel
+          + " options don't help this workload on this server.");
+      return List.of();
+    }
+
+    List<String> overrides = new ArrayList<>();
+    Map<String, String> options = candidates.get(winner);
+
+    for(Map.Entry<String, String> option : options.entrySet()) {
+      if(!Objects.equals(option.getValue(), profile.getOptions().get(option.getKey()))) {
+        overrides.add(override(profile, option.getKey(), option.getValue()));
+      }
+    }
+
+    return overrides;
+  }
+
+  private long time(ConnectionProfile profile, Map<String, String> options, Workload workload) {
+    try(Connection conn = DbConnection.openWithOptions(schema, profile, options)) {
+      /* A warm-up run, so connection setup and first prepares aren't timed. */
+      workload.run(conn);
+
+      long start = System.nanoTime();
+      workload.run(conn);
+      return System.nanoTime() - start;
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /*
+   * The workloads.
+   */
+
+  private void pointReads(Connection conn) throws SQLException {
+    for(int i = 0; i < pointReads; i++) {
+      int projectId = 1 + random.nextInt(shape.maxProjectId);
+
+      try(PreparedStatement stmt = conn.prepareStatement(ProjectDao.FETCH_PROJECT_BY_ID_SQL)) {
+        stmt.setInt(1, projectId);
+
+        try(ResultSet rs = stmt.executeQuery()) {
+          drain(rs);
+        }
+      }
+
+      try(PreparedStatement stmt = conn.prepareStatement(ProjectDao.FETCH_STEPS_SQL)) {
+        stmt.setInt(1, projectId);
+
+        try(ResultSet rs = stmt.executeQuery()) {
+          drain(rs);
+        }
+      }
+    }
+  }
+
+  private void batchUpdate(Connection conn) throws SQLException {
+    conn.setAutoCommit(false);
+
+    try(PreparedStatement stmt = conn.prepareStatement(ProjectDao.UPDATE_ACTUAL_HOURS_SQL)) {
+      for(int i = 0; i < batchSize; i++) {
+        stmt.setBigDecimal(1, BigDecimal.ONE);
+        stmt.setInt(2, 1 + random.nextInt(shape.maxProjectId));
+        stmt.addBatch();
+      }
+
+      stmt.executeBatch();
+    }
+    finally {
+      conn.rollback();
+      conn.setAutoCommit(true);
+    }
+  }
+
+  private void scanSteps(Connection conn) throws SQLException {
+    try(PreparedStatement stmt = conn.prepareStatement(ProjectPublisher.STEPS_SQL, ResultSet.TYPE_FORWARD_ONLY,
+        ResultSet.CONCUR_READ_ONLY)) {
+      DbConnection.streamResults(stmt);
+      stmt.setMaxRows(maxScanRows);
+
+      try(ResultSet rs = stmt.executeQuery()) {
+        drain(rs);
+      }
+    }
+  }
+
+  /**
+   * Read every column of every row, as the mappers do.
+   */
+  private static long drain(ResultSet rs) throws SQLException {
+    int columns = rs.getMetaData().getColumnCount();
+    long values = 0;
+
+    while(rs.next()) {
+      for(int column = 1; column <= columns; column++) {
+        values += Objects.isNull(rs.getObject(column)) ? 0 : 1;
+      }
+    }
+
+    return values;
+  }
+
+  private Shape observe() {
+    try(Connection conn = DbConnection.getConnection(schema); Statement stmt = conn.createStatement()) {
+      Shape observed = new Shape();
+      observed.product = conn.getMetaData().getDatabaseProductName();
+      observed.mysql = "MySQL".equalsIgnoreCase(observed.product);
+
+      try(ResultSet rs = stmt.executeQuery(PROJECT_SHAPE_SQL)) {
+        rs.next();
+        observed.projects = rs.getLong(1);
+        observed.projectBytes = rs.getDouble(2);
+        observed.maxProjectId = rs.getInt(3);
+      }
+
+      try(ResultSet rs = stmt.executeQuery(STEP_SHAPE_SQL)) {
+        rs.next();
+        observed.steps = rs.getLong(1);
+        observed.stepBytes = rs.getDouble(2);
+      }
+
+      return observed;
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  private static String describe(Map<String, String> options) {
+    List<String> settings = new ArrayList<>();
+    options.forEach((name, value) -> settings.add(name + "=" + value));
+    return String.join(", ", settings);
+  }
+
+  private static String override(ConnectionProfile profile, String option, String value) {
+    return "projects.db.profile." + profile.name().toLowerCase(Locale.ROOT) + "." + option + "=" + value;
+  }
+
+  /**
+   * What the data looks like.
+   */
+  private static class Shape {
+    private String product;
+    private boolean mysql;
+    private long projects;
+    private double projectBytes;
+    private int maxProjectId;
+    private long steps;
+    private double stepBytes;
+
+    double stepsPerProject() {
+      return projects == 0 ? 0 : (double)steps / projects;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Workload {
+    void run(Connection conn) throws SQLException;
+  }
+}
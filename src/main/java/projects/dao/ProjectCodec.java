@@ -0,0 +1,41 @@
+package projects.dao;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import projects.dao.cache.Codec;
+import projects.dao.cache.Codecs;
+import projects.entity.Project;
+
+/**
+ * This writes the columns of a project row for the {@link projects.dao.cache.QueryCache}. Only the
+ * project row is written; the child collections are not part of the cached queries.
+ */
+class ProjectCodec implements Codec<Project> {
+  static final ProjectCodec INSTANCE = new ProjectCodec();
+
+  @Override
+  public void write(DataOutputStream out, Project project) throws IOException {
+    Codecs.writeInteger(out, project.getProjectId());
+    Codecs.writeString(out, project.getProjectName());
+    Codecs.writeDecimal(out, project.getEstimatedHours());
+    Codecs.writeDecimal(out, project.getActualHours());
+    Codecs.writeInteger(out, project.getDifficulty());
+    Codecs.writeString(out, project.getNotes());
+  }
+
+  @Override
+  public Project read(DataInputStream in) throws IOException {
+    Project project = new Project();
+
+    project.setProjectId(Codecs.readInteger(in));
+    project.setProjectName(Codecs.readString(in));
+    project.setEstimatedHours(Codecs.readDecimal(in));
+    project.setActualHours(Codecs.readDecimal(in));
+    project.setDifficulty(Codecs.readInteger(in));
+    project.setNotes(Codecs.readString(in));
+
+    return project;
+  }
+}
@@ -1,213 +1,597 @@
 package projects.dao;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+import projects.dao.binding.StatementBinder;
+import projects.dao.cache.Codec;
+import projects.dao.cache.Codecs;
+import projects.dao.cache.QueryCache;
+import projects.dao.cache.TableVersions;
 import projects.entity.Category;
+import projects.entity.LazyList;
 import projects.entity.Material;
+import projects.entity.MaterialMapper;
 import projects.entity.Project;
+import projects.entity.ProjectMapper;
 import projects.entity.Step;
+import projects.entity.StepMapper;
 import projects.exception.DbException;
 import provided.util.DaoBase;
 
-public class ProjectDao extends DaoBase {
+public class ProjectDao extends DaoBase implements ProjectStore {
 
-	  private static final String CATEGORY_TABLE = "category";
 	  private static final String MATERIAL_TABLE = "material";
 	  private static final String PROJECT_TABLE = "project";
 	  private static final String PROJECT_CATEGORY_TABLE = "project_category";
 	  private static final String STEP_TABLE = "step";
-	  
-    /** CREATE - Insert a new project */
-    public Project insertProject(Project project) {
-        String sql = ""
-            + "INSERT INTO project "
-            + "(project_name, estimated_hours, actual_hours, difficulty, notes) "
-            + "VALUES (?, ?, ?, ?, ?)";
+	  private static final String PROJECT_HISTORY_TABLE = "project_history";
+
+	  private static final String[] PROJECT_TABLES = { PROJECT_TABLE };
+	  private static final String[] PROJECT_CATEGORY_TABLES = { PROJECT_CATEGORY_TABLE };
+	  private static final Codec<List<Project>> PROJECT_LIST = Codecs.listOf(ProjectCodec.INSTANCE);
+
+	  /*
+	   * The SQL for each DAO query. These are package-private so that QueryPlanCheck can EXPLAIN
+	   * exactly the statements that the DAO runs. Projects soft-deleted by ProjectPurger have a
+	   * deleted_at time and are left out of reads and updates.
+	   */
+	  // @formatter:off
+	  static final String INSERT_PROJECT_SQL = ""
+	      + "INSERT INTO " + PROJECT_TABLE + " "
+	      + "(" + ProjectMapper.INSERT_COLUMNS + ") "
+	      + "VALUES (" + ProjectMapper.INSERT_PARAMETERS + ")";
+
+	  static final String INSERT_PROJECT_WITH_ID_SQL = ""
+	      + "INSERT INTO " + PROJECT_TABLE + " "
+	      + "(" + ProjectMapper.COLUMNS + ") "
+	      + "VALUES (?, " + ProjectMapper.INSERT_PARAMETERS + ")";
+
+	  static final String FETCH_ALL_PROJECTS_SQL = ""
+	      + "SELECT " + ProjectMapper.COLUMNS + " "
+	      + "FROM " + PROJECT_TABLE + " WHERE deleted_at IS NULL ORDER BY project_name";
+
+	  static final String FETCH_PROJECT_BY_ID_SQL = ""
+	      + "SELECT " + ProjectMapper.COLUMNS + " "
+	      + "FROM " + PROJECT_TABLE + " WHERE project_id = ? AND deleted_at IS NULL";
+
+	  static final String MODIFY_PROJECT_SQL = ""
+	      + "UPDATE " + PROJECT_TABLE + " "
+	      + "SET " + ProjectMapper.UPDATE_ASSIGNMENTS + " "
+	      + "WHERE project_id = ? AND deleted_at IS NULL";
+
+	  static final String UPDATE_ACTUAL_HOURS_SQL = ""
+	      + "UPDATE " + PROJECT_TABLE + " SET actual_hours = ? "
+	      + "WHERE project_id = ? AND deleted_at IS NULL";
+
+	  static final String DELETE_PROJECT_SQL = "DELETE FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+
+	  static final String FETCH_CATEGORIES_SQL = ""
+	      + "SELECT category_id FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id = ?";
+
+	  static final String FETCH_STEPS_SQL = ""
+	      + "SELECT " + StepMapper.COLUMNS + " FROM " + STEP_TABLE + " "
+	      + "WHERE project_id = ? ORDER BY step_order";
+
+	  static final String FETCH_STEP_RANGE_SQL = ""
+	      + "SELECT " + StepMapper.COLUMNS + " FROM " + STEP_TABLE + " "
+	      + "WHERE project_id = ? AND step_order > ? "
+	      + "ORDER BY step_order LIMIT ?";
+
+	  static final String FETCH_MATERIALS_SQL = ""
+	      + "SELECT " + MaterialMapper.COLUMNS + " FROM " + MATERIAL_TABLE + " WHERE project_id = ?";
+
+	  /*
+	   * Project history. A change closes the current version and appends a copy of the new row,
+	   * both stamped with the same database time, in the transaction that made the change.
+	   */
+	  static final String CLOSE_HISTORY_SQL = ""
+	      + "UPDATE " + PROJECT_HISTORY_TABLE + " SET valid_to = ? "
+	      + "WHERE project_id = ? AND valid_to IS NULL";
+
+	  static final String APPEND_HISTORY_SQL = ""
+	      + "INSERT INTO " + PROJECT_HISTORY_TABLE + " (" + ProjectMapper.COLUMNS + ", valid_from) "
+	      + "SELECT " + ProjectMapper.COLUMNS + ", ? FROM " + PROJECT_TABLE + " "
+	      + "WHERE project_id = ? AND deleted_at IS NULL";
+
+	  static final String CURRENT_TIME_SQL = "SELECT CURRENT_TIMESTAMP(6)";
+
+	  static final String FETCH_PROJECT_AS_OF_SQL = ""
+	      + "SELECT " + ProjectMapper.COLUMNS + " FROM " + PROJECT_HISTORY_TABLE + " "
+	      + "WHERE project_id = ? AND valid_from <= ? AND (valid_to IS NULL OR valid_to > ?) "
+	      + "ORDER BY valid_from DESC LIMIT 1";
+	  // @formatter:on
+
+    private static final TransactionOptions READ_WRITE = new TransactionOptions();
+    private static final TransactionOptions READ_ONLY = TransactionOptions.readOnly();
+    private static final TransactionOptions BULK_WRITE = bulkWrite();
+
+    /* Binds a project ID key. A null ID is bound as SQL NULL, which matches no project. */
+    private static final StatementBinder<Integer> PROJECT_ID_BINDER =
+        StatementBinder.<Integer>builder().integer(projectId -> projectId).build();
+
+    private static final StatementBinder<Map.Entry<Integer, BigDecimal>> ACTUAL_HOURS_BINDER =
+        StatementBinder.<Map.Entry<Integer, BigDecimal>>builder()
+            .decimal(Map.Entry::getValue)
+            .integer(Map.Entry::getKey)
+            .build();
+
+    private final String schema;
+    private final TransactionTemplate transactions;
+
+    /**
+     * Create a DAO for the default schema.
+     */
+    public ProjectDao() {
+        this(DbConnection.getSchema());
+    }
+
+    /**
+     * Create a DAO for the given schema. The sharding layer creates one of these per shard.
+     *
+     * @param schema The schema that holds the project tables.
+     */
+    public ProjectDao(String schema) {
+        this.schema = schema;
+        this.transactions = new TransactionTemplate(schema);
+    }
+
+    /**
+     * @return The schema that this DAO reads and writes.
+     */
+    public String getSchema() {
+        return schema;
+    }
 
-        try (Connection conn = DbConnection.getConnection()) {
-            startTransaction(conn);
+    /**
+     * @return The template whose units of work this DAO's operations join. Use it to run several
+     *         operations in one transaction.
+     */
+    public TransactionTemplate getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * CREATE - Insert a new project. If the project already has an ID (allocated by the sharding
+     * layer, for example) that ID is used; otherwise the ID is assigned by AUTO_INCREMENT.
+     */
+    @Override
+    public Project insertProject(Project project) {
+        boolean assignedId = Objects.nonNull(project.getProjectId());
+        String sql = assignedId ? INSERT_PROJECT_WITH_ID_SQL : INSERT_PROJECT_SQL;
 
+        Integer projectId = transactions.execute(READ_WRITE, conn -> {
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, project.getProjectName());
-                stmt.setBigDecimal(2, project.getEstimatedHours());
-                stmt.setBigDecimal(3, project.getActualHours());
-                stmt.setObject(4, project.getDifficulty(), java.sql.Types.INTEGER);
-                stmt.setString(5, project.getNotes());
+                if (assignedId) {
+                    ProjectMapper.ROW_BINDER.bind(stmt, project);
+                } else {
+                    ProjectMapper.INSERT_BINDER.bind(stmt, project);
+                }
 
                 stmt.executeUpdate();
-                Integer projectId = getLastInsertId(conn, "project");
+                Integer id = assignedId ? project.getProjectId() : getLastInsertId(conn, "project");
 
-                commitTransaction(conn);
-                project.setProjectId(projectId);
-                return project;
-
-            } catch (Exception e) {
-                rollbackTransaction(conn);
-                throw new DbException(e);
+                recordHistory(conn, List.of(id), now(conn));
+                return id;
             }
+        });
 
-        } catch (SQLException e) {
-            throw new DbException(e);
-        }
+        transactions.afterCommit(() -> TableVersions.bump(schema, PROJECT_TABLE));
+        project.setProjectId(projectId);
+        return project;
     }
 
-    /** READ - Fetch all projects */
+    /**
+     * READ - Fetch all projects. The result is cached until a write through any ProjectDao on
+     * this schema changes the project table. The cache is bypassed inside a read-write unit of
+     * work, which may see its own uncommitted changes.
+     */
+    @Override
     public List<Project> fetchAllProjects() {
-        String sql = "SELECT project_id, project_name, estimated_hours, actual_hours, difficulty, notes "
-                   + "FROM project ORDER BY project_name";
-
-        try (Connection conn = DbConnection.getConnection()) {
-            startTransaction(conn);
+        if (transactions.inReadWriteUnitOfWork()) {
+            return queryAllProjects();
+        }
 
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                try (ResultSet rs = stmt.executeQuery()) {
-                    List<Project> projects = new LinkedList<>();
+        return QueryCache.getInstance().get(schema, FETCH_ALL_PROJECTS_SQL, List.of(), PROJECT_TABLES,
+            PROJECT_LIST, this::queryAllProjects);
+    }
 
-                    while (rs.next()) {
-                        projects.add(extract(rs, Project.class));
-                    }
+    private List<Project> queryAllProjects() {
+        return transactions.query(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(FETCH_ALL_PROJECTS_SQL);
+                    ResultSet rs = stmt.executeQuery()) {
+                List<Project> projects = new LinkedList<>();
 
-                    commitTransaction(conn);
-                    return projects;
-                } catch (Exception e) {
-                    rollbackTransaction(conn);
-                    throw new DbException(e);
+                while (rs.next()) {
+                    projects.add(ProjectMapper.map(rs));
                 }
-            }
 
-        } catch (SQLException e) {
-            throw new DbException(e);
-        }
+                return projects;
+            }
+        });
     }
 
-    /** READ - Fetch project by ID */
+    /** READ - Fetch project by ID with all of its child collections */
+    @Override
     public Optional <Project> fetchProjectById(Integer projectId) {
-        String sql = "SELECT project_id, project_name, estimated_hours, actual_hours, difficulty, notes "
-                   + "FROM project WHERE project_id = ?";
+        return fetchProjectById(projectId, FetchProfile.FULL);
+    }
 
-        try (Connection conn = DbConnection.getConnection()) {
-            startTransaction(conn);
-            
-            try {
-            	Project project = null;
-            
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, projectId);
+    /**
+     * READ - Fetch project by ID, loading only the child collections named by the fetch profile.
+     * The other child collections are lazy lists that load themselves on first use.
+     *
+     * @param projectId The project ID.
+     * @param profile Selects which child collections are read in this transaction.
+     * @return The project, or an empty Optional if the project ID is invalid.
+     */
+    @Override
+    public Optional <Project> fetchProjectById(Integer projectId, FetchProfile profile) {
+        /* Only the project row is read now, so a single statement needs no transaction. */
+        if (profile == FetchProfile.SCALARS) {
+            return Optional.ofNullable(transactions.query(conn -> fetchProjectRow(conn, projectId, profile)));
+        }
 
-                try(ResultSet rs = stmt.executeQuery()) {
-                    if(rs.next()) {
-                      project = extract(rs, Project.class);
-                    }
-                  }
-                }
+        return Optional.ofNullable(transactions.execute(READ_ONLY, conn -> fetchProjectRow(conn, projectId, profile)));
+    }
 
-                /*
-                 * This null check isn't expressly needed because if the project ID is invalid, each method
-                 * will simply return an empty list. However, it avoids three unnecessary database calls.
-                 */
-                if(Objects.nonNull(project)) {
-                  project.getMaterials().addAll(fetchMaterialsForProject(conn, projectId));
-                  project.getSteps().addAll(fetchStepsForProject(conn, projectId));
-                  project.getCategories().addAll(fetchCategoriesForProject(conn, projectId));
+    /**
+     * Read the project row and the child collections in the fetch profile on the given connection.
+     *
+     * @return The project, or null if the project ID is invalid.
+     */
+    private Project fetchProjectRow(Connection conn, Integer projectId, FetchProfile profile)
+            throws SQLException {
+        Project project = null;
+
+        try (PreparedStatement stmt = conn.prepareStatement(FETCH_PROJECT_BY_ID_SQL)) {
+            PROJECT_ID_BINDER.bind(stmt, projectId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    project = ProjectMapper.map(rs);
                 }
+            }
+        }
 
-                commitTransaction(conn);
-
-                /*
-                 * Optional.ofNullable() is used because project may be null at this point if the given
-                 * project ID is invalid.
-                 */
-                return Optional.ofNullable(project);
-              }
-              catch(Exception e) {
-                rollbackTransaction(conn);
-                throw new DbException(e);
-              }
+        /*
+         * This null check isn't expressly needed because if the project ID is invalid, each method
+         * will simply return an empty list. However, it avoids three unnecessary database calls.
+         */
+        if (Objects.nonNull(project)) {
+            if (profile.includesMaterials()) {
+                project.getMaterials().addAll(fetchMaterialsForProject(conn, projectId));
+            } else {
+                project.setMaterials(lazy(c -> fetchMaterialsForProject(c, projectId)));
             }
-            catch(SQLException e) {
-              throw new DbException(e);
+
+            if (profile.includesSteps()) {
+                project.getSteps().addAll(fetchStepsForProject(conn, projectId));
+            } else {
+                project.setSteps(lazy(c -> fetchStepsForProject(c, projectId)));
             }
-          }
+
+            if (profile.includesCategories()) {
+                project.getCategories().addAll(fetchCategoriesForProject(conn, projectId));
+            } else {
+                project.setCategories(lazy(c -> fetchCategoriesForProject(c, projectId)));
+            }
+        }
+
+        return project;
+    }
 
     /** UPDATE - Modify project details */
+    @Override
     public boolean modifyProjectDetails(Project project) {
-        String sql = ""
-            + "UPDATE project "
-            + "SET project_name = ?, estimated_hours = ?, actual_hours = ?, difficulty = ?, notes = ? "
-            + "WHERE project_id = ?";
+        boolean updated = transactions.execute(READ_WRITE, conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(MODIFY_PROJECT_SQL)) {
+                int next = ProjectMapper.INSERT_BINDER.bind(stmt, project);
+                PROJECT_ID_BINDER.bind(stmt, next, project.getProjectId());
 
-        try (Connection conn = DbConnection.getConnection()) {
-            startTransaction(conn);
+                if (stmt.executeUpdate() != 1) {
+                    return false;
+                }
+            }
 
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, project.getProjectName());
-                stmt.setBigDecimal(2, project.getEstimatedHours());
-                stmt.setBigDecimal(3, project.getActualHours());
-                stmt.setObject(4, project.getDifficulty(), java.sql.Types.INTEGER);
-                stmt.setString(5, project.getNotes());
-                stmt.setInt(6, project.getProjectId());
-
-                boolean updated = stmt.executeUpdate() == 1;
-                commitTransaction(conn);
-                return updated;
-            } catch (Exception e) {
-                rollbackTransaction(conn);
-                throw new DbException(e);
+            recordHistory(conn, List.of(project.getProjectId()), now(conn));
+            return true;
+        });
+
+        if (updated) {
+            transactions.afterCommit(() -> TableVersions.bump(schema, PROJECT_TABLE));
+        }
+
+        return updated;
+    }
+
+    /**
+     * UPDATE - Set the actual hours of many projects in one transaction. The updates are sent as a
+     * single JDBC batch of one-column UPDATEs, which is much cheaper than a full-row update and a
+     * transaction per project. The batch runs on a {@link ConnectionProfile#BULK} connection, which
+     * sends it in a few round trips.
+     *
+     * @param actualHours The new actual hours keyed by project ID.
+     * @return The number of projects that were updated.
+     */
+    @Override
+    public int updateActualHours(Map<Integer, BigDecimal> actualHours) {
+        if (actualHours.isEmpty()) {
+            return 0;
+        }
+
+        int updated = transactions.execute(BULK_WRITE, conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(UPDATE_ACTUAL_HOURS_SQL)) {
+                int count = 0;
+
+                for (int rows : ACTUAL_HOURS_BINDER.executeBatch(stmt, actualHours.entrySet())) {
+                    count += Math.max(rows, 0);
+                }
+
+                recordHistory(conn, actualHours.keySet(), now(conn));
+                return count;
             }
+        });
 
-        } catch (SQLException e) {
-            throw new DbException(e);
+        if (updated > 0) {
+            transactions.afterCommit(() -> TableVersions.bump(schema, PROJECT_TABLE));
         }
+
+        return updated;
     }
 
     /** DELETE - Remove a project by ID */
+    @Override
     public boolean deleteProject(Integer projectId) {
-        String sql = "DELETE FROM project WHERE project_id = ?";
+        boolean deleted = transactions.execute(READ_WRITE, conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(DELETE_PROJECT_SQL)) {
+                PROJECT_ID_BINDER.bind(stmt, projectId);
 
-        try (Connection conn = DbConnection.getConnection()) {
-            startTransaction(conn);
+                if (stmt.executeUpdate() != 1) {
+                    return false;
+                }
+            }
 
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, projectId);
-
-                boolean deleted = stmt.executeUpdate() == 1;
-                commitTransaction(conn);
-                return deleted;
-            } catch (Exception e) {
-                rollbackTransaction(conn);
-                throw new DbException(e);
+            closeHistory(conn, List.of(projectId), now(conn));
+            return true;
+        });
+
+        /* The cascade removed the project from its categories. */
+        if (deleted) {
+            transactions.afterCommit(() -> {
+                TableVersions.bump(schema, PROJECT_TABLE, MATERIAL_TABLE, STEP_TABLE, PROJECT_CATEGORY_TABLE);
+                CategoryDictionary.getInstance().invalidateProjects();
+            });
+        }
+
+        return deleted;
+    }
+
+    /**
+     * READ - Fetch a project as it was at the given time, from the project history. Only the
+     * project row is versioned, so the project's child lists are empty.
+     *
+     * @param projectId The project ID.
+     * @param asOf The time.
+     * @return The version of the project that was current at that time, or an empty Optional if
+     *         the project didn't exist then or its history has been compacted away.
+     */
+    @Override
+    public Optional<Project> fetchProjectAsOf(Integer projectId, Instant asOf) {
+        return Optional.ofNullable(transactions.query(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(FETCH_PROJECT_AS_OF_SQL)) {
+                Timestamp time = Timestamp.from(asOf);
+
+                int next = PROJECT_ID_BINDER.bind(stmt, projectId);
+                stmt.setTimestamp(next, time);
+                stmt.setTimestamp(next + 1, time);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? ProjectMapper.map(rs) : null;
+                }
             }
+        }));
+    }
+
+    /**
+     * READ - Fetch one page of steps for a project. Paging is keyed on the step order rather than
+     * an offset so that each page is a single range read on the (project_id, step_order) index, no
+     * matter how deep into the list the page is.
+     *
+     * @param projectId The project ID used to retrieve the steps.
+     * @param afterStepOrder Steps with a step order greater than this are returned. Use 0 for the
+     *        first page and the step order of the last step on the previous page after that.
+     * @param maxSteps The maximum number of steps to return.
+     * @return A list of steps in step order. The list is empty when there are no more steps.
+     */
+    @Override
+    public List<Step> fetchStepRange(Integer projectId, int afterStepOrder, int maxSteps) {
+        return transactions.query(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(FETCH_STEP_RANGE_SQL)) {
+                int next = PROJECT_ID_BINDER.bind(stmt, projectId);
+                stmt.setInt(next, afterStepOrder);
+                stmt.setInt(next + 1, maxSteps);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    List<Step> steps = new LinkedList<>();
+
+                    while (rs.next()) {
+                        steps.add(StepMapper.map(rs));
+                    }
 
+                    return steps;
+                }
+            }
+        });
+    }
+
+    /**
+     * READ - Open a cursor that streams the steps for a project in step order. The driver is asked
+     * to stream rows instead of buffering the whole result set, so memory use stays flat however
+     * many steps the project has. The caller must close the cursor.
+     *
+     * @param projectId The project ID used to retrieve the steps.
+     * @return An open cursor positioned before the first step.
+     */
+    @Override
+    public StepCursor openStepCursor(Integer projectId) {
+        Connection conn = DbConnection.getConnection(schema, ConnectionProfile.STREAMING);
+
+        try {
+            PreparedStatement stmt = conn.prepareStatement(FETCH_STEPS_SQL,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+            DbConnection.streamResults(stmt);
+            PROJECT_ID_BINDER.bind(stmt, projectId);
+
+            return new JdbcStepCursor(conn, stmt, stmt.executeQuery(), StepMapper::map);
         } catch (SQLException e) {
+            try {
+                conn.close();
+            } catch (SQLException closeException) {
+                e.addSuppressed(closeException);
+            }
+
             throw new DbException(e);
         }
     }
+
+    /**
+     * READ - Publish every project with all of its child collections, reading the four tables in
+     * one streaming pass as the subscriber asks for projects. See {@link ProjectPublisher}.
+     *
+     * @return A publisher; each subscription runs its own export.
+     */
+    @Override
+    public Flow.Publisher<Project> publishAllProjects() {
+        return new ProjectPublisher(List.of(schema));
+    }
+
+    /**
+     * Run the work in one unit of work on this DAO's schema. See {@link TransactionTemplate}.
+     */
+    @Override
+    public <T> T inTransaction(TransactionOptions options, Supplier<T> work) {
+        return transactions.execute(options, conn -> work.get());
+    }
+
+    private static TransactionOptions bulkWrite() {
+        TransactionOptions options = new TransactionOptions();
+        options.setProfile(ConnectionProfile.BULK);
+        return options;
+    }
+
+    /**
+     * Close the current history version of each project and append its row as it is now. Called
+     * after the project rows have been written, on the same connection and transaction.
+     */
+    static void recordHistory(Connection conn, Collection<Integer> projectIds, Timestamp now)
+            throws SQLException {
+        closeHistory(conn, projectIds, now);
+
+        try (PreparedStatement stmt = conn.prepareStatement(APPEND_HISTORY_SQL)) {
+            for (Integer projectId : projectIds) {
+                stmt.setTimestamp(1, now);
+                PROJECT_ID_BINDER.bind(stmt, 2, projectId);
+                stmt.addBatch();
+            }
+
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Close the current history version of each project, for a project that no longer exists.
+     */
+    static void closeHistory(Connection conn, Collection<Integer> projectIds, Timestamp now)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CLOSE_HISTORY_SQL)) {
+            for (Integer projectId : projectIds) {
+                stmt.setTimestamp(1, now);
+                PROJECT_ID_BINDER.bind(stmt, 2, projectId);
+                stmt.addBatch();
+            }
+
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * The time a change is recorded in the history, read from the database in the change's
+     * transaction so that application hosts with different clocks agree on the order of versions.
+     * It is read once per change so that the version the change closes ends exactly when the new
+     * one starts.
+     */
+    static Timestamp now(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CURRENT_TIME_SQL);
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    /**
+     * Create a list that runs the given query the first time it is used. The query gets its own
+     * connection when it runs (or joins the unit of work the thread is in then), so the list still
+     * works after the transaction that loaded the project has ended, and from any thread.
+     */
+    private <T> LazyList<T> lazy(ChildQuery<T> query) {
+        return new LazyList<>(() -> transactions.query(query::fetch));
+    }
+
+    /**
+     * A query that reads one child collection of a project on the supplied connection.
+     */
+    @FunctionalInterface
+    private interface ChildQuery<T> {
+        List<T> fetch(Connection conn) throws SQLException;
+    }
+
+    /**
+     * This method reads the category IDs for the given project from project_category and resolves
+     * them through the {@link CategoryDictionary}, so the category rows themselves are not read
+     * again for every project. The IDs are cached until project_category is written.
+     * 
+     * @param conn The caller-supplied connection.
+     * @param projectId The project ID used to retrieve the categories.
+     * @return A list of shared, immutable categories.
+     */
     private List<Category> fetchCategoriesForProject(Connection conn, Integer projectId) {
-        // @formatter:off
-        String sql = ""
-            + "SELECT c.* FROM " + CATEGORY_TABLE + " c "
-            + "JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (category_id) "
-            + "WHERE project_id = ?";
-        // @formatter:on
+        List<Integer> categoryIds = transactions.inReadWriteUnitOfWork()
+            ? queryCategoryIds(conn, projectId)
+            : QueryCache.getInstance().get(schema, FETCH_CATEGORIES_SQL, List.of(projectId),
+                PROJECT_CATEGORY_TABLES, Codecs.INTEGER_LIST, () -> queryCategoryIds(conn, projectId));
+
+        return CategoryDictionary.getInstance().resolve(categoryIds);
+    }
+
+    private List<Integer> queryCategoryIds(Connection conn, Integer projectId) {
+        String sql = FETCH_CATEGORIES_SQL;
 
         try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-          setParameter(stmt, 1, projectId, Integer.class);
+          PROJECT_ID_BINDER.bind(stmt, projectId);
 
           try(ResultSet rs = stmt.executeQuery()) {
-            List<Category> categories = new LinkedList<>();
+            List<Integer> categoryIds = new LinkedList<>();
 
             while(rs.next()) {
-              categories.add(extract(rs, Category.class));
+              categoryIds.add(rs.getInt(1));
             }
 
-            return categories;
+            return categoryIds;
           }
         }
         catch(SQLException e) {
@@ -225,16 +609,16 @@ public class ProjectDao extends DaoBase {
        * @throws SQLException Thrown if the database driver encounters an error.
        */
       private List<Step> fetchStepsForProject(Connection conn, Integer projectId) throws SQLException {
-        String sql = "SELECT * FROM " + STEP_TABLE + " WHERE project_id = ?";
+        String sql = FETCH_STEPS_SQL;
 
         try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-          setParameter(stmt, 1, projectId, Integer.class);
+          PROJECT_ID_BINDER.bind(stmt, projectId);
 
           try(ResultSet rs = stmt.executeQuery()) {
             List<Step> steps = new LinkedList<>();
 
             while(rs.next()) {
-              steps.add(extract(rs, Step.class));
+              steps.add(StepMapper.map(rs));
             }
 
             return steps;
@@ -254,16 +638,16 @@ public class ProjectDao extends DaoBase {
        */
       private List<Material> fetchMaterialsForProject(Connection conn, Integer projectId)
           throws SQLException {
-        String sql = "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id = ?";
+        String sql = FETCH_MATERIALS_SQL;
 
         try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-          setParameter(stmt, 1, projectId, Integer.class);
+          PROJECT_ID_BINDER.bind(stmt, projectId);
 
           try(ResultSet rs = stmt.executeQuery()) {
             List<Material> materials = new LinkedList<>();
 
             while(rs.next()) {
-              materials.add(extract(rs, Material.class));
+              materials.add(MaterialMapper.map(rs));
             }
 
             return materials;
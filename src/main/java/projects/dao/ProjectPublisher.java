@@ -0,0 +1,437 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+import projects.entity.Material;
+import projects.entity.MaterialMapper;
+import projects.entity.Project;
+import projects.entity.ProjectMapper;
+import projects.entity.Step;
+import projects.entity.StepMapper;
+import projects.exception.DbException;
+import projects.mapping.RowMapper;
+
+/**
+ * This publishes every project with its materials, steps and categories, for consumers such as
+ * indexers and exporters that would otherwise call fetchAllProjects and then fetchProjectById for
+ * each project.
+ *
+ * Four queries, one per table, are streamed in project ID order and merge-joined in a single pass:
+ * for each project row, the child cursors are advanced past any rows of earlier (soft-deleted)
+ * projects and then read while their project ID matches. Only the current project and the head
+ * row of each cursor are held in memory, and rows are read only as fast as the subscriber asks
+ * for projects.
+ *
+ * MySQL can stream only one result set per connection, so each cursor has its own connection and
+ * a subscription holds four connections from the streaming pool (see {@link ConnectionProfile})
+ * while it runs. The cursors don't share a
+ * snapshot; a project changed during the export may be published with children read slightly
+ * before or after the change. When several schemas are given (one per shard) they are exported one
+ * after the other, so projects are in ID order within each schema.
+ *
+ * The connections are opened on the first request and closed when the last project has been
+ * published, when the subscription is cancelled, or on an error. Cancelling also cancels the
+ * running queries, so the driver doesn't read the rest of the rows just to close them.
+ */
+public class ProjectPublisher implements Flow.Publisher<Project> {
+  // @formatter:off
+  static final String PROJECTS_SQL = ""
+      + "SELECT " + ProjectMapper.COLUMNS + " FROM project "
+      + "WHERE deleted_at IS NULL ORDER BY project_id";
+
+  static final String MATERIALS_SQL = ""
+      + "SELECT " + MaterialMapper.COLUMNS + " FROM material ORDER BY project_id, material_id";
+
+  static final String STEPS_SQL = ""
+      + "SELECT " + StepMapper.COLUMNS + " FROM step ORDER BY project_id, step_order";
+
+  static final String CATEGORIES_SQL = ""
+      + "SELECT project_id, category_id FROM project_category ORDER BY project_id, category_id";
+  // @formatter:on
+
+  private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "project-export");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final List<String> schemas;
+  private final Executor executor;
+
+  /**
+   * Create a publisher that reads the cursors on a shared pool of daemon threads.
+   *
+   * @param schemas The schemas to export, in order.
+   */
+  public ProjectPublisher(List<String> schemas) {
+    this(schemas, DEFAULT_EXECUTOR);
+  }
+
+  /**
+   * @param schemas The schemas to export, in order.
+   * @param executor Runs the reads and the calls to the subscriber. Calls for one subscription
+   *        never overlap.
+   */
+  public ProjectPublisher(List<String> schemas, Executor executor) {
+    this.schemas = List.copyOf(schemas);
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super Project> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber");
+    subscriber.onSubscribe(new Export(subscriber));
+  }
+
+  /**
+   * One subscription. request and cancel may be called from any thread; they only record the
+   * signal and make sure a drain is scheduled. The drain is the only code that touches the cursors
+   * or calls the subscriber, and the work-in-progress counter ensures only one runs at a time.
+   */
+  private class Export implements Flow.Subscription {
+    private final Flow.Subscriber<? super Project> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger workInProgress = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException badRequest;
+
+    /* Only used by the drain. */
+    private int nextSchema;
+    private AggregateJoin join;
+    private boolean finished;
+
+    Export(Flow.Subscriber<? super Project> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if(n <= 0) {
+        badRequest = new IllegalArgumentException("The number of projects requested must be positive: " + n);
+      }
+      else {
+        demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+      }
+
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if(workInProgress.getAndIncrement() == 0) {
+        executor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      int missed = 1;
+
+      do {
+        while(!finished) {
+          if(cancelled) {
+            finish(null);
+          }
+          else if(Objects.nonNull(badRequest)) {
+            finish(badRequest);
+            subscriber.onError(badRequest);
+          }
+          else if(demand.get() > 0) {
+            emitNext();
+            continue;
+          }
+
+          break;
+        }
+
+        missed = workInProgress.addAndGet(-missed);
+      } while(missed != 0);
+    }
+
+    private void emitNext() {
+      Project project;
+
+      try {
+        project = nextProject();
+      }
+      catch(RuntimeException e) {
+        finish(e);
+        subscriber.onError(e);
+        return;
+      }
+
+      if(Objects.isNull(project)) {
+        /* Every cursor was closed as its schema ran out, so there is nothing left to fail. */
+        finish(null);
+        subscriber.onComplete();
+        return;
+      }
+
+      demand.decrementAndGet();
+
+      try {
+        subscriber.onNext(project);
+      }
+      catch(RuntimeException e) {
+        /* A subscriber that throws has broken the contract; stop, as SubmissionPublisher does. */
+        finish(e);
+        subscriber.onError(e);
+      }
+    }
+
+    /**
+     * @return The next project, moving on to the next schema when one is exhausted, or null when
+     *         every schema has been read.
+     */
+    private Project nextProject() {
+      while(true) {
+        if(Objects.isNull(join)) {
+          if(nextSchema == schemas.size()) {
+            return null;
+          }
+
+          join = new AggregateJoin(schemas.get(nextSchema++));
+        }
+
+        Project project = join.next();
+
+        if(Objects.nonNull(project)) {
+          return project;
+        }
+
+        AggregateJoin exhausted = join;
+        join = null;
+        exhausted.close();
+      }
+    }
+
+    /**
+     * Close the open cursors. A failure to close them is added to the error being sent to the
+     * subscriber. After a cancel there is no one to tell, so it is dropped.
+     *
+     * @param error The error the subscriber is about to get, or null.
+     */
+    private void finish(Throwable error) {
+      finished = true;
+
+      if(Objects.nonNull(join)) {
+        try {
+          join.close();
+        }
+        catch(DbException e) {
+          if(Objects.nonNull(error)) {
+            error.addSuppressed(e);
+          }
+        }
+
+        join = null;
+      }
+    }
+  }
+
+  /**
+   * The four cursors for one schema.
+   */
+  private static class AggregateJoin implements AutoCloseable {
+    private final List<RowCursor<?>> cursors = new ArrayList<>();
+    private final RowCursor<Project> projects;
+    private final RowCursor<Material> materials;
+    private final RowCursor<Step> steps;
+    private final RowCursor<int[]> categories;
+
+    AggregateJoin(String schema) {
+      try {
+        projects = open(schema, PROJECTS_SQL, ProjectMapper::map, Project::getProjectId);
+        materials = open(schema, MATERIALS_SQL, MaterialMapper::map, Material::getProjectId);
+        steps = open(schema, STEPS_SQL, StepMapper::map, Step::getProjectId);
+        categories = open(schema, CATEGORIES_SQL, rs -> new int[] {rs.getInt(1), rs.getInt(2)}, row -> row[0]);
+      }
+      catch(RuntimeException e) {
+        close();
+        throw e;
+      }
+    }
+
+    /**
+     * @return The next project with its children, or null if there are no more projects.
+     */
+    Project next() {
+      Project project = projects.take();
+
+      if(Objects.isNull(project)) {
+        return null;
+      }
+
+      int projectId = project.getProjectId();
+      project.getMaterials().addAll(materials.takeAll(projectId));
+      project.getSteps().addAll(steps.takeAll(projectId));
+
+      List<Integer> categoryIds = new ArrayList<>();
+
+      for(int[] row : categories.takeAll(projectId)) {
+        categoryIds.add(row[1]);
+      }
+
+      project.getCategories().addAll(CategoryDictionary.getInstance().resolve(categoryIds));
+      return project;
+    }
+
+    @Override
+    public void close() {
+      DbException failure = null;
+
+      for(RowCursor<?> cursor : cursors) {
+        try {
+          cursor.close();
+        }
+        catch(DbException e) {
+          failure = Objects.isNull(failure) ? e : failure;
+        }
+      }
+
+      if(Objects.nonNull(failure)) {
+        throw failure;
+      }
+    }
+
+    private <T> RowCursor<T> open(String schema, String sql, RowMapper<T> mapper, ToIntFunction<T> key) {
+      RowCursor<T> cursor = new RowCursor<>(schema, sql, mapper, key);
+      cursors.add(cursor);
+      return cursor;
+    }
+  }
+
+  /**
+   * A streaming query on its own connection, with its current row read ahead.
+   */
+  private static class RowCursor<T> implements AutoCloseable {
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final RowMapper<T> mapper;
+    private final ToIntFunction<T> key;
+    private T head;
+    private boolean closed;
+
+    RowCursor(String schema, String sql, RowMapper<T> mapper, ToIntFunction<T> key) {
+      this.conn = DbConnection.getConnection(schema, ConnectionProfile.STREAMING);
+      this.mapper = mapper;
+      this.key = key;
+
+      PreparedStatement opened = null;
+      ResultSet results = null;
+
+      try {
+        opened = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        DbConnection.streamResults(opened);
+        results = opened.executeQuery();
+        head = results.next() ? mapper.map(results) : null;
+      }
+      catch(SQLException e) {
+        closeAfterFailure(results, e);
+        closeAfterFailure(opened, e);
+        closeAfterFailure(conn, e);
+        throw new DbException(e);
+      }
+
+      this.stmt = opened;
+      this.rs = results;
+    }
+
+    /**
+     * Close a resource that may not have been opened, adding any failure to the one being thrown.
+     */
+    private static void closeAfterFailure(AutoCloseable resource, SQLException failure) {
+      if(Objects.isNull(resource)) {
+        return;
+      }
+
+      try {
+        resource.close();
+      }
+      catch(Exception e) {
+        failure.addSuppressed(e);
+      }
+    }
+
+    /**
+     * @return The current row, or null if the cursor is exhausted.
+     */
+    T take() {
+      T row = head;
+
+      if(Objects.nonNull(row)) {
+        advance();
+      }
+
+      return row;
+    }
+
+    /**
+     * Skip rows that belong to earlier projects and return the rows for the given project.
+     */
+    List<T> takeAll(int projectId) {
+      List<T> rows = new ArrayList<>();
+
+      while(Objects.nonNull(head) && key.applyAsInt(head) <= projectId) {
+        T row = take();
+
+        if(key.applyAsInt(row) == projectId) {
+          rows.add(row);
+        }
+      }
+
+      return rows;
+    }
+
+    private void advance() {
+      try {
+        head = rs.next() ? mapper.map(rs) : null;
+      }
+      catch(SQLException e) {
+        head = null;
+        throw new DbException(e);
+      }
+    }
+
+    /**
+     * A query that still has rows is cancelled first. Otherwise closing a streaming MySQL result
+     * set reads every remaining row.
+     */
+    @Override
+    public void close() {
+      if(closed) {
+        return;
+      }
+
+      closed = true;
+
+      try(conn; stmt; rs) {
+        if(Objects.nonNull(head)) {
+          head = null;
+          stmt.cancel();
+        }
+      }
+      catch(SQLException e) {
+        throw new DbException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import projects.dao.cache.TableVersions;
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/**
+ * This deletes large numbers of projects without holding long locks. Rather than delete every
+ * matching project in one statement (or one project per transaction), the purger walks the
+ * matching project IDs in ascending order and deletes them in bounded chunks. Each chunk is its
+ * own transaction, and the purger pauses between chunks so that other sessions and replicas can
+ * keep up.
+ *
+ * Child rows are deleted explicitly, table by table, before the project rows. This keeps each
+ * statement a simple range of index deletes instead of relying on ON DELETE CASCADE to find them.
+ *
+ * In soft-delete mode projects are only marked with a deleted_at time, which is a much cheaper
+ * single-column update. The DAO's reads skip marked projects, and
+ * {@link #compact(Duration, PurgeOptions)} removes them when called.
+ */
+public class ProjectPurger extends DaoBase {
+  private static final String MATERIAL_TABLE = "material";
+  private static final String PROJECT_TABLE = "project";
+  private static final String PROJECT_CATEGORY_TABLE = "project_category";
+  private static final String STEP_TABLE = "step";
+
+  private final String schema;
+
+  /**
+   * Create a purger for the default schema.
+   */
+  public ProjectPurger() {
+    this(DbConnection.getSchema());
+  }
+
+  /**
+   * Create a purger for the given schema.
+   *
+   * @param schema The schema that holds the project tables.
+   */
+  public ProjectPurger(String schema) {
+    this.schema = schema;
+  }
+
+  /**
+   * Purge all projects that match the criteria. For a list of IDs, the total passed to the
+   * listener is the number of IDs, which counts any that no longer exist.
+   *
+   * @param criteria Selects the projects to purge.
+   * @param options The chunk size, pause and delete mode.
+   * @param listener This is told about progress after each chunk. It may be null.
+   * @return The number of projects purged.
+   */
+  public long purge(PurgeCriteria criteria, PurgeOptions options, PurgeListener listener) {
+    int[] ids = criteria.projectIds();
+    int chunkSize = options.getChunkSize();
+
+    try(Connection conn = DbConnection.getConnection(schema, ConnectionProfile.BULK)) {
+      long total = Objects.isNull(ids) ? countMatches(conn, criteria, options) : ids.length;
+      long purged = 0;
+      int chunks = 0;
+      int lastProjectId = 0;
+      int nextSlice = 0;
+
+      while(true) {
+        List<Integer> projectIds;
+        boolean done;
+
+        if(Objects.isNull(ids)) {
+          projectIds = fetchNextChunk(conn, criteria, options, lastProjectId);
+          done = projectIds.size() < chunkSize;
+        }
+        else {
+          /* Only the IDs in the slice that still match are purged. */
+          int end = Math.min(nextSlice + chunkSize, ids.length);
+          projectIds = fetchNextChunk(conn, PurgeCriteria.slice(ids, nextSlice, end), options, 0);
+          nextSlice = end;
+          done = nextSlice >= ids.length;
+        }
+
+        if(!projectIds.isEmpty()) {
+          purgeChunk(conn, projectIds, options);
+
+          purged += projectIds.size();
+          chunks++;
+          lastProjectId = projectIds.get(projectIds.size() - 1);
+
+          if(Objects.nonNull(listener)) {
+            listener.progress(purged, total, chunks);
+          }
+        }
+
+        if(done || (!projectIds.isEmpty() && !pause(options.getPauseBetweenChunks()))) {
+          break;
+        }
+      }
+
+      if(purged > 0) {
+        CategoryDictionary.getInstance().invalidateProjects();
+      }
+
+      return purged;
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Permanently remove projects that were soft-deleted longer ago than the grace period.
+   *
+   * @param gracePeriod How long soft-deleted projects are kept.
+   * @param options The chunk size and pause. The soft-delete setting is ignored.
+   * @return The number of projects removed.
+   */
+  public long compact(Duration gracePeriod, PurgeOptions options) {
+    PurgeOptions hardDelete = new PurgeOptions();
+    hardDelete.setChunkSize(options.getChunkSize());
+    hardDelete.setPauseBetweenChunks(options.getPauseBetweenChunks());
+
+    PurgeCriteria criteria = PurgeCriteria.softDeletedBefore(Instant.now().minus(gracePeriod));
+    return purge(criteria, hardDelete, null);
+  }
+
+  private long countMatches(Connection conn, PurgeCriteria criteria, PurgeOptions options)
+      throws SQLException {
+    String sql = "SELECT COUNT(*) FROM " + PROJECT_TABLE + " WHERE " + where(criteria, options);
+
+    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+      criteria.bind(stmt, 1);
+
+      try(ResultSet rs = stmt.executeQuery()) {
+        return rs.next() ? rs.getLong(1) : 0;
+      }
+    }
+  }
+
+  /**
+   * Read the next chunk of matching project IDs. Starting after the last ID of the previous chunk
+   * (rather than using OFFSET) means each chunk is found with a primary key range read.
+   */
+  private List<Integer> fetchNextChunk(Connection conn, PurgeCriteria criteria,
+      PurgeOptions options, int lastProjectId) throws SQLException {
+    // @formatter:off
+    String sql = ""
+        + "SELECT project_id FROM " + PROJECT_TABLE + " "
+        + "WHERE project_id > ? AND " + where(criteria, options) + " "
+        + "ORDER BY project_id LIMIT ?";
+    // @formatter:on
+
+    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+      setParameter(stmt, 1, lastProjectId, Integer.class);
+      int next = criteria.bind(stmt, 2);
+      setParameter(stmt, next, options.getChunkSize(), Integer.class);
+
+      try(ResultSet rs = stmt.executeQuery()) {
+        List<Integer> projectIds = new LinkedList<>();
+
+        while(rs.next()) {
+          projectIds.add(rs.getInt(1));
+        }
+
+        return projectIds;
+      }
+    }
+  }
+
+  private void purgeChunk(Connection conn, List<Integer> projectIds, PurgeOptions options)
+      throws SQLException {
+    /* The IDs came from the database as integers, so they can safely be written into the SQL. */
+    String ids = projectIds.stream().map(String::valueOf).collect(Collectors.joining(", "));
+    String inIds = " WHERE project_id IN (" + ids + ")";
+
+    startTransaction(conn);
+
+    try(Statement stmt = conn.createStatement()) {
+      if(options.isSoftDelete()) {
+        stmt.executeUpdate("UPDATE " + PROJECT_TABLE + " SET deleted_at = CURRENT_TIMESTAMP" + inIds);
+      }
+      else {
+        stmt.executeUpdate("DELETE FROM " + MATERIAL_TABLE + inIds);
+        stmt.executeUpdate("DELETE FROM " + STEP_TABLE + inIds);
+        stmt.executeUpdate("DELETE FROM " + PROJECT_CATEGORY_TABLE + inIds);
+        stmt.executeUpdate("DELETE FROM " + PROJECT_TABLE + inIds);
+      }
+
+      /* The history keeps the purged versions; they just stop being current. */
+      ProjectDao.closeHistory(conn, projectIds, ProjectDao.now(conn));
+      commitTransaction(conn);
+    }
+    catch(Exception e) {
+      rollbackTransaction(conn);
+      throw new DbException(e);
+    }
+
+    if(options.isSoftDelete()) {
+      TableVersions.bump(schema, PROJECT_TABLE);
+    }
+    else {
+      TableVersions.bump(schema, PROJECT_TABLE, MATERIAL_TABLE, STEP_TABLE, PROJECT_CATEGORY_TABLE);
+    }
+  }
+
+  /**
+   * A soft delete only needs to look at projects that haven't already been marked.
+   */
+  private String where(PurgeCriteria criteria, PurgeOptions options) {
+    String condition = "(" + criteria.condition() + ")";
+    return options.isSoftDelete() ? condition + " AND deleted_at IS NULL" : condition;
+  }
+
+  /**
+   * @return false if the thread was interrupted, which stops the purge after the current chunk.
+   */
+  private boolean pause(Duration duration) {
+    if(duration.isZero() || duration.isNegative()) {
+      return true;
+    }
+
+    try {
+      Thread.sleep(duration.toMillis());
+      return true;
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
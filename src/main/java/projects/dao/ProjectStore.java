@@ -0,0 +1,116 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * This is the storage interface behind the {@link projects.service.ProjectService}. The
+ * {@link ProjectDao} (and the resilient and sharded DAOs built on it) store projects in MySQL;
+ * {@link projects.dao.memory.InMemoryProjectStore} keeps them in memory.
+ *
+ * Every implementation follows the contract the DAO has always had:
+ *
+ * <ul>
+ * <li>A project and its materials, steps and categories are one aggregate. Each operation on a
+ * single aggregate is atomic, and a reader sees either all of a change or none of it.</li>
+ * <li>{@link #insertProject} and {@link #modifyProjectDetails} write the project row only; the
+ * child collections of the argument are ignored.</li>
+ * <li>{@link #fetchAllProjects} returns project rows without children, ordered by project name
+ * ignoring case and accents.</li>
+ * <li>Every change is recorded in the project history read by {@link #fetchProjectAsOf}.</li>
+ * <li>Returned projects belong to the caller; changing them does not change the store.</li>
+ * </ul>
+ *
+ * The bench suite ProjectStoreConformance runs the same checks against each implementation.
+ */
+public interface ProjectStore {
+  /**
+   * Insert a new project row. If the project already has an ID it is used; otherwise one is
+   * assigned and set on the project.
+   *
+   * @return The project that was passed in.
+   */
+  Project insertProject(Project project);
+
+  /**
+   * @return Every project row, without children, ordered by project name.
+   */
+  List<Project> fetchAllProjects();
+
+  /**
+   * Fetch a project with all of its child collections.
+   */
+  default Optional<Project> fetchProjectById(Integer projectId) {
+    return fetchProjectById(projectId, FetchProfile.FULL);
+  }
+
+  /**
+   * Fetch a project. The fetch profile names the child collections that must be read now; a
+   * store may load the others lazily or eagerly.
+   *
+   * @return The project, or an empty Optional if there is no project with the ID.
+   */
+  Optional<Project> fetchProjectById(Integer projectId, FetchProfile profile);
+
+  /**
+   * @return The project row as it was at the given time, without children, or an empty Optional
+   *         if the project didn't exist then or its history has been compacted away.
+   */
+  Optional<Project> fetchProjectAsOf(Integer projectId, Instant asOf);
+
+  /**
+   * Replace the name, hours, difficulty and notes of a project.
+   *
+   * @return false if there is no project with the ID.
+   */
+  boolean modifyProjectDetails(Project project);
+
+  /**
+   * Set the actual hours of several projects in one change. Project IDs that don't exist are
+   * skipped.
+   *
+   * @return The number of projects that were updated.
+   */
+  int updateActualHours(Map<Integer, BigDecimal> actualHours);
+
+  /**
+   * Delete a project and its children.
+   *
+   * @return false if there is no project with the ID.
+   */
+  boolean deleteProject(Integer projectId);
+
+  /**
+   * @return Up to maxSteps steps with a step order greater than afterStepOrder, in step order.
+   */
+  List<Step> fetchStepRange(Integer projectId, int afterStepOrder, int maxSteps);
+
+  /**
+   * @return An open cursor over the steps of a project in step order. The caller must close it.
+   */
+  StepCursor openStepCursor(Integer projectId);
+
+  /**
+   * @return A publisher of every project with all of its child collections.
+   */
+  Flow.Publisher<Project> publishAllProjects();
+
+  /**
+   * Run several operations as one unit of work.
+   *
+   * @param options Read-only and isolation settings.
+   * @param work The operations.
+   * @return The result of the work.
+   * @throws UnsupportedOperationException If the store only makes single-aggregate operations
+   *         atomic.
+   */
+  <T> T inTransaction(TransactionOptions options, Supplier<T> work);
+}
@@ -0,0 +1,144 @@
+package projects.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This selects the projects removed by a bulk purge. Each criteria object is turned into a
+ * condition on the project table that the {@link ProjectPurger} adds to its WHERE clause. A list
+ * of IDs is the exception: the purger sorts it and works through it in chunk-sized slices, so the
+ * whole list never has to be sent to the database at once.
+ */
+public abstract class PurgeCriteria {
+
+  /**
+   * @param projectIds The IDs of the projects to purge.
+   * @return Criteria that match the given project IDs.
+   */
+  public static PurgeCriteria byIds(Collection<Integer> projectIds) {
+    return new IdList(projectIds.stream().mapToInt(Integer::intValue).sorted().distinct().toArray());
+  }
+
+  /**
+   * @param difficulty The difficulty of the projects to purge.
+   * @return Criteria that match projects with the given difficulty.
+   */
+  public static PurgeCriteria byDifficulty(int difficulty) {
+    return new Condition("difficulty = ?", List.of(difficulty));
+  }
+
+  /**
+   * @param categoryId The category of the projects to purge.
+   * @return Criteria that match projects in the given category.
+   */
+  public static PurgeCriteria byCategory(int categoryId) {
+    return new Condition(
+        "project_id IN (SELECT project_id FROM project_category WHERE category_id = ?)",
+        List.of(categoryId));
+  }
+
+  /**
+   * @param cutoff Projects soft-deleted before this time are matched.
+   * @return Criteria that match projects that were soft-deleted before the cutoff.
+   */
+  public static PurgeCriteria softDeletedBefore(Instant cutoff) {
+    return new Condition("deleted_at < ?", List.of(Timestamp.from(cutoff)));
+  }
+
+  /**
+   * @return The SQL condition on the project table.
+   */
+  abstract String condition();
+
+  /**
+   * Bind the condition's parameters to the statement.
+   *
+   * @param stmt The statement.
+   * @param firstIndex The index of the first parameter in the condition.
+   * @return The index of the next parameter after the condition.
+   */
+  abstract int bind(PreparedStatement stmt, int firstIndex) throws SQLException;
+
+  /**
+   * @return The project IDs in ascending order if these criteria are a list of IDs, or null.
+   */
+  int[] projectIds() {
+    return null;
+  }
+
+  /**
+   * @param projectIds Project IDs.
+   * @param from The index of the first ID in the slice.
+   * @param to The index after the last ID in the slice.
+   * @return Criteria that match the IDs in the slice, bound as parameters.
+   */
+  static PurgeCriteria slice(int[] projectIds, int from, int to) {
+    if(from >= to) {
+      return new Condition("FALSE", List.of());
+    }
+
+    List<Object> parameters = new ArrayList<>(to - from);
+
+    for(int index = from; index < to; index++) {
+      parameters.add(projectIds[index]);
+    }
+
+    String placeholders = String.join(", ", Collections.nCopies(parameters.size(), "?"));
+    return new Condition("project_id IN (" + placeholders + ")", parameters);
+  }
+
+  private static class IdList extends PurgeCriteria {
+    private final int[] projectIds;
+
+    IdList(int[] projectIds) {
+      this.projectIds = projectIds;
+    }
+
+    @Override
+    int[] projectIds() {
+      return projectIds;
+    }
+
+    @Override
+    String condition() {
+      return slice(projectIds, 0, projectIds.length).condition();
+    }
+
+    @Override
+    int bind(PreparedStatement stmt, int firstIndex) throws SQLException {
+      return slice(projectIds, 0, projectIds.length).bind(stmt, firstIndex);
+    }
+  }
+
+  private static class Condition extends PurgeCriteria {
+    private final String condition;
+    private final List<Object> parameters;
+
+    Condition(String condition, List<Object> parameters) {
+      this.condition = condition;
+      this.parameters = parameters;
+    }
+
+    @Override
+    String condition() {
+      return condition;
+    }
+
+    @Override
+    int bind(PreparedStatement stmt, int firstIndex) throws SQLException {
+      int index = firstIndex;
+
+      for(Object parameter : parameters) {
+        stmt.setObject(index++, parameter);
+      }
+
+      return index;
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package projects.dao;
+
+/**
+ * This is told about the progress of a bulk purge after each chunk is committed.
+ */
+@FunctionalInterface
+public interface PurgeListener {
+  /**
+   * @param purged The number of projects purged so far.
+   * @param total The number of projects that matched the criteria when the purge started.
+   * @param chunks The number of chunks committed so far.
+   */
+  void progress(long purged, long total, int chunks);
+}
@@ -0,0 +1,45 @@
+package projects.dao;
+
+import java.time.Duration;
+
+/**
+ * This holds the settings for a bulk purge. The defaults delete in chunks of 500 projects with a
+ * 100 millisecond pause between chunks, which keeps each transaction short and gives replicas
+ * time to catch up.
+ */
+public class PurgeOptions {
+  private int chunkSize = 500;
+  private Duration pauseBetweenChunks = Duration.ofMillis(100);
+  private boolean softDelete;
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public void setChunkSize(int chunkSize) {
+    if(chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be at least 1.");
+    }
+
+    this.chunkSize = chunkSize;
+  }
+
+  public Duration getPauseBetweenChunks() {
+    return pauseBetweenChunks;
+  }
+
+  public void setPauseBetweenChunks(Duration pauseBetweenChunks) {
+    this.pauseBetweenChunks = pauseBetweenChunks;
+  }
+
+  /**
+   * @return true if projects are only marked as deleted and removed later by compaction.
+   */
+  public boolean isSoftDelete() {
+    return softDelete;
+  }
+
+  public void setSoftDelete(boolean softDelete) {
+    this.softDelete = softDelete;
+  }
+}
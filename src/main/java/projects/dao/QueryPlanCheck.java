@@ -0,0 +1,136 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import projects.exception.DbException;
+
+/**
+ * This class runs EXPLAIN on every query in {@link ProjectDao} and fails if any of them has
+ * regressed to a full table scan. It is run against a local database after migrating the schema:
+ *
+ * <pre>
+ * java -cp target/classes:mysql-connector-java.jar projects.dao.QueryPlanCheck
+ * </pre>
+ *
+ * The process exits with status 1 if a query plan uses a full scan. Note that MySQL may choose a
+ * full scan for a table that only has a handful of rows no matter what indexes exist, so the
+ * check is meaningful only against a database that has been loaded with a realistic amount of
+ * data.
+ */
+public class QueryPlanCheck {
+  /* EXPLAIN reports a full table scan with an access type of ALL. */
+  private static final String FULL_SCAN = "ALL";
+
+  /*
+   * Queries that read the whole table by design. These are reported but do not fail the check.
+   */
+  private static final Set<String> FULL_LISTINGS = Set.of("fetchAllProjects");
+
+  /*
+   * Queries whose ORDER BY must be satisfied by the index rather than by sorting the rows.
+   */
+  private static final Set<String> ORDERED_BY_INDEX = Set.of("fetchStepsForProject", "fetchStepRange", "fetchProjectAsOf");
+  private static final String FILESORT = "Using filesort";
+
+  public static void main(String[] args) {
+    new SchemaMigrator().migrate();
+
+    boolean passed = new QueryPlanCheck().check();
+    System.exit(passed ? 0 : 1);
+  }
+
+  /**
+   * Explain each DAO query and print its plan.
+   *
+   * @return true if no query (other than a full listing) uses a full table scan.
+   */
+  public boolean check() {
+    boolean passed = true;
+
+    try(Connection conn = DbConnection.getConnection()) {
+      for(Map.Entry<String, String> entry : daoQueries().entrySet()) {
+        String name = entry.getKey();
+        boolean fullScan = explain(conn, name, entry.getValue());
+
+        if(fullScan && !FULL_LISTINGS.contains(name)) {
+          System.out.println("FAIL: " + name + " uses a full table scan.");
+          passed = false;
+        }
+      }
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+
+    return passed;
+  }
+
+  /**
+   * The plain INSERTs are left out because they have no access path to check, and so is the
+   * database time read, which reads no table. Appending history is checked for the SELECT that
+   * copies the project row.
+   */
+  private Map<String, String> daoQueries() {
+    Map<String, String> queries = new LinkedHashMap<>();
+
+    queries.put("fetchAllProjects", ProjectDao.FETCH_ALL_PROJECTS_SQL);
+    queries.put("fetchProjectById", ProjectDao.FETCH_PROJECT_BY_ID_SQL);
+    queries.put("modifyProjectDetails", ProjectDao.MODIFY_PROJECT_SQL);
+    queries.put("updateActualHours", ProjectDao.UPDATE_ACTUAL_HOURS_SQL);
+    queries.put("deleteProject", ProjectDao.DELETE_PROJECT_SQL);
+    queries.put("fetchCategoriesForProject", ProjectDao.FETCH_CATEGORIES_SQL);
+    queries.put("fetchStepsForProject", ProjectDao.FETCH_STEPS_SQL);
+    queries.put("fetchStepRange", ProjectDao.FETCH_STEP_RANGE_SQL);
+    queries.put("fetchMaterialsForProject", ProjectDao.FETCH_MATERIALS_SQL);
+    queries.put("closeHistory", ProjectDao.CLOSE_HISTORY_SQL);
+    queries.put("appendHistory", ProjectDao.APPEND_HISTORY_SQL);
+    queries.put("fetchProjectAsOf", ProjectDao.FETCH_PROJECT_AS_OF_SQL);
+
+    return queries;
+  }
+
+  /**
+   * EXPLAIN a single query. Every parameter is bound to 1; the access path chosen for these
+   * queries does not depend on the value.
+   *
+   * @return true if any table in the plan is accessed with a full scan, or if a query that must
+   *         be read in index order needs a filesort.
+   */
+  private boolean explain(Connection conn, String name, String sql) throws SQLException {
+    boolean fullScan = false;
+
+    try(PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+      int params = stmt.getParameterMetaData().getParameterCount();
+
+      for(int index = 1; index <= params; index++) {
+        stmt.setInt(index, 1);
+      }
+
+      System.out.println("\n" + name + ": " + sql);
+
+      try(ResultSet rs = stmt.executeQuery()) {
+        while(rs.next()) {
+          String type = rs.getString("type");
+
+          System.out.println("   table=" + rs.getString("table") + ", type=" + type + ", key="
+              + rs.getString("key") + ", extra=" + rs.getString("Extra"));
+
+          fullScan |= FULL_SCAN.equals(type);
+
+          if(ORDERED_BY_INDEX.contains(name) && String.valueOf(rs.getString("Extra")).contains(FILESORT)) {
+            System.out.println("FAIL: " + name + " sorts rows instead of reading them in index order.");
+            fullScan = true;
+          }
+        }
+      }
+    }
+
+    return fullScan;
+  }
+}
@@ -0,0 +1,244 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/**
+ * This class applies the versioned schema migrations found in the db/migration resource folder.
+ * The projects-schema.sql script creates the base tables; the migrations then apply incremental
+ * changes (mostly indexes) on top of it. Each migration that has been applied is recorded in the
+ * schema_version table so that it only runs once.
+ *
+ * Migrations are also idempotent at the statement level: if a statement fails because the index or
+ * column it creates already exists, the statement is treated as applied. This makes it safe to run
+ * the migrator against a schema that was partially migrated by hand.
+ */
+public class SchemaMigrator extends DaoBase {
+  private static final String MIGRATION_FOLDER = "db/migration/";
+  private static final String SCHEMA_VERSION_TABLE = "schema_version";
+  private static final String MIGRATION_LOCK = "projects_schema_migration.";
+  private static final int LOCK_TIMEOUT_SECONDS = 30;
+
+  /* MySQL error codes that mean "this change is already there". */
+  private static final int ER_DUP_FIELDNAME = 1060;
+  private static final int ER_DUP_KEYNAME = 1061;
+  private static final int ER_CANT_DROP_FIELD_OR_KEY = 1091;
+
+  /*
+   * The migrations in the order that they are applied. A new migration is added by creating the
+   * resource file and adding its name to the end of this list.
+   */
+  // @formatter:off
+  private static final List<String> MIGRATIONS = List.of(
+      "V1__project_name_index.sql",
+      "V2__step_project_order_index.sql",
+      "V3__project_category_reverse_index.sql",
+      "V4__project_soft_delete.sql",
+      "V5__project_id_sequence.sql",
+      "V6__project_history.sql"
+  );
+  // @formatter:on
+
+  private final String schema;
+
+  /**
+   * Create a migrator for the default schema.
+   */
+  public SchemaMigrator() {
+    this(DbConnection.getSchema());
+  }
+
+  /**
+   * Create a migrator for the given schema. Each shard schema is migrated separately.
+   *
+   * @param schema The schema to migrate.
+   */
+  public SchemaMigrator(String schema) {
+    this.schema = schema;
+  }
+
+  /**
+   * Apply all migrations that have not yet been applied to the schema.
+   *
+   * @return The number of migrations that were applied.
+   */
+  public int migrate() {
+    try(Connection conn = DbConnection.getConnection(schema)) {
+      acquireLock(conn);
+
+      try {
+        createVersionTable(conn);
+        int currentVersion = fetchCurrentVersion(conn);
+        int applied = 0;
+
+        for(String migration : MIGRATIONS) {
+          int version = versionOf(migration);
+
+          if(version > currentVersion) {
+            applyMigration(conn, version, migration);
+            applied++;
+          }
+        }
+
+        return applied;
+      }
+      finally {
+        releaseLock(conn);
+      }
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Serialize concurrent launches of the application so that two processes don't apply the same
+   * migration at the same time. MySQL named locks are released when the connection closes, so a
+   * crashed process can't leave the lock held.
+   */
+  private void acquireLock(Connection conn) throws SQLException {
+    try(PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+      setParameter(stmt, 1, MIGRATION_LOCK + schema, String.class);
+      setParameter(stmt, 2, LOCK_TIMEOUT_SECONDS, Integer.class);
+
+      try(ResultSet rs = stmt.executeQuery()) {
+        if(!rs.next() || rs.getInt(1) != 1) {
+          throw new DbException("Timed out waiting for the schema migration lock.");
+        }
+      }
+    }
+  }
+
+  private void releaseLock(Connection conn) throws SQLException {
+    try(PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+      setParameter(stmt, 1, MIGRATION_LOCK + schema, String.class);
+      stmt.executeQuery().close();
+    }
+  }
+
+  private void createVersionTable(Connection conn) throws SQLException {
+    // @formatter:off
+    String sql = ""
+        + "CREATE TABLE IF NOT EXISTS " + SCHEMA_VERSION_TABLE + " ("
+        + "version INT NOT NULL, "
+        + "description VARCHAR(128) NOT NULL, "
+        + "installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+        + "PRIMARY KEY (version)"
+        + ")";
+    // @formatter:on
+
+    try(Statement stmt = conn.createStatement()) {
+      stmt.execute(sql);
+    }
+  }
+
+  private int fetchCurrentVersion(Connection conn) throws SQLException {
+    String sql = "SELECT COALESCE(MAX(version), 0) FROM " + SCHEMA_VERSION_TABLE;
+
+    try(Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+      return rs.next() ? rs.getInt(1) : 0;
+    }
+  }
+
+  /**
+   * Run each statement in the migration file and then record the version. MySQL commits DDL
+   * implicitly, so the statements can't be rolled back as a group. That is why each statement has
+   * to be safe to run again.
+   */
+  private void applyMigration(Connection conn, int version, String migration) throws SQLException {
+    System.err.println("Applying schema migration " + migration);
+
+    try(Statement stmt = conn.createStatement()) {
+      for(String sql : readStatements(migration)) {
+        try {
+          stmt.execute(sql);
+        }
+        catch(SQLException e) {
+          if(!isAlreadyApplied(e)) {
+            throw new DbException("Migration " + migration + " failed on: " + sql, e);
+          }
+        }
+      }
+    }
+
+    String sql = "INSERT INTO " + SCHEMA_VERSION_TABLE + " (version, description) VALUES (?, ?)";
+
+    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+      setParameter(stmt, 1, version, Integer.class);
+      setParameter(stmt, 2, descriptionOf(migration), String.class);
+      stmt.executeUpdate();
+    }
+  }
+
+  private boolean isAlreadyApplied(SQLException e) {
+    int code = e.getErrorCode();
+    return code == ER_DUP_FIELDNAME || code == ER_DUP_KEYNAME || code == ER_CANT_DROP_FIELD_OR_KEY;
+  }
+
+  /**
+   * Read a migration resource and split it into statements. Statements are separated by semicolons
+   * and lines starting with "--" are comments. This is enough for DDL; it does not handle
+   * semicolons inside string literals.
+   */
+  private List<String> readStatements(String migration) {
+    String script;
+
+    try(InputStream in =
+        SchemaMigrator.class.getClassLoader().getResourceAsStream(MIGRATION_FOLDER + migration)) {
+      if(Objects.isNull(in)) {
+        throw new DbException("Migration resource " + migration + " was not found.");
+      }
+
+      script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    catch(IOException e) {
+      throw new DbException(e);
+    }
+
+    StringBuilder cleaned = new StringBuilder();
+
+    for(String line : script.split("\\R")) {
+      if(!line.trim().startsWith("--")) {
+        cleaned.append(line).append('\n');
+      }
+    }
+
+    List<String> statements = new LinkedList<>();
+
+    for(String sql : cleaned.toString().split(";")) {
+      if(!sql.isBlank()) {
+        statements.add(sql.trim());
+      }
+    }
+
+    return statements;
+  }
+
+  /**
+   * Converts a migration name (V2__step_project_order_index.sql) to its version number (2).
+   */
+  private static int versionOf(String migration) {
+    return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+  }
+
+  /**
+   * Converts a migration name (V2__step_project_order_index.sql) to a description (step project
+   * order index).
+   */
+  private static String descriptionOf(String migration) {
+    String name = migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.'));
+    return name.replace('_', ' ');
+  }
+}
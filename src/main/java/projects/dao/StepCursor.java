@@ -0,0 +1,26 @@
+package projects.dao;
+
+import java.util.Iterator;
+
+import projects.entity.Step;
+
+/**
+ * This is a forward-only iterator over the steps of a project in step order. The database store
+ * streams the rows one at a time so that a project with a very long list of steps never has to be
+ * held in memory all at once.
+ *
+ * A cursor may hold a connection. It must be closed when the caller is done with it, which is
+ * best done with try-with-resources:
+ *
+ * <pre>
+ * try(StepCursor steps = projectService.streamSteps(projectId)) {
+ *   while(steps.hasNext()) {
+ *     print(steps.next());
+ *   }
+ * }
+ * </pre>
+ */
+public interface StepCursor extends Iterator<Step>, AutoCloseable {
+  @Override
+  void close();
+}
@@ -0,0 +1,20 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The work done in a unit of work by a {@link TransactionTemplate}.
+ *
+ * @param <T> The result type.
+ */
+@FunctionalInterface
+public interface TransactionCallback<T> {
+  /**
+   * @param conn The unit of work's connection. The template owns it; don't commit or close it.
+   * @return The result of the work.
+   * @throws SQLException Thrown if the database driver encounters an error. The transaction is
+   *         rolled back and the exception is rethrown as a DbException.
+   */
+  T doInTransaction(Connection conn) throws SQLException;
+}
@@ -0,0 +1,67 @@
+package projects.dao;
+
+import java.util.Objects;
+
+/**
+ * This holds the settings for a unit of work run by a {@link TransactionTemplate}. The default is
+ * a read-write transaction at the isolation level named by the projects.tx.isolation system
+ * property (an {@link IsolationLevel} name), or at the connection's own level if it isn't set, on
+ * a connection from the default {@link ConnectionProfile}.
+ */
+public class TransactionOptions {
+  private static final IsolationLevel DEFAULT_ISOLATION =
+      IsolationLevel.valueOf(System.getProperty("projects.tx.isolation", IsolationLevel.DEFAULT.name()));
+
+  private boolean readOnly;
+  private IsolationLevel isolation = DEFAULT_ISOLATION;
+  private ConnectionProfile profile = DbConnection.getDefaultProfile();
+
+  /**
+   * @return Options for a read-only transaction at the default isolation level.
+   */
+  public static TransactionOptions readOnly() {
+    TransactionOptions options = new TransactionOptions();
+    options.setReadOnly(true);
+    return options;
+  }
+
+  /**
+   * @return true if the connection is marked read-only for the transaction. MySQL then starts a
+   *         read-only transaction, which skips allocating a transaction ID and rejects writes.
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  public void setReadOnly(boolean readOnly) {
+    this.readOnly = readOnly;
+  }
+
+  public IsolationLevel getIsolation() {
+    return isolation;
+  }
+
+  public void setIsolation(IsolationLevel isolation) {
+    if(Objects.isNull(isolation)) {
+      throw new IllegalArgumentException("Isolation level must not be null.");
+    }
+
+    this.isolation = isolation;
+  }
+
+  /**
+   * @return The profile of the connection the unit of work runs on. A nested unit of work joins
+   *         the outer one's connection, whatever its profile.
+   */
+  public ConnectionProfile getProfile() {
+    return profile;
+  }
+
+  public void setProfile(ConnectionProfile profile) {
+    if(Objects.isNull(profile)) {
+      throw new IllegalArgumentException("Connection profile must not be null.");
+    }
+
+    this.profile = profile;
+  }
+}
@@ -0,0 +1,218 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import projects.exception.DbException;
+
+/**
+ * This runs database work in a unit of work: one connection and one transaction, bound to the
+ * calling thread, that every DAO operation on the same schema joins until the outermost unit
+ * commits or rolls back. A service can therefore group several DAO calls into one transaction:
+ *
+ * <pre>
+ * transactions.execute(new TransactionOptions(), conn -&gt; {
+ *   projectDao.modifyProjectDetails(project);
+ *   projectDao.updateActualHours(hours);
+ *   return null;
+ * });
+ * </pre>
+ *
+ * It also replaces the open/begin/commit/rollback scaffolding that each DAO method used to repeat,
+ * and avoids round trips that scaffolding spent:
+ *
+ * <ul>
+ * <li>{@link #query(TransactionCallback)} runs a single statement read in auto-commit mode. One
+ * statement is already its own consistent snapshot, so there is no transaction to begin or
+ * commit.</li>
+ * <li>A read-only unit of work marks the connection read-only, which lets MySQL skip assigning a
+ * transaction ID.</li>
+ * <li>The isolation level is only set when the options ask for one, and auto-commit is restored
+ * after the commit so the pool has nothing left to roll back.</li>
+ * </ul>
+ *
+ * A nested unit of work joins the outer one with the outer one's isolation. A read-write unit
+ * can't join a read-only one. If a joined operation fails, the whole unit of work is rolled back
+ * even if the caller catches the exception. Actions registered with
+ * {@link #afterCommit(Runnable)} run once the outermost unit has committed.
+ *
+ * A template is bound to one schema. Operations on other schemas, such as other shards, run in
+ * their own transactions.
+ */
+public class TransactionTemplate {
+  private static final ThreadLocal<Map<String, UnitOfWork>> CURRENT = ThreadLocal.withInitial(HashMap::new);
+
+  private final String schema;
+
+  /**
+   * @param schema The schema whose connections the units of work use.
+   */
+  public TransactionTemplate(String schema) {
+    this.schema = schema;
+  }
+
+  /**
+   * Run the work in a transaction, joining the thread's current unit of work on this schema if
+   * there is one.
+   *
+   * @param options Read-only, isolation and connection profile settings. They apply only if this
+   *        starts the unit.
+   * @param work The work to run.
+   * @return The result of the work.
+   */
+  public <T> T execute(TransactionOptions options, TransactionCallback<T> work) {
+    UnitOfWork current = CURRENT.get().get(schema);
+
+    if(Objects.nonNull(current)) {
+      if(current.readOnly && !options.isReadOnly()) {
+        throw new IllegalStateException("A read-write operation can't join a read-only unit of work.");
+      }
+
+      return current.join(work);
+    }
+
+    try(Connection conn = DbConnection.getConnection(schema, options.getProfile())) {
+      UnitOfWork unit = new UnitOfWork(conn, options.isReadOnly());
+      CURRENT.get().put(schema, unit);
+
+      try {
+        return unit.run(options, work);
+      }
+      finally {
+        CURRENT.get().remove(schema);
+      }
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Run a single statement read. Inside a unit of work it uses the unit's connection; otherwise it
+   * runs in auto-commit mode with no transaction to begin or commit.
+   *
+   * @param work The read. It must run only one statement.
+   * @return The result of the read.
+   */
+  public <T> T query(TransactionCallback<T> work) {
+    UnitOfWork current = CURRENT.get().get(schema);
+
+    if(Objects.nonNull(current)) {
+      return current.join(work);
+    }
+
+    try(Connection conn = DbConnection.getConnection(schema)) {
+      return work.doInTransaction(conn);
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Run the action when the current unit of work commits, or now if there is none. Actions are
+   * dropped if the unit of work rolls back.
+   *
+   * @param action Something that must only happen once the changes are visible to other sessions,
+   *        such as invalidating a cache.
+   */
+  public void afterCommit(Runnable action) {
+    UnitOfWork current = CURRENT.get().get(schema);
+
+    if(Objects.nonNull(current)) {
+      current.afterCommit.add(action);
+    }
+    else {
+      action.run();
+    }
+  }
+
+  /**
+   * @return true if the calling thread is in a read-write unit of work on this schema, so reads
+   *         may see changes that are not yet committed.
+   */
+  public boolean inReadWriteUnitOfWork() {
+    UnitOfWork current = CURRENT.get().get(schema);
+    return Objects.nonNull(current) && !current.readOnly;
+  }
+
+  /**
+   * @param schema The schema.
+   * @return true if the calling thread is in a unit of work on the schema.
+   */
+  public static boolean inUnitOfWork(String schema) {
+    return CURRENT.get().containsKey(schema);
+  }
+
+  /**
+   * The connection and state of one unit of work.
+   */
+  private static class UnitOfWork {
+    private final Connection conn;
+    private final boolean readOnly;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private boolean rollbackOnly;
+
+    UnitOfWork(Connection conn, boolean readOnly) {
+      this.conn = conn;
+      this.readOnly = readOnly;
+    }
+
+    <T> T run(TransactionOptions options, TransactionCallback<T> work) throws SQLException {
+      int isolation = options.getIsolation().getJdbcLevel();
+
+      if(isolation >= 0) {
+        conn.setTransactionIsolation(isolation);
+      }
+
+      if(readOnly) {
+        conn.setReadOnly(true);
+      }
+
+      conn.setAutoCommit(false);
+
+      try {
+        T result = work.doInTransaction(conn);
+
+        if(rollbackOnly) {
+          throw new DbException("The unit of work was rolled back because one of its operations failed.");
+        }
+
+        conn.commit();
+        conn.setAutoCommit(true);
+        afterCommit.forEach(Runnable::run);
+        return result;
+      }
+      catch(Exception e) {
+        try {
+          conn.rollback();
+          conn.setAutoCommit(true);
+        }
+        catch(SQLException rollbackException) {
+          e.addSuppressed(rollbackException);
+        }
+
+        throw e instanceof RuntimeException ? (RuntimeException)e : new DbException(e);
+      }
+    }
+
+    <T> T join(TransactionCallback<T> work) {
+      try {
+        return work.doInTransaction(conn);
+      }
+      catch(SQLException e) {
+        rollbackOnly = true;
+        throw new DbException(e);
+      }
+      catch(RuntimeException e) {
+        rollbackOnly = true;
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package projects.dao.binding;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * This binds one column value from an entity to a prepared statement parameter. Each instance is
+ * created for a single Java type by {@link StatementBinder.Builder}, so it calls the matching
+ * typed setter on the statement directly.
+ *
+ * @param <T> The entity type.
+ */
+@FunctionalInterface
+public interface ColumnBinder<T> {
+  /**
+   * @param stmt The statement.
+   * @param parameterIndex The one-based parameter index.
+   * @param entity The entity that holds the value.
+   * @throws SQLException Thrown if the driver rejects the value.
+   */
+  void bind(PreparedStatement stmt, int parameterIndex, T entity) throws SQLException;
+}
@@ -0,0 +1,17 @@
+package projects.dao.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * This writes a query result to the compact binary form kept in the {@link QueryCache}, and reads
+ * it back into new objects, so callers never share a cached object.
+ *
+ * @param <T> The result type.
+ */
+public interface Codec<T> {
+  void write(DataOutputStream out, T value) throws IOException;
+
+  T read(DataInputStream in) throws IOException;
+}
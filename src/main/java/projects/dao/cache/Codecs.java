@@ -0,0 +1,141 @@
+package projects.dao.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Helpers for writing {@link Codec}s. Nullable values are written behind a presence byte. Strings
+ * are length-prefixed UTF-8, since DataOutputStream.writeUTF is limited to 64 KB and TEXT columns
+ * can be longer. Decimals are a scale byte plus the unscaled value as a long, which holds every
+ * DECIMAL(7,2).
+ */
+public final class Codecs {
+  /** A list of integers, such as the category IDs of a project. */
+  public static final Codec<List<Integer>> INTEGER_LIST = new Codec<>() {
+    @Override
+    public void write(DataOutputStream out, List<Integer> values) throws IOException {
+      out.writeInt(values.size());
+
+      for(Integer value : values) {
+        out.writeInt(value);
+      }
+    }
+
+    @Override
+    public List<Integer> read(DataInputStream in) throws IOException {
+      int size = in.readInt();
+      List<Integer> values = new ArrayList<>(size);
+
+      for(int i = 0; i < size; i++) {
+        values.add(in.readInt());
+      }
+
+      return values;
+    }
+  };
+
+  private Codecs() {}
+
+  /**
+   * @return A codec for lists whose elements are written with the given codec.
+   */
+  public static <T> Codec<List<T>> listOf(Codec<T> element) {
+    return new Codec<>() {
+      @Override
+      public void write(DataOutputStream out, List<T> values) throws IOException {
+        out.writeInt(values.size());
+
+        for(T value : values) {
+          element.write(out, value);
+        }
+      }
+
+      @Override
+      public List<T> read(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<T> values = new ArrayList<>(size);
+
+        for(int i = 0; i < size; i++) {
+          values.add(element.read(in));
+        }
+
+        return values;
+      }
+    };
+  }
+
+  public static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+    out.writeBoolean(Objects.nonNull(value));
+
+    if(Objects.nonNull(value)) {
+      out.writeInt(value);
+    }
+  }
+
+  public static Integer readInteger(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readInt() : null;
+  }
+
+  public static void writeString(DataOutputStream out, String value) throws IOException {
+    if(Objects.isNull(value)) {
+      out.writeInt(-1);
+      return;
+    }
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  public static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+
+    if(length < 0) {
+      return null;
+    }
+
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+    if(Objects.isNull(value)) {
+      out.writeByte(-1);
+      return;
+    }
+
+    BigInteger unscaled = value.unscaledValue();
+
+    if(unscaled.bitLength() < 64 && value.scale() >= 0 && value.scale() < Byte.MAX_VALUE) {
+      out.writeByte(value.scale());
+      out.writeLong(unscaled.longValue());
+    }
+    else {
+      /* Not a DECIMAL(7,2) value; fall back to the text form. */
+      out.writeByte(Byte.MAX_VALUE);
+      writeString(out, value.toString());
+    }
+  }
+
+  public static BigDecimal readDecimal(DataInputStream in) throws IOException {
+    byte scale = in.readByte();
+
+    if(scale < 0) {
+      return null;
+    }
+
+    if(scale == Byte.MAX_VALUE) {
+      return new BigDecimal(readString(in));
+    }
+
+    return BigDecimal.valueOf(in.readLong(), scale);
+  }
+}
@@ -0,0 +1,250 @@
+package projects.dao.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import projects.exception.DbException;
+
+/**
+ * This caches the results of read queries, keyed by schema, SQL and parameters. Each entry is
+ * tagged with the tables the query reads and their {@link TableVersions} at the time the query
+ * started. An entry is used only while all of those versions are unchanged, so a DAO write that
+ * bumps a table's version invalidates every dependent entry at once.
+ *
+ * Entries are kept serialized by a {@link Codec} rather than as object graphs. This keeps them
+ * several times smaller, makes their size known, and means every hit returns new objects that the
+ * caller is free to change. The cache evicts least recently used entries to stay within
+ * projects.cache.maxBytes (16 MB by default; 0 turns the cache off).
+ *
+ * Version counters only see writes made through this process. Entries also expire after
+ * projects.cache.maxAgeMillis (one minute by default), which bounds how stale a result can be when
+ * another process writes to the same database.
+ */
+public final class QueryCache {
+  /* A rough allowance for the key, entry and map node around each serialized result. */
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private static final QueryCache INSTANCE = new QueryCache(Long.getLong("projects.cache.maxBytes", 16L << 20),
+      Long.getLong("projects.cache.maxAgeMillis", 60_000));
+
+  private final long maxBytes;
+  private final long maxAgeNanos;
+
+  /* Guarded by this. Access order, so iteration starts at the least recently used entry. */
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long totalBytes;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  QueryCache(long maxBytes, long maxAgeMillis) {
+    this.maxBytes = maxBytes;
+    this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+  }
+
+  public static QueryCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Return the cached result for the query, or run the loader and cache what it returns.
+   *
+   * @param schema The schema the query runs against.
+   * @param sql The query.
+   * @param parameters The query parameters, in order.
+   * @param tables Every table the query reads.
+   * @param codec Serializes the result.
+   * @param loader Runs the query.
+   * @return The result. It is never shared with another caller.
+   */
+  public <T> T get(String schema, String sql, List<?> parameters, String[] tables, Codec<T> codec,
+      Supplier<T> loader) {
+    if(maxBytes <= 0) {
+      return loader.get();
+    }
+
+    Key key = new Key(schema, sql, parameters);
+    Entry entry;
+
+    synchronized(this) {
+      entry = entries.get(key);
+    }
+
+    if(Objects.nonNull(entry)) {
+      if(isCurrent(entry, schema)) {
+        hits.increment();
+        return decode(codec, entry.data);
+      }
+
+      invalidations.increment();
+      remove(key, entry);
+    }
+
+    misses.increment();
+
+    /* Take the versions before the query runs, so a write that commits meanwhile makes the entry stale. */
+    long[] versions = TableVersions.snapshot(schema, tables);
+    T value = loader.get();
+    byte[] data = encode(codec, value);
+
+    put(key, new Entry(data, tables, versions));
+
+    /* Hand back a copy, not the loaded objects, for the same reason hits do. */
+    return decode(codec, data);
+  }
+
+  /**
+   * Drop every entry.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    totalBytes = 0;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return The number of entries found stale, by a table version change or by age.
+   */
+  public long getInvalidations() {
+    return invalidations.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  public synchronized long getSizeInBytes() {
+    return totalBytes;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("entries=%d bytes=%d hits=%d misses=%d invalidations=%d evictions=%d", entries.size(),
+        totalBytes, getHits(), getMisses(), getInvalidations(), getEvictions());
+  }
+
+  private boolean isCurrent(Entry entry, String schema) {
+    return System.nanoTime() - entry.createdNanos < maxAgeNanos
+        && Arrays.equals(entry.versions, TableVersions.snapshot(schema, entry.tables));
+  }
+
+  private synchronized void put(Key key, Entry entry) {
+    long size = entry.data.length + ENTRY_OVERHEAD_BYTES;
+
+    if(size > maxBytes) {
+      return;
+    }
+
+    Entry previous = entries.put(key, entry);
+
+    if(Objects.nonNull(previous)) {
+      totalBytes -= previous.data.length + ENTRY_OVERHEAD_BYTES;
+    }
+
+    totalBytes += size;
+
+    Iterator<Entry> eldest = entries.values().iterator();
+
+    while(totalBytes > maxBytes && eldest.hasNext()) {
+      Entry evicted = eldest.next();
+      eldest.remove();
+      totalBytes -= evicted.data.length + ENTRY_OVERHEAD_BYTES;
+      evictions.increment();
+    }
+  }
+
+  private synchronized void remove(Key key, Entry entry) {
+    if(entries.remove(key, entry)) {
+      totalBytes -= entry.data.length + ENTRY_OVERHEAD_BYTES;
+    }
+  }
+
+  private static <T> byte[] encode(Codec<T> codec, T value) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+
+    try(DataOutputStream out = new DataOutputStream(bytes)) {
+      codec.write(out, value);
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to serialize a cached result.", e);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  private static <T> T decode(Codec<T> codec, byte[] data) {
+    try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      return codec.read(in);
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to read a cached result.", e);
+    }
+  }
+
+  private static class Key {
+    private final String schema;
+    private final String sql;
+    private final List<?> parameters;
+    private final int hash;
+
+    Key(String schema, String sql, List<?> parameters) {
+      this.schema = schema;
+      this.sql = sql;
+      this.parameters = List.copyOf(parameters);
+      this.hash = Objects.hash(schema, sql, this.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if(this == obj) {
+        return true;
+      }
+
+      if(!(obj instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key)obj;
+      return schema.equals(other.schema) && sql.equals(other.sql) && parameters.equals(other.parameters);
+    }
+  }
+
+  private static class Entry {
+    final byte[] data;
+    final String[] tables;
+    final long[] versions;
+    final long createdNanos = System.nanoTime();
+
+    Entry(byte[] data, String[] tables, long[] versions) {
+      this.data = data;
+      this.tables = tables;
+      this.versions = versions;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package projects.dao.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This keeps a version counter for every table that the DAOs write. A write bumps the counters of
+ * the tables it changed after it commits; a cached result records the counters of the tables it
+ * read, taken before it ran, and is stale as soon as any of them has moved. Bumping one counter
+ * therefore invalidates every entry that depends on the table at once, without finding them.
+ *
+ * Counters are per schema, so a write to one shard doesn't invalidate another shard's entries.
+ */
+public final class TableVersions {
+  private static final Map<String, AtomicLong> VERSIONS = new ConcurrentHashMap<>();
+
+  private TableVersions() {}
+
+  /**
+   * Record that the given tables have changed. Call this after the transaction commits.
+   *
+   * @param schema The schema that holds the tables.
+   * @param tables The tables that were written.
+   */
+  public static void bump(String schema, String... tables) {
+    for(String table : tables) {
+      counter(schema, table).incrementAndGet();
+    }
+  }
+
+  /**
+   * @return The current versions of the tables, in the same order.
+   */
+  static long[] snapshot(String schema, String[] tables) {
+    long[] versions = new long[tables.length];
+
+    for(int i = 0; i < tables.length; i++) {
+      versions[i] = counter(schema, tables[i]).get();
+    }
+
+    return versions;
+  }
+
+  private static AtomicLong counter(String schema, String table) {
+    return VERSIONS.computeIfAbsent(schema + "." + table, key -> new AtomicLong());
+  }
+}
@@ -0,0 +1,728 @@
+package projects.dao.memory;
+
+import java.math.BigDecimal;
+import java.text.Collator;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import projects.dao.FetchProfile;
+import projects.dao.ProjectStore;
+import projects.dao.StepCursor;
+import projects.dao.TransactionOptions;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+/**
+ * This is a {@link ProjectStore} that keeps every project in memory, for tests, demos and
+ * read-heavy deployments that can hold the whole catalog.
+ *
+ * <ul>
+ * <li>Each project is stored as an aggregate snapshot: the project row with its materials, steps
+ * and categories, never changed once stored. A write builds a new snapshot and swaps it into a
+ * ConcurrentHashMap, so readers take no locks and always see a whole aggregate.</li>
+ * <li>Writers lock the project's stripe, one of a fixed set of locks chosen by project ID, so
+ * writes to different projects rarely contend. {@link #updateActualHours(Map)} locks every stripe
+ * it needs in index order, which makes the multi-project change atomic without deadlocks.</li>
+ * <li>Callers get copies; nothing they change reaches the store.</li>
+ * <li>Every change closes the project's current history version and adds a new one, as the
+ * project_history table does, so {@link #fetchProjectAsOf} works the same way.</li>
+ * <li>With a log file (see {@link InMemoryStoreOptions}), each change is appended to a
+ * {@link ProjectLog} before it is applied, and the log is replayed on start. Compacting the
+ * history also rewrites the log, so a restart reads one record per version and project.</li>
+ * </ul>
+ *
+ * There are no transactions across operations: {@link #inTransaction} is not supported. The fetch
+ * profile is ignored since every child collection is already in memory. Categories are stored as
+ * given to {@link #load(Project)}; they are not checked against a category table.
+ */
+public class InMemoryProjectStore implements ProjectStore, AutoCloseable {
+  private static final int PUBLISHER_BUFFER = 256;
+
+  private static final ExecutorService PUBLISHER_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "memory-store-export");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Map<Integer, Project> projects = new ConcurrentHashMap<>();
+  private final Map<Integer, List<Version>> history = new ConcurrentHashMap<>();
+  private final ReentrantLock[] stripes;
+  private final AtomicInteger lastProjectId = new AtomicInteger();
+  private final AtomicInteger lastMaterialId = new AtomicInteger();
+  private final AtomicInteger lastStepId = new AtomicInteger();
+  private final ProjectLog log;
+
+  /* The project list sorted by name is rebuilt only after a change. */
+  private final AtomicLong changes = new AtomicLong();
+  private volatile SortedRows sortedRows;
+
+  /**
+   * Create an empty store with no log.
+   */
+  public InMemoryProjectStore() {
+    this(new InMemoryStoreOptions());
+  }
+
+  /**
+   * Create a store, replaying the log if one is configured and exists.
+   *
+   * @param options The log and lock settings.
+   */
+  public InMemoryProjectStore(InMemoryStoreOptions options) {
+    stripes = new ReentrantLock[Integer.highestOneBit(options.getLockStripes() * 2 - 1)];
+
+    for(int i = 0; i < stripes.length; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+
+    log = Objects.isNull(options.getLogFile()) ? null
+        : ProjectLog.open(options.getLogFile(), options.isSyncOnWrite(), new LogReplay());
+  }
+
+  /**
+   * Store a whole aggregate, with its child collections, replacing any project with the same ID.
+   * This is how projects are seeded or imported; {@link #insertProject(Project)} stores the project
+   * row only, like the database store. IDs are assigned to the project, materials and steps that
+   * don't have one, and the steps are kept in step order.
+   *
+   * @param project The project and its children.
+   * @return The project that was passed in, with its IDs set.
+   */
+  public Project load(Project project) {
+    Integer projectId = assignProjectId(project.getProjectId());
+    Project aggregate = copyAggregate(project, projectId);
+
+    for(Material material : aggregate.getMaterials()) {
+      if(Objects.isNull(material.getMaterialId())) {
+        material.setMaterialId(lastMaterialId.incrementAndGet());
+      }
+    }
+
+    for(Step step : aggregate.getSteps()) {
+      if(Objects.isNull(step.getStepId())) {
+        step.setStepId(lastStepId.incrementAndGet());
+      }
+    }
+
+    aggregate.getSteps().sort(Comparator.comparing(Step::getStepOrder));
+    project.setProjectId(projectId);
+
+    ReentrantLock lock = stripeFor(projectId);
+    lock.lock();
+
+    try {
+      put(now(), List.of(freeze(aggregate)));
+    }
+    finally {
+      lock.unlock();
+    }
+
+    return project;
+  }
+
+  @Override
+  public Project insertProject(Project project) {
+    Integer projectId = assignProjectId(project.getProjectId());
+    ReentrantLock lock = stripeFor(projectId);
+    lock.lock();
+
+    try {
+      if(projects.containsKey(projectId)) {
+        throw new DbException("A project with ID=" + projectId + " already exists.");
+      }
+
+      put(now(), List.of(freeze(copyRow(project, projectId))));
+    }
+    finally {
+      lock.unlock();
+    }
+
+    project.setProjectId(projectId);
+    return project;
+  }
+
+  /**
+   * The rows are ordered the way MySQL's default collation orders project names, ignoring case and
+   * accents, with equal names in project ID order.
+   */
+  @Override
+  public List<Project> fetchAllProjects() {
+    List<Project> rows = new LinkedList<>();
+
+    for(Project row : sortedRows()) {
+      rows.add(copyRow(row, row.getProjectId()));
+    }
+
+    return rows;
+  }
+
+  @Override
+  public Optional<Project> fetchProjectById(Integer projectId, FetchProfile profile) {
+    return Optional.ofNullable(projects.get(projectId)).map(aggregate -> copyAggregate(aggregate, projectId));
+  }
+
+  @Override
+  public Optional<Project> fetchProjectAsOf(Integer projectId, Instant asOf) {
+    Version found = null;
+
+    for(Version version : history.getOrDefault(projectId, List.of())) {
+      if(version.isCurrentAt(asOf) && (Objects.isNull(found) || version.validFrom.isAfter(found.validFrom))) {
+        found = version;
+      }
+    }
+
+    return Optional.ofNullable(found).map(version -> copyRow(version.row, projectId));
+  }
+
+  @Override
+  public boolean modifyProjectDetails(Project project) {
+    Integer projectId = project.getProjectId();
+    ReentrantLock lock = stripeFor(projectId);
+    lock.lock();
+
+    try {
+      Project current = projects.get(projectId);
+
+      if(Objects.isNull(current)) {
+        return false;
+      }
+
+      Project updated = copyRow(project, projectId);
+      updated.setMaterials(current.getMaterials());
+      updated.setSteps(current.getSteps());
+      updated.setCategories(current.getCategories());
+
+      put(now(), List.of(updated));
+      return true;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int updateActualHours(Map<Integer, BigDecimal> actualHours) {
+    if(actualHours.isEmpty()) {
+      return 0;
+    }
+
+    /* Lock in index order so that two multi-project updates can't deadlock. */
+    TreeSet<Integer> stripeIndexes = new TreeSet<>();
+
+    for(Integer projectId : actualHours.keySet()) {
+      stripeIndexes.add(stripeIndex(projectId));
+    }
+
+    List<ReentrantLock> locks = new ArrayList<>();
+
+    try {
+      for(int index : stripeIndexes) {
+        stripes[index].lock();
+        locks.add(stripes[index]);
+      }
+
+      List<Project> updated = new ArrayList<>();
+
+      for(Map.Entry<Integer, BigDecimal> entry : actualHours.entrySet()) {
+        Project current = projects.get(entry.getKey());
+
+        if(Objects.nonNull(current)) {
+          Project aggregate = withChildren(copyRow(current, current.getProjectId()), current);
+          aggregate.setActualHours(entry.getValue());
+          updated.add(aggregate);
+        }
+      }
+
+      if(!updated.isEmpty()) {
+        put(now(), updated);
+      }
+
+      return updated.size();
+    }
+    finally {
+      for(int i = locks.size() - 1; i >= 0; i--) {
+        locks.get(i).unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean deleteProject(Integer projectId) {
+    ReentrantLock lock = stripeFor(projectId);
+    lock.lock();
+
+    try {
+      if(!projects.containsKey(projectId)) {
+        return false;
+      }
+
+      Instant now = now();
+
+      if(Objects.nonNull(log)) {
+        log.delete(now, projectId);
+      }
+
+      remove(now, projectId);
+      return true;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public List<Step> fetchStepRange(Integer projectId, int afterStepOrder, int maxSteps) {
+    List<Step> steps = new LinkedList<>();
+    Project aggregate = projects.get(projectId);
+
+    if(Objects.nonNull(aggregate)) {
+      for(Step step : aggregate.getSteps()) {
+        if(steps.size() == maxSteps) {
+          break;
+        }
+
+        if(step.getStepOrder() > afterStepOrder) {
+          steps.add(copyStep(step));
+        }
+      }
+    }
+
+    return steps;
+  }
+
+  @Override
+  public StepCursor openStepCursor(Integer projectId) {
+    Project aggregate = projects.get(projectId);
+    return new SnapshotStepCursor(Objects.isNull(aggregate) ? List.of() : aggregate.getSteps());
+  }
+
+  /**
+   * Each subscription publishes the projects in project ID order, as they were when it started.
+   * The snapshot costs one pass over the map, since the aggregates themselves are never changed.
+   */
+  @Override
+  public Flow.Publisher<Project> publishAllProjects() {
+    return subscriber -> {
+      List<Project> snapshot = new ArrayList<>(projects.values());
+      snapshot.sort(Comparator.comparing(Project::getProjectId));
+
+      SubmissionPublisher<Project> publisher = new SubmissionPublisher<>(PUBLISHER_EXECUTOR, PUBLISHER_BUFFER);
+      publisher.subscribe(subscriber);
+
+      PUBLISHER_EXECUTOR.execute(() -> {
+        try {
+          for(Project aggregate : snapshot) {
+            /* submit blocks while the subscriber's buffer is full. */
+            if(publisher.getNumberOfSubscribers() == 0) {
+              break;
+            }
+
+            publisher.submit(copyAggregate(aggregate, aggregate.getProjectId()));
+          }
+
+          publisher.close();
+        }
+        catch(RuntimeException e) {
+          publisher.closeExceptionally(e);
+        }
+      });
+    };
+  }
+
+  /**
+   * @throws UnsupportedOperationException Always; each operation on one project is atomic, but
+   *         there are no transactions across operations.
+   */
+  @Override
+  public <T> T inTransaction(TransactionOptions options, Supplier<T> work) {
+    throw new UnsupportedOperationException("The in-memory store has no transactions across operations.");
+  }
+
+  /**
+   * Remove history versions that stopped being current longer ago than the retention period, as
+   * the HistoryCompactor does for the database. The current version of every project is kept.
+   * With a log, the log is then rewritten; see {@link #compactLog()}.
+   *
+   * @param retention How long superseded and deleted versions are kept.
+   * @return The number of versions removed.
+   */
+  public long compactHistory(Duration retention) {
+    Instant cutoff = Instant.now().minus(retention);
+    long removed = 0;
+
+    for(Integer projectId : history.keySet()) {
+      ReentrantLock lock = stripeFor(projectId);
+      lock.lock();
+
+      try {
+        List<Version> versions = history.get(projectId);
+        List<Version> kept = new ArrayList<>();
+
+        for(Version version : versions) {
+          if(Objects.isNull(version.validTo) || !version.validTo.isBefore(cutoff)) {
+            kept.add(version);
+          }
+        }
+
+        removed += versions.size() - kept.size();
+
+        if(kept.isEmpty()) {
+          history.remove(projectId);
+        }
+        else if(kept.size() < versions.size()) {
+          history.put(projectId, List.copyOf(kept));
+        }
+      }
+      finally {
+        lock.unlock();
+      }
+    }
+
+    compactLog();
+    return removed;
+  }
+
+  /**
+   * Rewrite the log as one record per history version and one per project, dropping the changes
+   * that led to them. Writers wait while the log is rewritten. This does nothing if there is no
+   * log.
+   */
+  public void compactLog() {
+    if(Objects.isNull(log)) {
+      return;
+    }
+
+    for(ReentrantLock lock : stripes) {
+      lock.lock();
+    }
+
+    try {
+      log.rewrite(compacted -> {
+        history.forEach((projectId, versions) -> {
+          for(Version version : versions) {
+            compacted.version(version.row, version.validFrom, version.validTo);
+          }
+        });
+
+        projects.values().forEach(compacted::load);
+      });
+    }
+    finally {
+      for(int i = stripes.length - 1; i >= 0; i--) {
+        stripes[i].unlock();
+      }
+    }
+  }
+
+  /**
+   * @return The number of projects in the store.
+   */
+  public int size() {
+    return projects.size();
+  }
+
+  /**
+   * Close the log, if there is one.
+   */
+  @Override
+  public void close() {
+    if(Objects.nonNull(log)) {
+      log.close();
+    }
+  }
+
+  /**
+   * Log and apply a change to whole aggregates. The caller holds the stripe of every project.
+   */
+  private void put(Instant now, Collection<Project> aggregates) {
+    if(Objects.nonNull(log)) {
+      log.put(now, aggregates);
+    }
+
+    for(Project aggregate : aggregates) {
+      apply(now, aggregate);
+    }
+  }
+
+  private void apply(Instant now, Project aggregate) {
+    Integer projectId = aggregate.getProjectId();
+
+    projects.put(projectId, aggregate);
+    addVersion(projectId, new Version(copyRow(aggregate, projectId), now, null), now);
+    changes.incrementAndGet();
+  }
+
+  private void remove(Instant now, Integer projectId) {
+    projects.remove(projectId);
+    addVersion(projectId, null, now);
+    changes.incrementAndGet();
+  }
+
+  /**
+   * Close the current version, if there is one, and add the new one, if there is one. The version
+   * lists are copied on write so that readers never lock.
+   */
+  private void addVersion(Integer projectId, Version added, Instant now) {
+    List<Version> versions = new ArrayList<>(history.getOrDefault(projectId, List.of()));
+
+    for(int i = 0; i < versions.size(); i++) {
+      Version version = versions.get(i);
+
+      if(Objects.isNull(version.validTo)) {
+        versions.set(i, new Version(version.row, version.validFrom, now));
+      }
+    }
+
+    if(Objects.nonNull(added)) {
+      versions.add(added);
+    }
+
+    history.put(projectId, List.copyOf(versions));
+  }
+
+  private List<Project> sortedRows() {
+    SortedRows sorted = sortedRows;
+    long current = changes.get();
+
+    if(Objects.nonNull(sorted) && sorted.changes == current) {
+      return sorted.rows;
+    }
+
+    Collator collator = Collator.getInstance(Locale.ROOT);
+    collator.setStrength(Collator.PRIMARY);
+
+    List<Project> rows = new ArrayList<>(projects.values());
+    rows.sort(Comparator.comparing(Project::getProjectName, collator::compare).thenComparing(Project::getProjectId));
+
+    /* Rows read during a concurrent change are tagged with the older count, so they are not reused. */
+    sortedRows = new SortedRows(current, List.copyOf(rows));
+    return rows;
+  }
+
+  private Integer assignProjectId(Integer projectId) {
+    if(Objects.isNull(projectId)) {
+      return lastProjectId.incrementAndGet();
+    }
+
+    lastProjectId.accumulateAndGet(projectId, Math::max);
+    return projectId;
+  }
+
+  private ReentrantLock stripeFor(Integer projectId) {
+    return stripes[stripeIndex(projectId)];
+  }
+
+  private int stripeIndex(Integer projectId) {
+    int hash = projectId.hashCode() * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+  }
+
+  /**
+   * History times are kept to the microsecond, like the TIMESTAMP(6) columns of project_history.
+   */
+  private static Instant now() {
+    return Instant.now().truncatedTo(ChronoUnit.MICROS);
+  }
+
+  private static Project copyRow(Project source, Integer projectId) {
+    Project project = new Project();
+
+    project.setProjectId(projectId);
+    project.setProjectName(source.getProjectName());
+    project.setEstimatedHours(source.getEstimatedHours());
+    project.setActualHours(source.getActualHours());
+    project.setDifficulty(source.getDifficulty());
+    project.setNotes(source.getNotes());
+    return project;
+  }
+
+  private static Project copyAggregate(Project source, Integer projectId) {
+    Project project = copyRow(source, projectId);
+
+    for(Material material : source.getMaterials()) {
+      Material copy = new Material();
+      copy.setMaterialId(material.getMaterialId());
+      copy.setProjectId(projectId);
+      copy.setMaterialName(material.getMaterialName());
+      copy.setNumRequired(material.getNumRequired());
+      copy.setCost(material.getCost());
+      project.getMaterials().add(copy);
+    }
+
+    for(Step step : source.getSteps()) {
+      Step copy = copyStep(step);
+      copy.setProjectId(projectId);
+      project.getSteps().add(copy);
+    }
+
+    for(Category category : source.getCategories()) {
+      Category copy = new Category();
+      copy.setCategoryId(category.getCategoryId());
+      copy.setCategoryName(category.getCategoryName());
+      project.getCategories().add(copy);
+    }
+
+    return project;
+  }
+
+  private static Step copyStep(Step source) {
+    Step step = new Step();
+
+    step.setStepId(source.getStepId());
+    step.setProjectId(source.getProjectId());
+    step.setStepText(source.getStepText());
+    step.setStepOrder(source.getStepOrder());
+    return step;
+  }
+
+  /**
+   * Share the (unmodifiable) child collections of a stored aggregate.
+   */
+  private static Project withChildren(Project row, Project aggregate) {
+    row.setMaterials(aggregate.getMaterials());
+    row.setSteps(aggregate.getSteps());
+    row.setCategories(aggregate.getCategories());
+    return row;
+  }
+
+  /**
+   * Make the child collections of a new aggregate unmodifiable before it is stored.
+   */
+  private static Project freeze(Project aggregate) {
+    aggregate.setMaterials(List.copyOf(aggregate.getMaterials()));
+    aggregate.setSteps(List.copyOf(aggregate.getSteps()));
+    aggregate.setCategories(List.copyOf(aggregate.getCategories()));
+    return aggregate;
+  }
+
+  /**
+   * One version of a project row, current from validFrom until validTo, or still current if
+   * validTo is null.
+   */
+  private static final class Version {
+    private final Project row;
+    private final Instant validFrom;
+    private final Instant validTo;
+
+    Version(Project row, Instant validFrom, Instant validTo) {
+      this.row = row;
+      this.validFrom = validFrom;
+      this.validTo = validTo;
+    }
+
+    boolean isCurrentAt(Instant time) {
+      return !validFrom.isAfter(time) && (Objects.isNull(validTo) || validTo.isAfter(time));
+    }
+  }
+
+  private static final class SortedRows {
+    private final long changes;
+    private final List<Project> rows;
+
+    SortedRows(long changes, List<Project> rows) {
+      this.changes = changes;
+      this.rows = rows;
+    }
+  }
+
+  /**
+   * A cursor over the steps of an aggregate snapshot. It holds no resources, so closing it only
+   * ends the iteration.
+   */
+  private static final class SnapshotStepCursor implements StepCursor {
+    private Iterator<Step> steps;
+
+    SnapshotStepCursor(List<Step> steps) {
+      this.steps = steps.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return steps.hasNext();
+    }
+
+    @Override
+    public Step next() {
+      if(!steps.hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      return copyStep(steps.next());
+    }
+
+    @Override
+    public void close() {
+      steps = List.<Step>of().iterator();
+    }
+  }
+
+  /**
+   * Applies the log records on start. Nothing is logged again.
+   */
+  private class LogReplay implements ProjectLog.Replay {
+    @Override
+    public void put(Instant at, List<Project> aggregates) {
+      for(Project aggregate : aggregates) {
+        track(aggregate);
+        apply(at, freeze(aggregate));
+      }
+    }
+
+    @Override
+    public void delete(Instant at, Integer projectId) {
+      remove(at, projectId);
+    }
+
+    @Override
+    public void version(Project row, Instant validFrom, Instant validTo) {
+      List<Version> versions = new ArrayList<>(history.getOrDefault(row.getProjectId(), List.of()));
+      versions.add(new Version(row, validFrom, validTo));
+      history.put(row.getProjectId(), List.copyOf(versions));
+      lastProjectId.accumulateAndGet(row.getProjectId(), Math::max);
+    }
+
+    @Override
+    public void load(Project aggregate) {
+      track(aggregate);
+      projects.put(aggregate.getProjectId(), freeze(aggregate));
+      changes.incrementAndGet();
+    }
+
+    private void track(Project aggregate) {
+      lastProjectId.accumulateAndGet(aggregate.getProjectId(), Math::max);
+
+      for(Material material : aggregate.getMaterials()) {
+        lastMaterialId.accumulateAndGet(material.getMaterialId(), Math::max);
+      }
+
+      for(Step step : aggregate.getSteps()) {
+        lastStepId.accumulateAndGet(step.getStepId(), Math::max);
+      }
+    }
+  }
+}
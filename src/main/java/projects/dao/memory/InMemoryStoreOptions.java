@@ -0,0 +1,54 @@
+package projects.dao.memory;
+
+import java.nio.file.Path;
+
+/**
+ * This holds the settings for an {@link InMemoryProjectStore}. By default there is no log, so the
+ * projects are lost when the process exits. With a log file, every change is appended to the log
+ * before it is applied and the log is replayed when the store is created. Syncing each change to
+ * disk is on by default; turning it off trades the last few changes before a crash for faster
+ * writes.
+ */
+public class InMemoryStoreOptions {
+  private Path logFile;
+  private boolean syncOnWrite = true;
+  private int lockStripes = 64;
+
+  /**
+   * @return The append-only log, or null if there is no log.
+   */
+  public Path getLogFile() {
+    return logFile;
+  }
+
+  public void setLogFile(Path logFile) {
+    this.logFile = logFile;
+  }
+
+  /**
+   * @return true if each change is synced to disk before the operation returns.
+   */
+  public boolean isSyncOnWrite() {
+    return syncOnWrite;
+  }
+
+  public void setSyncOnWrite(boolean syncOnWrite) {
+    this.syncOnWrite = syncOnWrite;
+  }
+
+  public int getLockStripes() {
+    return lockStripes;
+  }
+
+  /**
+   * @param lockStripes The number of locks that writers to different projects are spread over.
+   *        It is rounded up to a power of two.
+   */
+  public void setLockStripes(int lockStripes) {
+    if(lockStripes < 1) {
+      throw new IllegalArgumentException("There must be at least one lock stripe.");
+    }
+
+    this.lockStripes = lockStripes;
+  }
+}
@@ -0,0 +1,423 @@
+package projects.dao.memory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+import projects.dao.cache.Codecs;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+/**
+ * This is the append-only log behind an {@link InMemoryProjectStore}. Each change is one record,
+ * written before the change is applied, so replaying the log rebuilds the store as it was:
+ *
+ * <ul>
+ * <li>PUT: the time and the new state of one or more whole aggregates. It closes each project's
+ * current history version and starts a new one.</li>
+ * <li>DELETE: the time and a project ID. It removes the project and closes its history.</li>
+ * <li>VERSION and LOAD: a history version, or an aggregate with no new version. Only a compacted
+ * log has these; see {@link #rewrite(Contents)}.</li>
+ * </ul>
+ *
+ * A record is its length, a CRC-32 of its body and the body. A crash can leave a partly written
+ * last record; replay stops at the first record that is short or fails its checksum and truncates
+ * the file there. That record was never acknowledged, since the append had not returned. The body
+ * uses the {@link Codecs} helpers, like the query cache.
+ */
+final class ProjectLog implements AutoCloseable {
+  private static final byte PUT = 1;
+  private static final byte DELETE = 2;
+  private static final byte VERSION = 3;
+  private static final byte LOAD = 4;
+
+  private static final int HEADER_BYTES = 8;
+
+  private final Path path;
+  private final boolean syncOnWrite;
+
+  /* Guarded by this. */
+  private FileChannel channel;
+
+  /**
+   * This receives the records of the log, oldest first.
+   */
+  interface Replay {
+    void put(Instant at, List<Project> aggregates);
+
+    void delete(Instant at, Integer projectId);
+
+    void version(Project row, Instant validFrom, Instant validTo);
+
+    void load(Project aggregate);
+  }
+
+  /**
+   * This writes the contents of a compacted log; see {@link #rewrite(Contents)}.
+   */
+  interface Contents {
+    void writeTo(ProjectLog log);
+  }
+
+  private ProjectLog(Path path, boolean syncOnWrite) {
+    this.path = path;
+    this.syncOnWrite = syncOnWrite;
+    this.channel = openChannel(path);
+  }
+
+  /**
+   * Replay the log, if the file exists, and open it for appending.
+   *
+   * @param path The log file.
+   * @param syncOnWrite Whether each record is synced to disk before the append returns.
+   * @param replay Receives the records in the log.
+   * @return The open log.
+   */
+  static ProjectLog open(Path path, boolean syncOnWrite, Replay replay) {
+    try {
+      if(Files.exists(path)) {
+        long validBytes = replay(path, replay);
+
+        if(validBytes < Files.size(path)) {
+          System.err.println("Truncating a torn record at byte " + validBytes + " of " + path + ".");
+
+          try(FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            file.truncate(validBytes);
+            file.force(true);
+          }
+        }
+      }
+      else if(Objects.nonNull(path.getParent())) {
+        Files.createDirectories(path.getParent());
+      }
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to replay the project log " + path + ".", e);
+    }
+
+    return new ProjectLog(path, syncOnWrite);
+  }
+
+  /**
+   * Append a change to one or more aggregates.
+   */
+  void put(Instant at, Collection<Project> aggregates) {
+    append(out -> {
+      out.writeByte(PUT);
+      writeInstant(out, at);
+      out.writeInt(aggregates.size());
+
+      for(Project aggregate : aggregates) {
+        writeAggregate(out, aggregate);
+      }
+    });
+  }
+
+  void delete(Instant at, Integer projectId) {
+    append(out -> {
+      out.writeByte(DELETE);
+      writeInstant(out, at);
+      out.writeInt(projectId);
+    });
+  }
+
+  void version(Project row, Instant validFrom, Instant validTo) {
+    append(out -> {
+      out.writeByte(VERSION);
+      writeRow(out, row);
+      writeInstant(out, validFrom);
+      out.writeBoolean(Objects.nonNull(validTo));
+
+      if(Objects.nonNull(validTo)) {
+        writeInstant(out, validTo);
+      }
+    });
+  }
+
+  void load(Project aggregate) {
+    append(out -> {
+      out.writeByte(LOAD);
+      writeAggregate(out, aggregate);
+    });
+  }
+
+  /**
+   * Replace the log with a new one holding only the given contents, typically the current history
+   * and aggregates. The new log is written to a temporary file, synced, and moved over the old one,
+   * so a crash during the rewrite leaves the old log in place. The caller must stop other appends
+   * until this returns.
+   *
+   * @param contents Writes the records of the new log.
+   */
+  synchronized void rewrite(Contents contents) {
+    Path temporary = path.resolveSibling(path.getFileName() + ".compact");
+
+    try {
+      Files.deleteIfExists(temporary);
+
+      try(ProjectLog compacted = new ProjectLog(temporary, false)) {
+        contents.writeTo(compacted);
+        compacted.channel.force(true);
+      }
+
+      channel.close();
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to compact the project log " + path + ".", e);
+    }
+    finally {
+      if(!channel.isOpen()) {
+        channel = openChannel(path);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      channel.close();
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to close the project log " + path + ".", e);
+    }
+  }
+
+  private synchronized void append(RecordWriter writer) {
+    try {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+      try(DataOutputStream out = new DataOutputStream(body)) {
+        writer.write(out);
+      }
+
+      byte[] bytes = body.toByteArray();
+      CRC32 crc = new CRC32();
+      crc.update(bytes);
+
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bytes.length);
+      buffer.putInt(bytes.length).putInt((int)crc.getValue()).put(bytes).flip();
+
+      while(buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+
+      if(syncOnWrite) {
+        channel.force(false);
+      }
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to write the project log " + path + ".", e);
+    }
+  }
+
+  /**
+   * @return The number of bytes of whole, valid records.
+   */
+  private static long replay(Path path, Replay replay) throws IOException {
+    long size = Files.size(path);
+    long validBytes = 0;
+
+    try(InputStream file = Files.newInputStream(path);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+      while(true) {
+        byte[] body;
+
+        try {
+          int length = in.readInt();
+          int checksum = in.readInt();
+
+          if(length < 1 || length > size - validBytes - HEADER_BYTES) {
+            break;
+          }
+
+          body = new byte[length];
+          in.readFully(body);
+
+          CRC32 crc = new CRC32();
+          crc.update(body);
+
+          if((int)crc.getValue() != checksum) {
+            break;
+          }
+        }
+        catch(EOFException e) {
+          break;
+        }
+
+        apply(body, replay);
+        validBytes += HEADER_BYTES + body.length;
+      }
+    }
+
+    return validBytes;
+  }
+
+  private static void apply(byte[] body, Replay replay) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+    byte type = in.readByte();
+
+    switch(type) {
+      case PUT:
+        Instant at = readInstant(in);
+        int count = in.readInt();
+        List<Project> aggregates = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++) {
+          aggregates.add(readAggregate(in));
+        }
+
+        replay.put(at, aggregates);
+        break;
+
+      case DELETE:
+        replay.delete(readInstant(in), in.readInt());
+        break;
+
+      case VERSION:
+        Project row = readRow(in);
+        Instant validFrom = readInstant(in);
+        replay.version(row, validFrom, in.readBoolean() ? readInstant(in) : null);
+        break;
+
+      case LOAD:
+        replay.load(readAggregate(in));
+        break;
+
+      default:
+        throw new IOException("Unknown project log record type " + type + ".");
+    }
+  }
+
+  private static FileChannel openChannel(Path path) {
+    try {
+      return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to open the project log " + path + ".", e);
+    }
+  }
+
+  private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+    out.writeLong(instant.getEpochSecond());
+    out.writeInt(instant.getNano());
+  }
+
+  private static Instant readInstant(DataInputStream in) throws IOException {
+    long seconds = in.readLong();
+    return Instant.ofEpochSecond(seconds, in.readInt());
+  }
+
+  private static void writeRow(DataOutputStream out, Project project) throws IOException {
+    Codecs.writeInteger(out, project.getProjectId());
+    Codecs.writeString(out, project.getProjectName());
+    Codecs.writeDecimal(out, project.getEstimatedHours());
+    Codecs.writeDecimal(out, project.getActualHours());
+    Codecs.writeInteger(out, project.getDifficulty());
+    Codecs.writeString(out, project.getNotes());
+  }
+
+  private static Project readRow(DataInputStream in) throws IOException {
+    Project project = new Project();
+
+    project.setProjectId(Codecs.readInteger(in));
+    project.setProjectName(Codecs.readString(in));
+    project.setEstimatedHours(Codecs.readDecimal(in));
+    project.setActualHours(Codecs.readDecimal(in));
+    project.setDifficulty(Codecs.readInteger(in));
+    project.setNotes(Codecs.readString(in));
+    return project;
+  }
+
+  private static void writeAggregate(DataOutputStream out, Project project) throws IOException {
+    writeRow(out, project);
+
+    out.writeInt(project.getMaterials().size());
+
+    for(Material material : project.getMaterials()) {
+      Codecs.writeInteger(out, material.getMaterialId());
+      Codecs.writeString(out, material.getMaterialName());
+      Codecs.writeInteger(out, material.getNumRequired());
+      Codecs.writeDecimal(out, material.getCost());
+    }
+
+    out.writeInt(project.getSteps().size());
+
+    for(Step step : project.getSteps()) {
+      Codecs.writeInteger(out, step.getStepId());
+      Codecs.writeString(out, step.getStepText());
+      Codecs.writeInteger(out, step.getStepOrder());
+    }
+
+    out.writeInt(project.getCategories().size());
+
+    for(Category category : project.getCategories()) {
+      Codecs.writeInteger(out, category.getCategoryId());
+      Codecs.writeString(out, category.getCategoryName());
+    }
+  }
+
+  private static Project readAggregate(DataInputStream in) throws IOException {
+    Project project = readRow(in);
+    Integer projectId = project.getProjectId();
+
+    int materials = in.readInt();
+
+    for(int i = 0; i < materials; i++) {
+      Material material = new Material();
+      material.setMaterialId(Codecs.readInteger(in));
+      material.setProjectId(projectId);
+      material.setMaterialName(Codecs.readString(in));
+      material.setNumRequired(Codecs.readInteger(in));
+      material.setCost(Codecs.readDecimal(in));
+      project.getMaterials().add(material);
+    }
+
+    int steps = in.readInt();
+
+    for(int i = 0; i < steps; i++) {
+      Step step = new Step();
+      step.setStepId(Codecs.readInteger(in));
+      step.setProjectId(projectId);
+      step.setStepText(Codecs.readString(in));
+      step.setStepOrder(Codecs.readInteger(in));
+      project.getSteps().add(step);
+    }
+
+    int categories = in.readInt();
+
+    for(int i = 0; i < categories; i++) {
+      Category category = new Category();
+      category.setCategoryId(Codecs.readInteger(in));
+      category.setCategoryName(Codecs.readString(in));
+      project.getCategories().add(category);
+    }
+
+    return project;
+  }
+
+  @FunctionalInterface
+  private interface RecordWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+}
@@ -0,0 +1,97 @@
+package projects.dao.resilience;
+
+import java.time.Duration;
+
+/**
+ * This is a consecutive-failure circuit breaker. While closed, every call goes through. After the
+ * configured number of infrastructure failures in a row the circuit opens and calls fail
+ * immediately, which gives the database room to recover instead of piling up blocked threads.
+ * When the open period ends the circuit is half open: a single probe call is let through, and its
+ * outcome either closes the circuit or opens it for another period.
+ */
+class CircuitBreaker {
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final long openNanos;
+
+  /* Guarded by this. */
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openUntil;
+  private boolean probeInFlight;
+  private long openings;
+
+  CircuitBreaker(int failureThreshold, Duration openDuration) {
+    this.failureThreshold = failureThreshold;
+    this.openNanos = openDuration.toNanos();
+  }
+
+  /**
+   * @return true if the call may go ahead. A caller that gets true must report the outcome with
+   *         {@link #onSuccess()}, {@link #onFailure()} or {@link #onInconclusive()}, whatever the
+   *         call throws.
+   */
+  synchronized boolean tryAcquire() {
+    switch(state) {
+      case CLOSED:
+        return true;
+
+      case OPEN:
+        if(System.nanoTime() - openUntil < 0) {
+          return false;
+        }
+
+        state = State.HALF_OPEN;
+        probeInFlight = true;
+        return true;
+
+      default:
+        if(probeInFlight) {
+          return false;
+        }
+
+        probeInFlight = true;
+        return true;
+    }
+  }
+
+  /**
+   * The call reached the database, even if it failed for an unrelated reason.
+   */
+  synchronized void onSuccess() {
+    consecutiveFailures = 0;
+    probeInFlight = false;
+    state = State.CLOSED;
+  }
+
+  /**
+   * The call failed with something other than a database error, such as a bug in a mapper, so it
+   * says nothing about the database. A probe is released without changing the state, and the next
+   * call probes again.
+   */
+  synchronized void onInconclusive() {
+    probeInFlight = false;
+  }
+
+  synchronized void onFailure() {
+    probeInFlight = false;
+
+    if(state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+      state = State.OPEN;
+      openUntil = System.nanoTime() + openNanos;
+      consecutiveFailures = 0;
+      openings++;
+    }
+  }
+
+  synchronized State getState() {
+    return state;
+  }
+
+  synchronized long getOpenings() {
+    return openings;
+  }
+}
@@ -0,0 +1,98 @@
+package projects.dao.resilience;
+
+import java.net.SocketTimeoutException;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Objects;
+
+import projects.exception.DbConnectException;
+
+/**
+ * This classifies a failed DAO call. The kind decides whether the call may be retried and whether
+ * it counts against the circuit breaker.
+ */
+enum FailureKind {
+  /** The connection couldn't be opened. Nothing reached the server. */
+  CONNECT(true, true, true),
+
+  /** InnoDB chose this transaction as a deadlock victim and rolled it back. */
+  DEADLOCK(true, true, false),
+
+  /** A lock wait timed out or the connection was lost mid-call. */
+  TRANSIENT(true, false, true),
+
+  /** The query or socket deadline was reached. Retrying would only add load. */
+  TIMEOUT(false, false, true),
+
+  /** Anything else: bad SQL, constraint violations and so on. */
+  PERMANENT(false, false, false);
+
+  private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+  private static final int ER_LOCK_DEADLOCK = 1213;
+  private static final int ER_QUERY_TIMEOUT = 3024;
+
+  private final boolean retryableRead;
+  private final boolean retryableWrite;
+  private final boolean infrastructure;
+
+  FailureKind(boolean retryableRead, boolean retryableWrite, boolean infrastructure) {
+    this.retryableRead = retryableRead;
+    this.retryableWrite = retryableWrite;
+    this.infrastructure = infrastructure;
+  }
+
+  /**
+   * @param idempotent true if the call only reads.
+   * @return true if the call may be tried again.
+   */
+  boolean isRetryable(boolean idempotent) {
+    return idempotent ? retryableRead : retryableWrite;
+  }
+
+  /**
+   * @return true if the failure says something about the health of the database, so it counts
+   *         toward opening the circuit.
+   */
+  boolean isInfrastructure() {
+    return infrastructure;
+  }
+
+  /**
+   * Walk the cause chain for the first thing that identifies the failure.
+   */
+  static FailureKind classify(Throwable failure) {
+    for(Throwable t = failure; Objects.nonNull(t); t = t.getCause()) {
+      if(t instanceof DbConnectException) {
+        return CONNECT;
+      }
+
+      if(t instanceof SocketTimeoutException || t instanceof SQLTimeoutException) {
+        return TIMEOUT;
+      }
+
+      if(t instanceof SQLException) {
+        SQLException e = (SQLException)t;
+        String state = Objects.isNull(e.getSQLState()) ? "" : e.getSQLState();
+
+        if(e.getErrorCode() == ER_LOCK_DEADLOCK || state.equals("40001")) {
+          return DEADLOCK;
+        }
+
+        if(e.getErrorCode() == ER_QUERY_TIMEOUT) {
+          return TIMEOUT;
+        }
+
+        if(e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT || state.startsWith("08")
+            || e instanceof SQLTransientConnectionException || e instanceof SQLRecoverableException) {
+          /* A lost connection may still hide a more specific cause, such as a socket timeout. */
+          FailureKind cause = classify(e.getCause());
+          return cause == TIMEOUT ? TIMEOUT : TRANSIENT;
+        }
+      }
+    }
+
+    return PERMANENT;
+  }
+}
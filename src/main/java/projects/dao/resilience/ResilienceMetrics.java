@@ -0,0 +1,62 @@
+package projects.dao.resilience;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters behind {@link ResilienceMetricsMXBean}.
+ */
+class ResilienceMetrics implements ResilienceMetricsMXBean {
+  final LongAdder calls = new LongAdder();
+  final LongAdder failedAttempts = new LongAdder();
+  final LongAdder retries = new LongAdder();
+  final LongAdder retriesExhausted = new LongAdder();
+  final LongAdder shortCircuited = new LongAdder();
+
+  private final CircuitBreaker breaker;
+
+  ResilienceMetrics(CircuitBreaker breaker) {
+    this.breaker = breaker;
+  }
+
+  @Override
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  @Override
+  public long getFailedAttempts() {
+    return failedAttempts.sum();
+  }
+
+  @Override
+  public long getRetries() {
+    return retries.sum();
+  }
+
+  @Override
+  public long getRetriesExhausted() {
+    return retriesExhausted.sum();
+  }
+
+  @Override
+  public long getShortCircuited() {
+    return shortCircuited.sum();
+  }
+
+  @Override
+  public long getCircuitOpenings() {
+    return breaker.getOpenings();
+  }
+
+  @Override
+  public String getCircuitState() {
+    return breaker.getState().name();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("calls=%d failedAttempts=%d retries=%d retriesExhausted=%d shortCircuited=%d "
+        + "circuitOpenings=%d circuitState=%s", getCalls(), getFailedAttempts(), getRetries(),
+        getRetriesExhausted(), getShortCircuited(), getCircuitOpenings(), getCircuitState());
+  }
+}
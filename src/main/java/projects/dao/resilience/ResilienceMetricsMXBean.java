@@ -0,0 +1,28 @@
+package projects.dao.resilience;
+
+/**
+ * The retry and circuit breaker counters exported over JMX for one {@link ResilientProjectDao},
+ * under the name projects:type=Resilience,schema=&lt;schema&gt;.
+ */
+public interface ResilienceMetricsMXBean {
+  /** @return The number of DAO operations started. */
+  long getCalls();
+
+  /** @return The number of attempts that failed, for any reason. */
+  long getFailedAttempts();
+
+  /** @return The number of retries made. */
+  long getRetries();
+
+  /** @return The number of operations that failed with a retryable error after the last try. */
+  long getRetriesExhausted();
+
+  /** @return The number of operations rejected because the circuit was open. */
+  long getShortCircuited();
+
+  /** @return The number of times the circuit has opened. */
+  long getCircuitOpenings();
+
+  /** @return CLOSED, OPEN or HALF_OPEN. */
+  String getCircuitState();
+}
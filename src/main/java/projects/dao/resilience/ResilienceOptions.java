@@ -0,0 +1,86 @@
+package projects.dao.resilience;
+
+import java.time.Duration;
+
+/**
+ * This holds the settings for {@link ResilientProjectDao}. By default an operation is tried at most
+ * three times within a 15 second deadline, with backoff starting at 50 milliseconds, and the
+ * circuit opens for 10 seconds after five consecutive infrastructure failures.
+ */
+public class ResilienceOptions {
+  private int maxAttempts = 3;
+  private Duration initialBackoff = Duration.ofMillis(50);
+  private Duration maxBackoff = Duration.ofSeconds(1);
+  private Duration operationDeadline = Duration.ofSeconds(15);
+  private int failureThreshold = 5;
+  private Duration openDuration = Duration.ofSeconds(10);
+
+  /**
+   * @return The number of times an operation is tried, including the first.
+   */
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public void setMaxAttempts(int maxAttempts) {
+    if(maxAttempts < 1) {
+      throw new IllegalArgumentException("There must be at least one attempt.");
+    }
+
+    this.maxAttempts = maxAttempts;
+  }
+
+  public Duration getInitialBackoff() {
+    return initialBackoff;
+  }
+
+  public void setInitialBackoff(Duration initialBackoff) {
+    this.initialBackoff = initialBackoff;
+  }
+
+  public Duration getMaxBackoff() {
+    return maxBackoff;
+  }
+
+  public void setMaxBackoff(Duration maxBackoff) {
+    this.maxBackoff = maxBackoff;
+  }
+
+  /**
+   * @return The total time allowed for an operation, including retries. A retry is not started if
+   *         its backoff would end after the deadline.
+   */
+  public Duration getOperationDeadline() {
+    return operationDeadline;
+  }
+
+  public void setOperationDeadline(Duration operationDeadline) {
+    this.operationDeadline = operationDeadline;
+  }
+
+  /**
+   * @return The number of consecutive infrastructure failures that opens the circuit.
+   */
+  public int getFailureThreshold() {
+    return failureThreshold;
+  }
+
+  public void setFailureThreshold(int failureThreshold) {
+    if(failureThreshold < 1) {
+      throw new IllegalArgumentException("The failure threshold must be at least 1.");
+    }
+
+    this.failureThreshold = failureThreshold;
+  }
+
+  /**
+   * @return How long the circuit stays open before a probe call is let through.
+   */
+  public Duration getOpenDuration() {
+    return openDuration;
+  }
+
+  public void setOpenDuration(Duration openDuration) {
+    this.openDuration = openDuration;
+  }
+}
@@ -0,0 +1,230 @@
+package projects.dao.resilience;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import projects.dao.FetchProfile;
+import projects.dao.ProjectDao;
+import projects.dao.StepCursor;
+import projects.dao.TransactionTemplate;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.CircuitOpenException;
+import projects.exception.DbException;
+
+/**
+ * This is a {@link ProjectDao} that guards another DAO with retries and a circuit breaker.
+ *
+ * <ul>
+ * <li>Reads are retried after connect failures, deadlocks, lock wait timeouts and lost
+ * connections. Writes are retried only when nothing was committed: after a connect failure or a
+ * deadlock, both of which leave the transaction rolled back.</li>
+ * <li>Retries wait with full-jitter exponential backoff so that many clients failing at once don't
+ * retry in lockstep, and stop at the operation deadline.</li>
+ * <li>Infrastructure failures (connect failures, lost connections, timeouts) feed a
+ * {@link CircuitBreaker}. While it is open, calls fail at once with a
+ * {@link CircuitOpenException}.</li>
+ * </ul>
+ *
+ * Inside a unit of work (see {@link TransactionTemplate}) a failed call is not retried: the
+ * failure has spoiled the whole transaction, so only the caller that started it can retry.
+ *
+ * The per-call deadlines themselves are set on each connection by DbConnection. The counters are
+ * registered over JMX; see {@link ResilienceMetricsMXBean}.
+ */
+public class ResilientProjectDao extends ProjectDao {
+  private final ProjectDao delegate;
+  private final ResilienceOptions options;
+  private final CircuitBreaker breaker;
+  private final ResilienceMetrics metrics;
+
+  /**
+   * @param delegate The DAO that does the work.
+   * @param options The retry and circuit breaker settings.
+   */
+  public ResilientProjectDao(ProjectDao delegate, ResilienceOptions options) {
+    super(delegate.getSchema());
+
+    this.delegate = delegate;
+    this.options = options;
+    this.breaker = new CircuitBreaker(options.getFailureThreshold(), options.getOpenDuration());
+    this.metrics = new ResilienceMetrics(breaker);
+
+    registerMetrics();
+  }
+
+  /**
+   * @return The retry and circuit breaker counters.
+   */
+  public ResilienceMetricsMXBean getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public Project insertProject(Project project) {
+    return call("insertProject", false, () -> delegate.insertProject(project));
+  }
+
+  @Override
+  public List<Project> fetchAllProjects() {
+    return call("fetchAllProjects", true, delegate::fetchAllProjects);
+  }
+
+  @Override
+  public Optional<Project> fetchProjectById(Integer projectId, FetchProfile profile) {
+    return call("fetchProjectById", true, () -> delegate.fetchProjectById(projectId, profile));
+  }
+
+  @Override
+  public Optional<Project> fetchProjectAsOf(Integer projectId, Instant asOf) {
+    return call("fetchProjectAsOf", true, () -> delegate.fetchProjectAsOf(projectId, asOf));
+  }
+
+  @Override
+  public boolean modifyProjectDetails(Project project) {
+    return call("modifyProjectDetails", false, () -> delegate.modifyProjectDetails(project));
+  }
+
+  @Override
+  public int updateActualHours(Map<Integer, BigDecimal> actualHours) {
+    return call("updateActualHours", false, () -> delegate.updateActualHours(actualHours));
+  }
+
+  @Override
+  public boolean deleteProject(Integer projectId) {
+    return call("deleteProject", false, () -> delegate.deleteProject(projectId));
+  }
+
+  @Override
+  public List<Step> fetchStepRange(Integer projectId, int afterStepOrder, int maxSteps) {
+    return call("fetchStepRange", true, () -> delegate.fetchStepRange(projectId, afterStepOrder, maxSteps));
+  }
+
+  /**
+   * Only opening the cursor is guarded. A failure while reading it goes straight to the caller,
+   * which has already consumed some of the rows.
+   */
+  @Override
+  public StepCursor openStepCursor(Integer projectId) {
+    return call("openStepCursor", true, () -> delegate.openStepCursor(projectId));
+  }
+
+  /**
+   * Nothing is read until the subscriber requests projects, so there is nothing to guard here. A
+   * failure during the export is signalled to the subscriber.
+   */
+  @Override
+  public Flow.Publisher<Project> publishAllProjects() {
+    return delegate.publishAllProjects();
+  }
+
+  private <T> T call(String operation, boolean idempotent, Supplier<T> action) {
+    metrics.calls.increment();
+
+    long deadline = System.nanoTime() + options.getOperationDeadline().toNanos();
+
+    for(int attempt = 1;; attempt++) {
+      if(!breaker.tryAcquire()) {
+        metrics.shortCircuited.increment();
+        throw new CircuitOpenException(
+            "The database circuit for schema '" + getSchema() + "' is open; " + operation + " was not attempted.");
+      }
+
+      try {
+        T result = action.get();
+        breaker.onSuccess();
+        return result;
+      }
+      catch(DbException e) {
+        metrics.failedAttempts.increment();
+
+        FailureKind kind = FailureKind.classify(e);
+
+        if(kind.isInfrastructure()) {
+          breaker.onFailure();
+        }
+        else {
+          breaker.onSuccess();
+        }
+
+        if(!kind.isRetryable(idempotent) || TransactionTemplate.inUnitOfWork(getSchema())) {
+          throw e;
+        }
+
+        long backoff = backoffNanos(attempt);
+
+        if(attempt >= options.getMaxAttempts() || System.nanoTime() + backoff - deadline > 0) {
+          metrics.retriesExhausted.increment();
+          throw e;
+        }
+
+        if(!sleep(backoff)) {
+          throw e;
+        }
+
+        metrics.retries.increment();
+      }
+      catch(RuntimeException | Error e) {
+        /* Not a database failure, but a half-open probe must still be released. */
+        breaker.onInconclusive();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Full jitter: a random wait between zero and an exponentially growing cap.
+   */
+  private long backoffNanos(int attempt) {
+    long initial = options.getInitialBackoff().toNanos();
+    long cap = Math.min(options.getMaxBackoff().toNanos(), initial << Math.min(attempt - 1, 20));
+    return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+  }
+
+  /**
+   * @return false if the thread was interrupted, which abandons the retry.
+   */
+  private boolean sleep(long nanos) {
+    try {
+      Thread.sleep(nanos / 1_000_000, (int)(nanos % 1_000_000));
+      return true;
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Register the counters. A DAO created later for the same schema replaces the earlier one's.
+   */
+  private void registerMetrics() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    try {
+      ObjectName name = new ObjectName("projects:type=Resilience,schema=" + ObjectName.quote(getSchema()));
+
+      try {
+        server.registerMBean(metrics, name);
+      }
+      catch(InstanceAlreadyExistsException e) {
+        server.unregisterMBean(name);
+        server.registerMBean(metrics, name);
+      }
+    }
+    catch(JMException e) {
+      System.err.println("Unable to register resilience metrics: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package projects.dao.shard;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import projects.dao.DbConnection;
+import projects.exception.DbException;
+
+/**
+ * This hands out project IDs that are unique across all shards. IDs are reserved from the
+ * project_id_sequence table in blocks, so the sequence table is only touched once per block
+ * rather than once per insert. IDs from a block that isn't used up before the process exits are
+ * simply skipped.
+ *
+ * Unsharded inserts use the project table's AUTO_INCREMENT and don't advance the sequence, and
+ * the migration only seeded it from one schema. So before its first block, an allocator raises
+ * the sequence past the highest project ID in every shard.
+ */
+public class IdAllocator {
+  private static final String SEQUENCE_TABLE = "project_id_sequence";
+
+  private final String schema;
+  private final List<String> shardSchemas;
+  private final int blockSize;
+
+  private boolean caughtUp;
+  private long nextId;
+  private long blockEnd;
+
+  /**
+   * @param schema The schema that holds the sequence table. Every allocator in every process must
+   *        use the same schema.
+   * @param shardSchemas The schemas whose project IDs the sequence must stay above.
+   * @param blockSize The number of IDs reserved at a time.
+   */
+  public IdAllocator(String schema, List<String> shardSchemas, int blockSize) {
+    if(blockSize < 1) {
+      throw new IllegalArgumentException("Block size must be at least 1.");
+    }
+
+    this.schema = schema;
+    this.shardSchemas = List.copyOf(shardSchemas);
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * @return The next unused project ID.
+   */
+  public synchronized int nextId() {
+    if(nextId >= blockEnd) {
+      if(!caughtUp) {
+        catchUp();
+        caughtUp = true;
+      }
+
+      reserveBlock();
+    }
+
+    return Math.toIntExact(nextId++);
+  }
+
+  /**
+   * Raise the sequence to one past the highest project ID in any shard, including soft-deleted
+   * projects. The sequence never moves backwards, so allocators racing here are harmless.
+   */
+  private void catchUp() {
+    long highest = 0;
+
+    for(String shardSchema : shardSchemas) {
+      try(Connection conn = DbConnection.getConnection(shardSchema);
+          PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(project_id), 0) FROM project");
+          ResultSet rs = stmt.executeQuery()) {
+        rs.next();
+        highest = Math.max(highest, rs.getLong(1));
+      }
+      catch(SQLException e) {
+        throw new DbException(e);
+      }
+    }
+
+    String update = "UPDATE " + SEQUENCE_TABLE + " SET next_id = GREATEST(next_id, ?)";
+
+    try(Connection conn = DbConnection.getConnection(schema);
+        PreparedStatement stmt = conn.prepareStatement(update)) {
+      stmt.setLong(1, highest + 1);
+      stmt.executeUpdate();
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Advance the sequence by a block in a single atomic UPDATE. LAST_INSERT_ID(expr) remembers the
+   * new value for this connection, so it can be read back without a race against other
+   * allocators.
+   */
+  private void reserveBlock() {
+    String update = "UPDATE " + SEQUENCE_TABLE + " SET next_id = LAST_INSERT_ID(next_id + ?)";
+
+    try(Connection conn = DbConnection.getConnection(schema)) {
+      try(PreparedStatement stmt = conn.prepareStatement(update)) {
+        stmt.setInt(1, blockSize);
+
+        if(stmt.executeUpdate() != 1) {
+          throw new DbException("The " + SEQUENCE_TABLE + " table in " + schema + " is not seeded.");
+        }
+      }
+
+      try(PreparedStatement stmt = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+          ResultSet rs = stmt.executeQuery()) {
+        rs.next();
+        blockEnd = rs.getLong(1);
+        nextId = blockEnd - blockSize;
+      }
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+}
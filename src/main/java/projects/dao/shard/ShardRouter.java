@@ -0,0 +1,129 @@
+package projects.dao.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This decides which shard schema holds a project. Projects are placed either by a hash of the
+ * project ID, which spreads them evenly, or by project ID ranges, which keeps neighbouring IDs
+ * together and lets a range be moved to a new shard as a unit.
+ *
+ * Sharding is turned on with system properties:
+ *
+ * <pre>
+ * -Dprojects.shards=projects_0,projects_1,projects_2
+ * -Dprojects.shard.ranges=1000000,2000000   (optional; hash routing is used if not set)
+ * </pre>
+ *
+ * For ranges, shard i holds the IDs below the i-th bound (and at or above the previous one). The
+ * last shard holds everything above the last bound, so there is one fewer bound than shards.
+ */
+public class ShardRouter {
+  public static final String SHARDS_PROPERTY = "projects.shards";
+  public static final String RANGES_PROPERTY = "projects.shard.ranges";
+
+  private final List<String> schemas;
+  private final int[] upperBounds;
+
+  private ShardRouter(List<String> schemas, int[] upperBounds) {
+    if(schemas.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard schema is required.");
+    }
+
+    this.schemas = List.copyOf(schemas);
+    this.upperBounds = upperBounds;
+  }
+
+  /**
+   * @param schemas The shard schemas.
+   * @return A router that places projects by a hash of the project ID.
+   */
+  public static ShardRouter hashed(List<String> schemas) {
+    return new ShardRouter(schemas, null);
+  }
+
+  /**
+   * @param schemas The shard schemas.
+   * @param upperBounds The exclusive upper project ID of each shard except the last, ascending.
+   * @return A router that places projects by project ID range.
+   */
+  public static ShardRouter ranged(List<String> schemas, int[] upperBounds) {
+    if(upperBounds.length != schemas.size() - 1) {
+      throw new IllegalArgumentException("There must be one fewer range bound than shards.");
+    }
+
+    for(int index = 1; index < upperBounds.length; index++) {
+      if(upperBounds[index] <= upperBounds[index - 1]) {
+        throw new IllegalArgumentException("Range bounds must be ascending.");
+      }
+    }
+
+    return new ShardRouter(schemas, upperBounds.clone());
+  }
+
+  /**
+   * Create a router from the system properties described above.
+   *
+   * @return The router, or null if sharding is not configured.
+   */
+  public static ShardRouter fromSystemProperties() {
+    String shards = System.getProperty(SHARDS_PROPERTY);
+
+    if(Objects.isNull(shards) || shards.isBlank()) {
+      return null;
+    }
+
+    List<String> schemas = new ArrayList<>();
+
+    for(String schema : shards.split(",")) {
+      schemas.add(schema.trim());
+    }
+
+    String ranges = System.getProperty(RANGES_PROPERTY);
+
+    if(Objects.isNull(ranges) || ranges.isBlank()) {
+      return hashed(schemas);
+    }
+
+    int[] upperBounds = Arrays.stream(ranges.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    return ranged(schemas, upperBounds);
+  }
+
+  /**
+   * @return The shard schemas in shard order.
+   */
+  public List<String> getSchemas() {
+    return schemas;
+  }
+
+  /**
+   * @param projectId The project ID.
+   * @return The index of the shard that holds the project.
+   */
+  public int shardFor(int projectId) {
+    if(Objects.isNull(upperBounds)) {
+      return Math.floorMod(mix(projectId), schemas.size());
+    }
+
+    int index = Arrays.binarySearch(upperBounds, projectId);
+
+    /* An ID equal to a bound belongs to the next shard since bounds are exclusive. */
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  /**
+   * Scramble the bits of the ID so that sequential IDs are spread across shards. This is the
+   * finalizer from MurmurHash3.
+   */
+  private static int mix(int value) {
+    int hash = value;
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
@@ -0,0 +1,252 @@
+package projects.dao.shard;
+
+import java.math.BigDecimal;
+import java.text.Collator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+
+import projects.dao.CategoryDictionary;
+import projects.dao.FetchProfile;
+import projects.dao.ProjectDao;
+import projects.dao.ProjectPublisher;
+import projects.dao.StepCursor;
+import projects.dao.resilience.ResilienceOptions;
+import projects.dao.resilience.ResilientProjectDao;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * This is a {@link ProjectDao} that spreads projects across several schemas. Each shard is an
+ * ordinary ProjectDao bound to one schema; this class decides which shard to use.
+ *
+ * <ul>
+ * <li>Project IDs are allocated by an {@link IdAllocator} before the insert, so an ID is unique
+ * across shards and the shard is known before the row is written.</li>
+ * <li>Operations on a single project are sent to the shard picked by the {@link ShardRouter}.
+ * Each shard has its own {@link ResilientProjectDao}, so one failing shard opens only its own
+ * circuit.</li>
+ * <li>Listing projects queries every shard in parallel and merges the sorted results, so the
+ * combined list is still in project name order.</li>
+ * <li>The {@link CategoryDictionary} is pointed at every shard, so the projects in a category
+ * come from all of them.</li>
+ * </ul>
+ */
+public class ShardedProjectDao extends ProjectDao {
+  private static final int ID_BLOCK_SIZE = 100;
+
+  private final ShardRouter router;
+  private final List<ProjectDao> shards = new ArrayList<>();
+  private final IdAllocator idAllocator;
+  private final ExecutorService scatterExecutor;
+
+  /**
+   * Create a sharded DAO. IDs are allocated from the sequence table in the first shard, starting
+   * above the highest project ID in any shard.
+   *
+   * @param router Maps project IDs to shards.
+   */
+  public ShardedProjectDao(ShardRouter router) {
+    super(router.getSchemas().get(0));
+
+    this.router = router;
+    this.idAllocator = new IdAllocator(router.getSchemas().get(0), router.getSchemas(), ID_BLOCK_SIZE);
+
+    /* Categories and the projects in each category are spread across the shards too. */
+    CategoryDictionary.getInstance().setSchemas(router.getSchemas());
+
+    for(String schema : router.getSchemas()) {
+      shards.add(new ResilientProjectDao(new ProjectDao(schema), new ResilienceOptions()));
+    }
+
+    this.scatterExecutor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+      Thread thread = new Thread(runnable, "shard-scatter");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @return The router used to place projects.
+   */
+  public ShardRouter getRouter() {
+    return router;
+  }
+
+  @Override
+  public Project insertProject(Project project) {
+    if(Objects.isNull(project.getProjectId())) {
+      project.setProjectId(idAllocator.nextId());
+    }
+
+    return shardFor(project.getProjectId()).insertProject(project);
+  }
+
+  /**
+   * Fetch the projects from every shard at the same time, then merge the per-shard lists. Each
+   * list is already sorted by the database, so the merge is a single pass.
+   */
+  @Override
+  public List<Project> fetchAllProjects() {
+    List<CompletableFuture<List<Project>>> futures = new ArrayList<>();
+
+    for(ProjectDao shard : shards) {
+      futures.add(CompletableFuture.supplyAsync(shard::fetchAllProjects, scatterExecutor));
+    }
+
+    List<List<Project>> results = new ArrayList<>();
+
+    try {
+      for(CompletableFuture<List<Project>> future : futures) {
+        results.add(future.join());
+      }
+    }
+    catch(CompletionException e) {
+      if(e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)e.getCause();
+      }
+
+      throw e;
+    }
+
+    return merge(results);
+  }
+
+  @Override
+  public Optional<Project> fetchProjectById(Integer projectId, FetchProfile profile) {
+    return shardFor(projectId).fetchProjectById(projectId, profile);
+  }
+
+  @Override
+  public Optional<Project> fetchProjectAsOf(Integer projectId, Instant asOf) {
+    return shardFor(projectId).fetchProjectAsOf(projectId, asOf);
+  }
+
+  @Override
+  public boolean modifyProjectDetails(Project project) {
+    return shardFor(project.getProjectId()).modifyProjectDetails(project);
+  }
+
+  /**
+   * Split the updates by shard and send one batch to each shard.
+   */
+  @Override
+  public int updateActualHours(Map<Integer, BigDecimal> actualHours) {
+    Map<Integer, Map<Integer, BigDecimal>> byShard = new HashMap<>();
+
+    for(Map.Entry<Integer, BigDecimal> entry : actualHours.entrySet()) {
+      byShard.computeIfAbsent(router.shardFor(entry.getKey()), shard -> new HashMap<>())
+          .put(entry.getKey(), entry.getValue());
+    }
+
+    int updated = 0;
+
+    for(Map.Entry<Integer, Map<Integer, BigDecimal>> entry : byShard.entrySet()) {
+      updated += shards.get(entry.getKey()).updateActualHours(entry.getValue());
+    }
+
+    return updated;
+  }
+
+  @Override
+  public boolean deleteProject(Integer projectId) {
+    return shardFor(projectId).deleteProject(projectId);
+  }
+
+  @Override
+  public List<Step> fetchStepRange(Integer projectId, int afterStepOrder, int maxSteps) {
+    return shardFor(projectId).fetchStepRange(projectId, afterStepOrder, maxSteps);
+  }
+
+  @Override
+  public StepCursor openStepCursor(Integer projectId) {
+    return shardFor(projectId).openStepCursor(projectId);
+  }
+
+  /**
+   * Export the shards one after the other. Projects are in ID order within each shard, not
+   * across shards.
+   */
+  @Override
+  public Flow.Publisher<Project> publishAllProjects() {
+    return new ProjectPublisher(router.getSchemas());
+  }
+
+  private ProjectDao shardFor(Integer projectId) {
+    return shards.get(router.shardFor(projectId));
+  }
+
+  /**
+   * Merge lists that are each sorted by project name into one sorted list. The comparison must
+   * agree with the ORDER BY in each shard. MySQL's default collation ignores case and accents, so
+   * names are compared with a collator at primary strength rather than with String.compareTo.
+   * Equal names are ordered by project ID so that the result is stable.
+   */
+  private List<Project> merge(List<List<Project>> sortedLists) {
+    Collator collator = Collator.getInstance(Locale.ROOT);
+    collator.setStrength(Collator.PRIMARY);
+
+    Comparator<Project> byName = Comparator.comparing(Project::getProjectName, collator::compare);
+    Comparator<Project> order = byName.thenComparing(Project::getProjectId);
+    Comparator<MergeCursor> byHead = (a, b) -> order.compare(a.head, b.head);
+
+    PriorityQueue<MergeCursor> queue = new PriorityQueue<>(byHead);
+
+    for(List<Project> list : sortedLists) {
+      Iterator<Project> iterator = list.iterator();
+
+      if(iterator.hasNext()) {
+        queue.add(new MergeCursor(iterator));
+      }
+    }
+
+    List<Project> merged = new LinkedList<>();
+
+    while(!queue.isEmpty()) {
+      MergeCursor cursor = queue.poll();
+      merged.add(cursor.head);
+
+      if(cursor.advance()) {
+        queue.add(cursor);
+      }
+    }
+
+    return merged;
+  }
+
+  /**
+   * The current position in one shard's sorted list.
+   */
+  private static class MergeCursor {
+    private final Iterator<Project> iterator;
+    private Project head;
+
+    MergeCursor(Iterator<Project> iterator) {
+      this.iterator = iterator;
+      this.head = iterator.next();
+    }
+
+    boolean advance() {
+      if(iterator.hasNext()) {
+        head = iterator.next();
+        return true;
+      }
+
+      return false;
+    }
+  }
+}
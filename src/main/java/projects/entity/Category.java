@@ -3,11 +3,16 @@
  */
 package projects.entity;
 
+import projects.mapping.Id;
+import projects.mapping.Table;
+
 /**
  * @author Promineo
  *
  */
+@Table("category")
 public class Category {
+  @Id
   private Integer categoryId;
   private String categoryName;
 
@@ -0,0 +1,78 @@
+package projects.entity;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * This is a list that doesn't load its contents until it is first used. It is used for the child
+ * collections of a {@link Project} (materials, steps and categories) when the DAO is asked not to
+ * load them up front.
+ *
+ * The loader runs at most once. It must get its own database connection rather than rely on the
+ * transaction that loaded the project, since that transaction has usually ended by the time the
+ * list is used. All methods are synchronized, so the list can be handed to another thread.
+ *
+ * @param <E> The type of element in the list.
+ */
+public class LazyList<E> extends AbstractList<E> {
+  private Supplier<List<E>> loader;
+  private List<E> elements;
+
+  /**
+   * @param loader This is called on first access to load the elements.
+   */
+  public LazyList(Supplier<List<E>> loader) {
+    this.loader = Objects.requireNonNull(loader);
+  }
+
+  /**
+   * @return true if the elements have been loaded.
+   */
+  public synchronized boolean isLoaded() {
+    return Objects.nonNull(elements);
+  }
+
+  @Override
+  public synchronized E get(int index) {
+    return elements().get(index);
+  }
+
+  @Override
+  public synchronized int size() {
+    return elements().size();
+  }
+
+  @Override
+  public synchronized E set(int index, E element) {
+    return elements().set(index, element);
+  }
+
+  @Override
+  public synchronized void add(int index, E element) {
+    elements().add(index, element);
+    modCount++;
+  }
+
+  @Override
+  public synchronized E remove(int index) {
+    E removed = elements().remove(index);
+    modCount++;
+    return removed;
+  }
+
+  /**
+   * Load the elements if needed. The loader is dropped afterward so that anything it holds onto
+   * can be garbage collected.
+   */
+  private List<E> elements() {
+    if(Objects.isNull(elements)) {
+      elements = new ArrayList<>(loader.get());
+      loader = null;
+    }
+
+    return elements;
+  }
+}
@@ -5,11 +5,16 @@ package projects.entity;
 
 import java.math.BigDecimal;
 
+import projects.mapping.Id;
+import projects.mapping.Table;
+
 /**
  * @author Promineo
  *
  */
+@Table("material")
 public class Material {
+  @Id
   private Integer materialId;
   private Integer projectId;
   private String materialName;
@@ -7,11 +7,17 @@ import java.math.BigDecimal;
 import java.util.LinkedList;
 import java.util.List;
 
+import projects.mapping.Id;
+import projects.mapping.Table;
+import projects.mapping.Transient;
+
 /**
  * @author Promineo
  *
  */
+@Table("project")
 public class Project {
+  @Id
   private Integer projectId;
   private String projectName;
   private BigDecimal estimatedHours;
@@ -19,8 +25,11 @@ public class Project {
   private Integer difficulty;
   private String notes;
 
+  @Transient
   private List<Material> materials = new LinkedList<>();
+  @Transient
   private List<Step> steps = new LinkedList<>();
+  @Transient
   private List<Category> categories = new LinkedList<>();
 
   public Integer getProjectId() {
@@ -75,14 +84,26 @@ public class Project {
     return materials;
   }
 
+  public void setMaterials(List<Material> materials) {
+    this.materials = materials;
+  }
+
   public List<Step> getSteps() {
     return steps;
   }
 
+  public void setSteps(List<Step> steps) {
+    this.steps = steps;
+  }
+
   public List<Category> getCategories() {
     return categories;
   }
 
+  public void setCategories(List<Category> categories) {
+    this.categories = categories;
+  }
+
   @Override
   public String toString() {
     String result = "";
@@ -3,11 +3,16 @@
  */
 package projects.entity;
 
+import projects.mapping.Id;
+import projects.mapping.Table;
+
 /**
  * @author Promineo
  *
  */
+@Table("step")
 public class Step {
+  @Id
   private Integer stepId;
   private Integer projectId;
   private String stepText;
@@ -0,0 +1,18 @@
+package projects.exception;
+
+/**
+ * This is thrown instead of calling the database while the circuit breaker is open, that is,
+ * after the database has failed repeatedly and before it has been probed again.
+ */
+@SuppressWarnings("serial")
+public class CircuitOpenException extends DbException {
+
+  /**
+   * Create an exception with a message. The message is stored in the parent class.
+   * 
+   * @param message The message.
+   */
+  public CircuitOpenException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,20 @@
+package projects.exception;
+
+/**
+ * This is thrown when a connection to the database can't be opened. It is a separate type because
+ * no statement has reached the server when it is thrown, so any operation, even a write, can be
+ * retried safely.
+ */
+@SuppressWarnings("serial")
+public class DbConnectException extends DbException {
+
+  /**
+   * Create an exception with a message and a cause.
+   * 
+   * @param message The message.
+   * @param cause The cause.
+   */
+  public DbConnectException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,15 @@
+package projects.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This marks the primary key field of a {@link Table} entity. The key is left out of generated
+ * INSERT columns (it is assigned by the database) and is bound last in generated UPDATEs.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Id {
+}
@@ -0,0 +1,20 @@
+package projects.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * This creates an object from the current row of a result set. The generated mappers' map methods
+ * match this interface, so they can be passed as ProjectMapper::map.
+ *
+ * @param <T> The type of object created.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+  /**
+   * @param rs The result set, positioned on the row to read by the caller.
+   * @return The object.
+   * @throws SQLException Thrown if a column can't be read.
+   */
+  T map(ResultSet rs) throws SQLException;
+}
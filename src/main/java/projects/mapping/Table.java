@@ -0,0 +1,24 @@
+package projects.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This marks an entity class that is stored in a table. At build time, the mapper processor
+ * generates a class named after the entity (ProjectMapper for Project) in the same package. The
+ * generated class reads rows into the entity and binds the entity to INSERT and UPDATE statements.
+ *
+ * Each non-static field is mapped to the column with the same name in snake case (estimatedHours
+ * is estimated_hours). The build fails if that column is not in the table, as defined by
+ * projects-schema.sql plus the migrations.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Table {
+  /**
+   * @return The table name.
+   */
+  String value();
+}
@@ -0,0 +1,438 @@
+package projects.mapping.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+import projects.mapping.Id;
+import projects.mapping.Table;
+import projects.mapping.Transient;
+
+/**
+ * This annotation processor generates a mapper class for every class annotated with
+ * {@link Table}. The generated mapper replaces the reflection in DaoBase.extract: it reads each
+ * column with a typed ResultSet getter and calls the entity's setter directly. It also holds the
+ * column lists and statement binders used to write the entity. The binders are written out as
+ * straight-line code too, one typed setter call per column.
+ *
+ * The processor reads the table definitions from the schema script and the migration scripts. It
+ * is given their locations with these options:
+ *
+ * <pre>
+ * -Aprojects.schema=src/main/resources/projects-schema.sql
+ * -Aprojects.migrations=src/main/resources/db/migration
+ * </pre>
+ *
+ * If an entity field has no matching column, the processor reports a compile error on the field.
+ */
+@SupportedAnnotationTypes("projects.mapping.Table")
+@SupportedOptions({MapperProcessor.SCHEMA_OPTION, MapperProcessor.MIGRATIONS_OPTION})
+public class MapperProcessor extends AbstractProcessor {
+  static final String SCHEMA_OPTION = "projects.schema";
+  static final String MIGRATIONS_OPTION = "projects.migrations";
+
+  private static final Pattern CREATE_TABLE =
+      Pattern.compile("CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?`?(\\w+)`?\\s*\\((.*?)\\)\\s*;",
+          Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  private static final Pattern ADD_COLUMN =
+      Pattern.compile("ALTER\\s+TABLE\\s+`?(\\w+)`?\\s+ADD\\s+(?:COLUMN\\s+)?`?(\\w+)`?",
+          Pattern.CASE_INSENSITIVE);
+
+  /* Lines in a CREATE TABLE body that define keys rather than columns. */
+  private static final Set<String> KEY_WORDS =
+      Set.of("PRIMARY", "FOREIGN", "UNIQUE", "KEY", "INDEX", "CONSTRAINT", "CHECK");
+
+  private Map<String, Set<String>> tables;
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for(Element element : roundEnv.getElementsAnnotatedWith(Table.class)) {
+      if(element.getKind() != ElementKind.CLASS) {
+        error(element, "@Table can only be used on a class.");
+        continue;
+      }
+
+      TypeElement entity = (TypeElement)element;
+      List<ColumnField> fields = readFields(entity);
+
+      if(Objects.nonNull(fields)) {
+        writeMapper(entity, fields);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Match each field of the entity to a column and find its setter and getter.
+   *
+   * @return The fields in declaration order, or null if an error was reported.
+   */
+  private List<ColumnField> readFields(TypeElement entity) {
+    String table = entity.getAnnotation(Table.class).value();
+    Set<String> columns = tables().get(table.toLowerCase(Locale.ROOT));
+    List<ColumnField> fields = new LinkedList<>();
+    boolean valid = true;
+
+    if(Objects.isNull(columns)) {
+      error(entity, "Table " + table + " is not defined in the schema or migrations.");
+      return null;
+    }
+
+    for(VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+      if(field.getModifiers().contains(Modifier.STATIC) || Objects.nonNull(field.getAnnotation(Transient.class))) {
+        continue;
+      }
+
+      String name = field.getSimpleName().toString();
+      String column = camelCaseToSnakeCase(name);
+      String type = field.asType().toString();
+      ColumnType columnType = ColumnType.of(type);
+
+      if(!columns.contains(column)) {
+        error(field, "Field " + name + " has no matching column " + table + "." + column
+            + ". Add the column in a migration or mark the field @Transient.");
+        valid = false;
+      }
+      else if(Objects.isNull(columnType)) {
+        error(field, "Field " + name + " has type " + type + ", which the mapper can't read.");
+        valid = false;
+      }
+      else if(!hasMethod(entity, setterOf(name), 1) || !hasMethod(entity, getterOf(name), 0)) {
+        error(field, "Field " + name + " needs a " + getterOf(name) + "() getter and a "
+            + setterOf(name) + "() setter.");
+        valid = false;
+      }
+      else {
+        boolean id = Objects.nonNull(field.getAnnotation(Id.class));
+        fields.add(new ColumnField(name, column, columnType, id));
+      }
+    }
+
+    return valid ? fields : null;
+  }
+
+  private void writeMapper(TypeElement entity, List<ColumnField> fields) {
+    String packageName = ((PackageElement)entity.getEnclosingElement()).getQualifiedName().toString();
+    String entityName = entity.getSimpleName().toString();
+    String mapperName = entityName + "Mapper";
+    String table = entity.getAnnotation(Table.class).value();
+
+    List<ColumnField> writable = fields.stream().filter(f -> !f.id).collect(Collectors.toList());
+    ColumnField id = fields.stream().filter(f -> f.id).findFirst().orElse(null);
+
+    try(PrintWriter out = new PrintWriter(processingEnv.getFiler()
+        .createSourceFile(packageName + "." + mapperName, entity).openWriter())) {
+      out.println("package " + packageName + ";");
+      out.println();
+      out.println("import java.sql.PreparedStatement;");
+      out.println("import java.sql.ResultSet;");
+      out.println("import java.sql.SQLException;");
+      out.println();
+      out.println("import javax.annotation.processing.Generated;");
+      out.println();
+      out.println("import projects.dao.binding.StatementBinder;");
+      out.println();
+      out.println("/**");
+      out.println(" * Maps " + entityName + " to the " + table + " table. Generated from the @Table annotation; do not edit.");
+      out.println(" */");
+      out.println("@Generated(\"" + getClass().getName() + "\")");
+      out.println("public final class " + mapperName + " {");
+      out.println("  public static final String TABLE = \"" + table + "\";");
+      out.println();
+      out.println("  /** All mapped columns in field order. */");
+      out.println("  public static final String COLUMNS = \"" + columnList(fields) + "\";");
+      out.println();
+      out.println("  /** The columns written by an INSERT. The ID is left out since it is generated. */");
+      out.println("  public static final String INSERT_COLUMNS = \"" + columnList(writable) + "\";");
+      out.println();
+      out.println("  /** The placeholders for INSERT_COLUMNS. */");
+      out.println("  public static final String INSERT_PARAMETERS = \"" + placeholders(writable.size()) + "\";");
+      out.println();
+      out.println("  /** The SET clause assignments for an UPDATE of every column except the ID. */");
+      out.println("  public static final String UPDATE_ASSIGNMENTS = \""
+          + writable.stream().map(f -> f.column + " = ?").collect(Collectors.joining(", ")) + "\";");
+
+      if(Objects.nonNull(id)) {
+        out.println();
+        out.println("  public static final String ID_COLUMN = \"" + id.column + "\";");
+      }
+
+      out.println();
+      out.println("  /** Binds INSERT_COLUMNS, or the SET clause built from UPDATE_ASSIGNMENTS. */");
+      out.println("  public static final StatementBinder<" + entityName + "> INSERT_BINDER = " + binder(entityName, writable));
+      out.println();
+      out.println("  /** Binds every column in COLUMNS order, including the ID. */");
+      out.println("  public static final StatementBinder<" + entityName + "> ROW_BINDER = " + binder(entityName, fields));
+      out.println();
+      out.println("  private " + mapperName + "() {}");
+      out.println();
+      out.println("  /**");
+      out.println("   * Create a " + entityName + " from the current row. Every column in COLUMNS must be in the result set.");
+      out.println("   */");
+      out.println("  public static " + entityName + " map(ResultSet rs) throws SQLException {");
+      out.println("    " + entityName + " entity = new " + entityName + "();");
+
+      for(ColumnField field : fields) {
+        out.println("    " + field.type.read(setterOf(field.name), field.column));
+      }
+
+      out.println("    return entity;");
+      out.println("  }");
+      out.println("}");
+    }
+    catch(IOException e) {
+      error(entity, "Unable to write " + mapperName + ": " + e.getMessage());
+    }
+  }
+
+  private String binder(String entityName, List<ColumnField> fields) {
+    StringBuilder code = new StringBuilder("new StatementBinder<>(" + fields.size() + ") {\n");
+    code.append("    @Override\n");
+    code.append("    public int bind(PreparedStatement stmt, int firstIndex, " + entityName
+        + " entity) throws SQLException {\n");
+
+    for(int column = 0; column < fields.size(); column++) {
+      ColumnField field = fields.get(column);
+      String index = column == 0 ? "firstIndex" : "firstIndex + " + column;
+      code.append("      ").append(field.type.bind(index, "entity." + getterOf(field.name) + "()")).append("\n");
+    }
+
+    code.append("      return firstIndex + " + fields.size() + ";\n");
+    code.append("    }\n");
+    return code.append("  };").toString();
+  }
+
+  /**
+   * Read the column names of every table from the schema script, then add the columns created by
+   * ALTER TABLE ... ADD COLUMN in the migrations.
+   */
+  private Map<String, Set<String>> tables() {
+    if(Objects.nonNull(tables)) {
+      return tables;
+    }
+
+    tables = new HashMap<>();
+    String schema = processingEnv.getOptions().get(SCHEMA_OPTION);
+    String migrations = processingEnv.getOptions().get(MIGRATIONS_OPTION);
+
+    if(Objects.isNull(schema)) {
+      processingEnv.getMessager().printMessage(Kind.ERROR,
+          "The -A" + SCHEMA_OPTION + " option must name the schema script.");
+      return tables;
+    }
+
+    List<Path> scripts = new LinkedList<>();
+    scripts.add(Path.of(schema));
+
+    if(Objects.nonNull(migrations)) {
+      try(Stream<Path> files = Files.list(Path.of(migrations))) {
+        files.filter(p -> p.toString().endsWith(".sql")).sorted().forEach(scripts::add);
+      }
+      catch(IOException e) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, "Unable to list " + migrations + ": " + e);
+      }
+    }
+
+    for(Path script : scripts) {
+      try {
+        parse(Files.readString(script, StandardCharsets.UTF_8));
+      }
+      catch(IOException e) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, "Unable to read " + script + ": " + e);
+      }
+    }
+
+    return tables;
+  }
+
+  private void parse(String script) {
+    String sql = script.replaceAll("--[^\\n]*", "");
+    Matcher create = CREATE_TABLE.matcher(sql);
+
+    while(create.find()) {
+      Set<String> columns = new LinkedHashSet<>();
+
+      for(String line : create.group(2).split(",\\s*\\n")) {
+        String[] words = line.trim().split("\\s+");
+        String first = words[0].replace("`", "");
+
+        if(!first.isEmpty() && !KEY_WORDS.contains(first.toUpperCase(Locale.ROOT))) {
+          columns.add(first.toLowerCase(Locale.ROOT));
+        }
+      }
+
+      tables.put(create.group(1).toLowerCase(Locale.ROOT), columns);
+    }
+
+    Matcher add = ADD_COLUMN.matcher(sql);
+
+    while(add.find()) {
+      Set<String> columns = tables.get(add.group(1).toLowerCase(Locale.ROOT));
+
+      if(Objects.nonNull(columns) && !KEY_WORDS.contains(add.group(2).toUpperCase(Locale.ROOT))) {
+        columns.add(add.group(2).toLowerCase(Locale.ROOT));
+      }
+    }
+  }
+
+  private boolean hasMethod(TypeElement entity, String name, int parameters) {
+    for(ExecutableElement method : ElementFilter.methodsIn(entity.getEnclosedElements())) {
+      if(method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+          && method.getModifiers().contains(Modifier.PUBLIC)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+  }
+
+  private static String columnList(List<ColumnField> fields) {
+    return fields.stream().map(f -> f.column).collect(Collectors.joining(", "));
+  }
+
+  private static String placeholders(int count) {
+    return String.join(", ", Collections.nCopies(count, "?"));
+  }
+
+  private static String getterOf(String field) {
+    return "get" + Character.toUpperCase(field.charAt(0)) + field.substring(1);
+  }
+
+  private static String setterOf(String field) {
+    return "set" + Character.toUpperCase(field.charAt(0)) + field.substring(1);
+  }
+
+  /**
+   * This converts a camel case value (rowInsertTime) to snake case (row_insert_time). It must
+   * match the conversion in DaoBase so that entities map to the same columns.
+   */
+  private static String camelCaseToSnakeCase(String identifier) {
+    StringBuilder nameBuilder = new StringBuilder();
+
+    for(char ch : identifier.toCharArray()) {
+      if(Character.isUpperCase(ch)) {
+        nameBuilder.append('_').append(Character.toLowerCase(ch));
+      }
+      else {
+        nameBuilder.append(ch);
+      }
+    }
+
+    return nameBuilder.toString();
+  }
+
+  private static class ColumnField {
+    private final String name;
+    private final String column;
+    private final ColumnType type;
+    private final boolean id;
+
+    ColumnField(String name, String column, ColumnType type, boolean id) {
+      this.name = name;
+      this.column = column;
+      this.type = type;
+      this.id = id;
+    }
+  }
+
+  /**
+   * The field types that the mapper supports, with the code to read and bind each one.
+   */
+  private enum ColumnType {
+    INTEGER("java.lang.Integer", "getInt", true, "bindInteger"),
+    LONG("java.lang.Long", "getLong", true, "bindBigint"),
+    BOOLEAN("java.lang.Boolean", "getBoolean", true, "bindBool"),
+    STRING("java.lang.String", "getString", false, "bindString"),
+    DECIMAL("java.math.BigDecimal", "getBigDecimal", false, "bindDecimal"),
+    LOCAL_DATE("java.time.LocalDate", null, false, "bindDate"),
+    LOCAL_DATE_TIME("java.time.LocalDateTime", null, false, "bindDateTime");
+
+    private final String javaType;
+    private final String getter;
+    private final boolean boxed;
+    private final String binderMethod;
+
+    private ColumnType(String javaType, String getter, boolean boxed, String binderMethod) {
+      this.javaType = javaType;
+      this.getter = getter;
+      this.boxed = boxed;
+      this.binderMethod = binderMethod;
+    }
+
+    static ColumnType of(String javaType) {
+      for(ColumnType type : values()) {
+        if(type.javaType.equals(javaType)) {
+          return type;
+        }
+      }
+
+      return null;
+    }
+
+    /**
+     * Boxed types are read with the primitive getter and wasNull() so that SQL NULL stays null
+     * without going through getObject().
+     */
+    String read(String setter, String column) {
+      if(boxed) {
+        return "{ var value = rs." + getter + "(\"" + column + "\"); entity." + setter
+            + "(rs.wasNull() ? null : value); }";
+      }
+
+      if(Objects.isNull(getter)) {
+        return "entity." + setter + "(rs.getObject(\"" + column + "\", " + javaType + ".class));";
+      }
+
+      return "entity." + setter + "(rs." + getter + "(\"" + column + "\"));";
+    }
+
+    /**
+     * The binder methods are the static ones on StatementBinder, which the generated subclass
+     * inherits.
+     */
+    String bind(String index, String value) {
+      return binderMethod + "(stmt, " + index + ", " + value + ");";
+    }
+  }
+}
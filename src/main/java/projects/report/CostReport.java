@@ -0,0 +1,155 @@
+package projects.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * This is the nightly project cost report: material cost, estimated and actual hours and the
+ * overrun (actual hours minus estimated hours), broken down by difficulty.
+ *
+ * Money is held in cents and hours in hundredths of an hour, both as longs, so adding a project
+ * costs a few integer additions. Overflow throws an ArithmeticException rather than wrapping. The
+ * values are converted to decimals only when the report is written.
+ *
+ * A report is filled by one thread. Reports for different partitions are combined with
+ * {@link #merge(CostReport)}.
+ */
+public class CostReport {
+  /**
+   * Passed to {@link #add} for hours that are NULL in the database.
+   */
+  public static final long MISSING = Long.MIN_VALUE;
+
+  private static final String CSV_HEADER = "difficulty,projects,material_cost,estimated_hours,"
+      + "actual_hours,overrun_hours,projects_over_estimate";
+
+  /* Keyed by difficulty. Projects with no difficulty are under the null key. */
+  private final Map<Integer, Totals> byDifficulty = new HashMap<>();
+
+  /**
+   * Add one project.
+   *
+   * @param difficulty The difficulty, or null.
+   * @param materialCents The total cost of the project's materials in cents.
+   * @param estimatedHundredths The estimated hours in hundredths, or {@link #MISSING}.
+   * @param actualHundredths The actual hours in hundredths, or {@link #MISSING}.
+   */
+  public void add(Integer difficulty, long materialCents, long estimatedHundredths, long actualHundredths) {
+    Totals totals = byDifficulty.get(difficulty);
+
+    if(Objects.isNull(totals)) {
+      totals = new Totals();
+      byDifficulty.put(difficulty, totals);
+    }
+
+    totals.projects++;
+    totals.materialCents = Math.addExact(totals.materialCents, materialCents);
+
+    if(estimatedHundredths != MISSING) {
+      totals.estimatedHundredths = Math.addExact(totals.estimatedHundredths, estimatedHundredths);
+    }
+
+    if(actualHundredths != MISSING) {
+      totals.actualHundredths = Math.addExact(totals.actualHundredths, actualHundredths);
+    }
+
+    /* An overrun is only known when both hours are. */
+    if(estimatedHundredths != MISSING && actualHundredths != MISSING) {
+      long overrun = actualHundredths - estimatedHundredths;
+      totals.overrunHundredths = Math.addExact(totals.overrunHundredths, overrun);
+
+      if(overrun > 0) {
+        totals.projectsOverEstimate++;
+      }
+    }
+  }
+
+  /**
+   * Add another report's totals to this one.
+   *
+   * @return This report.
+   */
+  public CostReport merge(CostReport other) {
+    other.byDifficulty.forEach((difficulty, totals) -> byDifficulty.merge(difficulty, totals, Totals::plus));
+    return this;
+  }
+
+  /**
+   * @return The number of projects in the report.
+   */
+  public long getProjectCount() {
+    return overall().projects;
+  }
+
+  /**
+   * @return The total material cost.
+   */
+  public BigDecimal getMaterialCost() {
+    return BigDecimal.valueOf(overall().materialCents, 2);
+  }
+
+  /**
+   * Write the report as CSV: a header, one row per difficulty in ascending order (projects with no
+   * difficulty first, with an empty difficulty), and a final row labelled "all".
+   */
+  public void writeCsv(Writer out) throws IOException {
+    Map<Integer, Totals> sorted = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+    sorted.putAll(byDifficulty);
+
+    out.write(CSV_HEADER);
+    out.write('\n');
+
+    for(Map.Entry<Integer, Totals> entry : sorted.entrySet()) {
+      writeRow(out, Objects.isNull(entry.getKey()) ? "" : entry.getKey().toString(), entry.getValue());
+    }
+
+    writeRow(out, "all", overall());
+    out.flush();
+  }
+
+  private Totals overall() {
+    return byDifficulty.values().stream().reduce(new Totals(), Totals::plus);
+  }
+
+  private void writeRow(Writer out, String difficulty, Totals totals) throws IOException {
+    // @formatter:off
+    out.write(difficulty
+        + "," + totals.projects
+        + "," + BigDecimal.valueOf(totals.materialCents, 2).toPlainString()
+        + "," + BigDecimal.valueOf(totals.estimatedHundredths, 2).toPlainString()
+        + "," + BigDecimal.valueOf(totals.actualHundredths, 2).toPlainString()
+        + "," + BigDecimal.valueOf(totals.overrunHundredths, 2).toPlainString()
+        + "," + totals.projectsOverEstimate
+        + "\n");
+    // @formatter:on
+  }
+
+  private static class Totals {
+    long projects;
+    long materialCents;
+    long estimatedHundredths;
+    long actualHundredths;
+    long overrunHundredths;
+    long projectsOverEstimate;
+
+    /**
+     * @return A new Totals holding the sum of this and the other.
+     */
+    Totals plus(Totals other) {
+      Totals sum = new Totals();
+      sum.projects = projects + other.projects;
+      sum.materialCents = Math.addExact(materialCents, other.materialCents);
+      sum.estimatedHundredths = Math.addExact(estimatedHundredths, other.estimatedHundredths);
+      sum.actualHundredths = Math.addExact(actualHundredths, other.actualHundredths);
+      sum.overrunHundredths = Math.addExact(overrunHundredths, other.overrunHundredths);
+      sum.projectsOverEstimate = projectsOverEstimate + other.projectsOverEstimate;
+      return sum;
+    }
+  }
+}
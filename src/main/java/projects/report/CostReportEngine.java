@@ -0,0 +1,97 @@
+package projects.report;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This builds a {@link CostReport} for every project in a schema without loading projects one at
+ * a time. The project ID range is split in half recursively until each piece is no larger than
+ * the partition size; the pieces are read concurrently on a fork/join pool and their reports are
+ * merged as the tasks join.
+ *
+ * The pool's parallelism is also the number of connections in use at once, so it should stay
+ * within what the database will allow.
+ */
+public class CostReportEngine {
+  public static final int DEFAULT_PARTITION_SIZE = 5000;
+
+  private final CostSource source;
+  private final int parallelism;
+  private final int partitionSize;
+
+  /**
+   * Create an engine that reads the given schema, with one connection per available processor.
+   *
+   * @param schema The schema that holds the project tables.
+   */
+  public CostReportEngine(String schema) {
+    this(new JdbcCostSource(schema), Runtime.getRuntime().availableProcessors(), DEFAULT_PARTITION_SIZE);
+  }
+
+  /**
+   * @param source Supplies the rows.
+   * @param parallelism The number of partitions read at once.
+   * @param partitionSize The largest number of project IDs in a partition.
+   */
+  public CostReportEngine(CostSource source, int parallelism, int partitionSize) {
+    if(parallelism < 1 || partitionSize < 1) {
+      throw new IllegalArgumentException("Parallelism and partition size must be at least 1.");
+    }
+
+    this.source = source;
+    this.parallelism = parallelism;
+    this.partitionSize = partitionSize;
+  }
+
+  /**
+   * @return The report for every project.
+   */
+  public CostReport run() {
+    int[] range = source.projectIdRange();
+
+    if(range.length == 0) {
+      return new CostReport();
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+    try {
+      return pool.invoke(new RangeTask(range[0], range[1]));
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Reports on project IDs first to last inclusive. Bounds are longs so that the midpoint of a
+   * range near Integer.MAX_VALUE can't overflow.
+   */
+  @SuppressWarnings("serial")
+  private class RangeTask extends RecursiveTask<CostReport> {
+    private final long first;
+    private final long last;
+
+    RangeTask(long first, long last) {
+      this.first = first;
+      this.last = last;
+    }
+
+    @Override
+    protected CostReport compute() {
+      if(last - first + 1 <= partitionSize) {
+        CostReport report = new CostReport();
+        source.read((int)first, (int)last, report);
+        return report;
+      }
+
+      long middle = first + (last - first) / 2;
+      RangeTask low = new RangeTask(first, middle);
+      RangeTask high = new RangeTask(middle + 1, last);
+
+      low.fork();
+      CostReport highReport = high.compute();
+      return low.join().merge(highReport);
+    }
+  }
+}
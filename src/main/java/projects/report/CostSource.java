@@ -0,0 +1,23 @@
+package projects.report;
+
+/**
+ * This supplies the rows for a {@link CostReportEngine}. The engine splits the project ID range
+ * into partitions and reads them concurrently, so {@link #read} must be safe to call from several
+ * threads at once.
+ */
+public interface CostSource {
+  /**
+   * @return The lowest and highest project IDs as {first, last}, or an empty array if there are no
+   *         projects.
+   */
+  int[] projectIdRange();
+
+  /**
+   * Add every project with an ID from first to last inclusive to the report.
+   *
+   * @param firstProjectId The first project ID in the partition.
+   * @param lastProjectId The last project ID in the partition.
+   * @param report The report for this partition. Only the calling thread uses it.
+   */
+  void read(int firstProjectId, int lastProjectId, CostReport report);
+}
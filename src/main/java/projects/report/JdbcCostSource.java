@@ -0,0 +1,101 @@
+package projects.report;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import projects.dao.DbConnection;
+import projects.exception.DbException;
+
+/**
+ * This reads a partition with two queries on one connection, projects and their materials, both
+ * in project ID order, and merge-joins them. The decimal columns are scaled to whole hundredths by
+ * MySQL, so the rows arrive as longs and no BigDecimal is created per row.
+ *
+ * Materials of soft-deleted projects are skipped by the join, since their projects aren't read.
+ */
+class JdbcCostSource implements CostSource {
+  // @formatter:off
+  private static final String PROJECT_ID_RANGE_SQL = ""
+      + "SELECT MIN(project_id), MAX(project_id) FROM project WHERE deleted_at IS NULL";
+
+  private static final String PROJECTS_SQL = ""
+      + "SELECT project_id, difficulty, "
+      + "CAST(estimated_hours * 100 AS SIGNED), CAST(actual_hours * 100 AS SIGNED) "
+      + "FROM project WHERE project_id BETWEEN ? AND ? AND deleted_at IS NULL "
+      + "ORDER BY project_id";
+
+  private static final String MATERIALS_SQL = ""
+      + "SELECT project_id, COALESCE(num_required, 1), CAST(cost * 100 AS SIGNED) "
+      + "FROM material WHERE project_id BETWEEN ? AND ? AND cost IS NOT NULL "
+      + "ORDER BY project_id";
+  // @formatter:on
+
+  private final String schema;
+
+  JdbcCostSource(String schema) {
+    this.schema = schema;
+  }
+
+  @Override
+  public int[] projectIdRange() {
+    try(Connection conn = DbConnection.getConnection(schema);
+        PreparedStatement stmt = conn.prepareStatement(PROJECT_ID_RANGE_SQL);
+        ResultSet rs = stmt.executeQuery()) {
+      rs.next();
+      int first = rs.getInt(1);
+
+      return rs.wasNull() ? new int[0] : new int[] {first, rs.getInt(2)};
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * Both result sets are read into the driver's buffer, which is why the engine keeps partitions
+   * small: MySQL can stream only one result set per connection at a time.
+   */
+  @Override
+  public void read(int firstProjectId, int lastProjectId, CostReport report) {
+    try(Connection conn = DbConnection.getConnection(schema);
+        PreparedStatement projects = conn.prepareStatement(PROJECTS_SQL);
+        PreparedStatement materials = conn.prepareStatement(MATERIALS_SQL)) {
+      projects.setInt(1, firstProjectId);
+      projects.setInt(2, lastProjectId);
+      materials.setInt(1, firstProjectId);
+      materials.setInt(2, lastProjectId);
+
+      try(ResultSet projectRows = projects.executeQuery(); ResultSet materialRows = materials.executeQuery()) {
+        boolean hasMaterial = materialRows.next();
+
+        while(projectRows.next()) {
+          int projectId = projectRows.getInt(1);
+          int difficulty = projectRows.getInt(2);
+          Integer difficultyKey = projectRows.wasNull() ? null : difficulty;
+          long estimated = projectRows.getLong(3);
+          estimated = projectRows.wasNull() ? CostReport.MISSING : estimated;
+          long actual = projectRows.getLong(4);
+          actual = projectRows.wasNull() ? CostReport.MISSING : actual;
+
+          long materialCents = 0;
+
+          while(hasMaterial && materialRows.getInt(1) <= projectId) {
+            if(materialRows.getInt(1) == projectId) {
+              materialCents = Math.addExact(materialCents,
+                  Math.multiplyExact(materialRows.getLong(2), materialRows.getLong(3)));
+            }
+
+            hasMaterial = materialRows.next();
+          }
+
+          report.add(difficultyKey, materialCents, estimated, actual);
+        }
+      }
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+}
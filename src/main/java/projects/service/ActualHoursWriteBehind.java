@@ -0,0 +1,437 @@
+package projects.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import projects.dao.ProjectStore;
+import projects.exception.DbException;
+
+/**
+ * This buffers updates to a project's actual hours and writes them to the database in batches.
+ * The time-tracking integration updates the same projects many times a minute; only the latest
+ * value for each project matters, so repeated updates to a project are merged in memory and the
+ * merged values are written in one change by {@link ProjectStore#updateActualHours(Map)}.
+ *
+ * A flush happens when the number of projects with pending updates reaches the configured limit,
+ * on a timer, when {@link #flush()} is called, and when the JVM shuts down.
+ *
+ * If a write-ahead log directory is configured, {@link #record(Integer, BigDecimal)} appends the
+ * update to the log and syncs it to disk before returning. The log is split into segments: each
+ * flush seals the current segment and starts a new one, and sealed segments are deleted once their
+ * updates are in the database. Segments left over from a crash are replayed when the buffer is
+ * created.
+ *
+ * Values that can't fit the actual_hours column are rejected by {@link #record(Integer, BigDecimal)}.
+ * If a flush fails anyway, the batch is written again in smaller parts to find the values the
+ * database refuses; those are dropped and reported on stderr, so one bad value can't hold back the
+ * rest. If no part can be written, the database is taken to be down and the whole batch is kept
+ * for the next flush.
+ *
+ * A caller that writes a project directly, such as modifying or deleting it, calls
+ * {@link #discard(Integer)} first so a pending value can't be flushed over its write.
+ */
+public class ActualHoursWriteBehind implements AutoCloseable {
+  private static final String SEGMENT_PREFIX = "actual-hours-";
+  private static final String SEGMENT_SUFFIX = ".wal";
+
+  /* actual_hours is DECIMAL(7,2). */
+  private static final BigDecimal MAX_ACTUAL_HOURS = new BigDecimal("100000");
+
+  /* Logged in place of a value when a pending value is discarded. */
+  private static final String DISCARDED = "-";
+
+  private final ProjectStore projectStore;
+  private final WriteBehindOptions options;
+  private final ScheduledExecutorService flusher;
+  private final Thread shutdownHook;
+
+  /* Guarded by this. */
+  private Map<Integer, BigDecimal> pending = new HashMap<>();
+  private final List<Path> sealedSegments = new ArrayList<>();
+  private FileChannel segment;
+  private Path segmentPath;
+  private long segmentNumber;
+  private boolean closed;
+
+  /* Only one flush writes to the database at a time. */
+  private final Object flushLock = new Object();
+
+  /**
+   * Create the buffer, replay any write-ahead log left by a previous run, and start the flush
+   * timer.
+   *
+   * @param projectStore The store the updates are written to.
+   * @param options The flush triggers and log directory.
+   */
+  public ActualHoursWriteBehind(ProjectStore projectStore, WriteBehindOptions options) {
+    this.projectStore = projectStore;
+    this.options = options;
+
+    if(Objects.nonNull(options.getWalDirectory())) {
+      replayLog();
+      openSegment();
+    }
+
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "actual-hours-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    long millis = options.getFlushInterval().toMillis();
+    flusher.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+
+    shutdownHook = new Thread(this::close, "actual-hours-shutdown-flush");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * Record a new actual hours value for a project. The value replaces any pending value for the
+   * same project. When a log is configured, the value is on disk when this method returns.
+   *
+   * @param projectId The project ID.
+   * @param actualHours The new actual hours.
+   * @throws IllegalArgumentException if the value doesn't fit the actual_hours column.
+   */
+  public synchronized void record(Integer projectId, BigDecimal actualHours) {
+    if(Objects.isNull(actualHours) || actualHours.abs().compareTo(MAX_ACTUAL_HOURS) >= 0) {
+      throw new IllegalArgumentException("Actual hours must be below " + MAX_ACTUAL_HOURS + ", not " + actualHours + ".");
+    }
+
+    if(closed) {
+      throw new IllegalStateException("The actual hours buffer has been closed.");
+    }
+
+    if(Objects.nonNull(segment)) {
+      appendToLog(projectId, actualHours.toPlainString());
+    }
+
+    pending.put(projectId, actualHours);
+
+    /*
+     * Submitted under the lock: close() marks the buffer closed under it before shutting the
+     * flusher down, so the flusher can't reject this.
+     */
+    if(pending.size() >= options.getMaxPendingProjects()) {
+      flusher.execute(this::flushQuietly);
+    }
+  }
+
+  /**
+   * @param projectId The project ID.
+   * @return The value waiting to be written for the project, or null if there is none.
+   */
+  public synchronized BigDecimal getPending(Integer projectId) {
+    return pending.get(projectId);
+  }
+
+  /**
+   * Drop the pending value for a project, if there is one. This waits for a flush in progress, so
+   * when it returns no value recorded before the call can still be written. When a log is
+   * configured, the discard is logged so the value isn't replayed after a crash.
+   *
+   * @param projectId The project ID.
+   */
+  public void discard(Integer projectId) {
+    synchronized(flushLock) {
+      synchronized(this) {
+        if(!pending.containsKey(projectId)) {
+          return;
+        }
+
+        if(Objects.nonNull(segment)) {
+          appendToLog(projectId, DISCARDED);
+        }
+
+        pending.remove(projectId);
+      }
+    }
+  }
+
+  /**
+   * Write all pending updates to the database now.
+   *
+   * @return The number of projects updated.
+   */
+  public int flush() {
+    synchronized(flushLock) {
+      Map<Integer, BigDecimal> batch;
+      List<Path> flushedSegments;
+
+      synchronized(this) {
+        if(pending.isEmpty()) {
+          return 0;
+        }
+
+        batch = pending;
+        pending = new HashMap<>();
+
+        if(Objects.nonNull(segment)) {
+          sealSegment();
+          openSegment();
+        }
+
+        flushedSegments = new ArrayList<>(sealedSegments);
+      }
+
+      try {
+        int updated = projectStore.updateActualHours(batch);
+        deleteSegments(flushedSegments);
+        return updated;
+      }
+      catch(RuntimeException e) {
+        Map<Integer, BigDecimal> unwritten = new HashMap<>(batch);
+        int updated = batch.size() > 1 ? writeInParts(new ArrayList<>(batch.entrySet()), unwritten) : 0;
+
+        if(unwritten.size() == batch.size()) {
+          /* Put the batch back, but don't overwrite anything recorded since the flush started. */
+          synchronized(this) {
+            batch.forEach(pending::putIfAbsent);
+          }
+
+          throw e;
+        }
+
+        unwritten.forEach((projectId, actualHours) -> System.err.println("Dropping actual hours "
+            + actualHours.toPlainString() + " for project " + projectId + "; the database refused them."));
+
+        deleteSegments(flushedSegments);
+        return updated;
+      }
+    }
+  }
+
+  /**
+   * Write a batch that failed as a whole in halves, down to single projects.
+   *
+   * @param entries The part to write. It has failed as a whole already.
+   * @param unwritten The values not yet written. Each part written is removed from it.
+   * @return The number of projects updated.
+   */
+  private int writeInParts(List<Map.Entry<Integer, BigDecimal>> entries, Map<Integer, BigDecimal> unwritten) {
+    if(entries.size() == 1) {
+      return 0;
+    }
+
+    int updated = 0;
+    int middle = entries.size() / 2;
+
+    for(List<Map.Entry<Integer, BigDecimal>> part : List.of(entries.subList(0, middle),
+        entries.subList(middle, entries.size()))) {
+      Map<Integer, BigDecimal> values = new HashMap<>();
+      part.forEach(entry -> values.put(entry.getKey(), entry.getValue()));
+
+      try {
+        updated += projectStore.updateActualHours(values);
+        values.keySet().forEach(unwritten::remove);
+      }
+      catch(RuntimeException e) {
+        updated += writeInParts(part, unwritten);
+      }
+    }
+
+    return updated;
+  }
+
+  /**
+   * Stop the flush timer and write everything that is pending. This is also run by the shutdown
+   * hook.
+   */
+  @Override
+  public void close() {
+    synchronized(this) {
+      if(closed) {
+        return;
+      }
+
+      closed = true;
+    }
+
+    flusher.shutdown();
+
+    try {
+      flush();
+    }
+    finally {
+      synchronized(this) {
+        closeSegment();
+        deleteIfEmpty(segmentPath);
+      }
+
+      if(Thread.currentThread() != shutdownHook) {
+        try {
+          Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch(IllegalStateException e) {
+          /* The JVM is already shutting down. */
+        }
+      }
+    }
+  }
+
+  /**
+   * Flush from the timer or a size trigger. Any failure is caught: an exception escaping a
+   * scheduleWithFixedDelay task would cancel the timer for good.
+   */
+  private void flushQuietly() {
+    try {
+      flush();
+    }
+    catch(RuntimeException e) {
+      System.err.println("Unable to flush actual hours; will retry: " + e.getMessage());
+    }
+  }
+
+  private void appendToLog(Integer projectId, String value) {
+    byte[] line = (projectId + "," + value + "\n").getBytes(StandardCharsets.UTF_8);
+
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(line);
+
+      while(buffer.hasRemaining()) {
+        segment.write(buffer);
+      }
+
+      segment.force(false);
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to write the actual hours log.", e);
+    }
+  }
+
+  /**
+   * Read every segment left in the log directory, oldest first, so the newest value for each
+   * project wins. The segments stay on disk until their values have been flushed.
+   */
+  private void replayLog() {
+    Path directory = options.getWalDirectory();
+
+    try {
+      Files.createDirectories(directory);
+
+      List<Path> segments;
+
+      try(Stream<Path> files = Files.list(directory)) {
+        segments = files.filter(p -> segmentNumberOf(p) >= 0)
+            .sorted((a, b) -> Long.compare(segmentNumberOf(a), segmentNumberOf(b))).toList();
+      }
+
+      for(Path path : segments) {
+        for(String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+          String[] fields = line.split(",");
+
+          /* A torn last line from a crash is skipped; it was never acknowledged. */
+          if(fields.length == 2) {
+            try {
+              Integer projectId = Integer.valueOf(fields[0]);
+
+              if(fields[1].equals(DISCARDED)) {
+                pending.remove(projectId);
+              }
+              else {
+                pending.put(projectId, new BigDecimal(fields[1]));
+              }
+            }
+            catch(NumberFormatException e) {
+              continue;
+            }
+          }
+        }
+
+        sealedSegments.add(path);
+        segmentNumber = Math.max(segmentNumber, segmentNumberOf(path) + 1);
+      }
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to replay the actual hours log.", e);
+    }
+  }
+
+  private void openSegment() {
+    segmentPath = options.getWalDirectory().resolve(SEGMENT_PREFIX + segmentNumber++ + SEGMENT_SUFFIX);
+
+    try {
+      segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND);
+    }
+    catch(IOException e) {
+      throw new DbException("Unable to open the actual hours log.", e);
+    }
+  }
+
+  private void sealSegment() {
+    closeSegment();
+    sealedSegments.add(segmentPath);
+  }
+
+  private void closeSegment() {
+    if(Objects.nonNull(segment)) {
+      try {
+        segment.close();
+      }
+      catch(IOException e) {
+        throw new DbException("Unable to close the actual hours log.", e);
+      }
+      finally {
+        segment = null;
+      }
+    }
+  }
+
+  private void deleteSegments(List<Path> segments) {
+    for(Path path : segments) {
+      try {
+        Files.deleteIfExists(path);
+      }
+      catch(IOException e) {
+        /* Leaving it only means the values are replayed, and rewritten, on the next start. */
+        System.err.println("Unable to delete " + path + ": " + e.getMessage());
+      }
+    }
+
+    synchronized(this) {
+      sealedSegments.removeAll(segments);
+    }
+  }
+
+  private void deleteIfEmpty(Path path) {
+    try {
+      if(Objects.nonNull(path) && Files.exists(path) && Files.size(path) == 0) {
+        Files.delete(path);
+      }
+    }
+    catch(IOException e) {
+      /* An empty segment is harmless on replay. */
+    }
+  }
+
+  private static long segmentNumberOf(Path path) {
+    String name = path.getFileName().toString();
+
+    if(!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+      return -1;
+    }
+
+    try {
+      return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+    catch(NumberFormatException e) {
+      return -1;
+    }
+  }
+}
@@ -1,37 +1,311 @@
 package projects.service;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
 
+import projects.dao.CategoryDictionary;
+import projects.dao.DbConnection;
+import projects.dao.FetchProfile;
+import projects.dao.HistoryCompactor;
 import projects.dao.ProjectDao;
+import projects.dao.ProjectPublisher;
+import projects.dao.ProjectPurger;
+import projects.dao.ProjectStore;
+import projects.dao.PurgeCriteria;
+import projects.dao.PurgeListener;
+import projects.dao.PurgeOptions;
+import projects.dao.SchemaMigrator;
+import projects.dao.StepCursor;
+import projects.dao.TransactionOptions;
+import projects.dao.TransactionTemplate;
+import projects.dao.memory.InMemoryProjectStore;
+import projects.dao.memory.InMemoryStoreOptions;
+import projects.dao.resilience.ResilienceOptions;
+import projects.dao.resilience.ResilientProjectDao;
+import projects.dao.shard.ShardRouter;
+import projects.dao.shard.ShardedProjectDao;
+import projects.entity.Category;
 import projects.entity.Project;
+import projects.entity.Step;
 import projects.exception.DbException;
+import projects.report.CostReport;
+import projects.report.CostReportEngine;
+import projects.similarity.DuplicateCluster;
+import projects.similarity.DuplicateDetector;
 
 public class ProjectService {
-    private ProjectDao projectDao = new ProjectDao();
+    private ShardRouter shardRouter = ShardRouter.fromSystemProperties();
+    private InMemoryProjectStore memoryStore = createMemoryStore();
+    private ProjectStore projectStore = Objects.nonNull(memoryStore) ? memoryStore
+            : Objects.isNull(shardRouter)
+                    ? new ResilientProjectDao(new ProjectDao(), new ResilienceOptions())
+                    : new ShardedProjectDao(shardRouter);
+    private List<ProjectPurger> projectPurgers = new LinkedList<>();
+    private ActualHoursWriteBehind actualHoursBuffer;
+    private DuplicateDetector duplicateDetector;
+
+    public ProjectService() {
+        if (Objects.isNull(memoryStore)) {
+            for (String schema : schemas()) {
+                projectPurgers.add(new ProjectPurger(schema));
+            }
+        }
+
+        duplicateDetector = new DuplicateDetector(schemas(), DuplicateDetector.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * The store is picked by the projects.store system property: "database" (the default) for
+     * MySQL, or "memory" for an {@link InMemoryProjectStore}. With the memory store,
+     * projects.store.log names an append-only log file that keeps the projects across restarts.
+     *
+     * @return The memory store, or null if the database is used.
+     */
+    private static InMemoryProjectStore createMemoryStore() {
+        String store = System.getProperty("projects.store", "database");
+
+        switch (store) {
+            case "database":
+                return null;
+            case "memory":
+                InMemoryStoreOptions options = new InMemoryStoreOptions();
+                String logFile = System.getProperty("projects.store.log");
+
+                if (Objects.nonNull(logFile)) {
+                    options.setLogFile(Path.of(logFile));
+                }
+
+                return new InMemoryProjectStore(options);
+            default:
+                throw new IllegalArgumentException("Unknown project store \"" + store + "\"; use database or memory.");
+        }
+    }
+
+    /**
+     * Reports, purges, duplicate detection and the category index query the database directly.
+     */
+    private void requireDatabase(String operation) {
+        if (Objects.nonNull(memoryStore)) {
+            throw new UnsupportedOperationException(operation + " needs the database store.");
+        }
+    }
+
+    /**
+     * Bring every schema (each shard, when sharding is on) up to the latest migration. The memory
+     * store has no schema, so this does nothing.
+     */
+    public void migrateSchemas() {
+        if (Objects.nonNull(memoryStore)) {
+            return;
+        }
+
+        for (String schema : schemas()) {
+            new SchemaMigrator(schema).migrate();
+        }
+    }
+
+    private List<String> schemas() {
+        return Objects.isNull(shardRouter) ? List.of(DbConnection.getSchema()) : shardRouter.getSchemas();
+    }
+
+    /**
+     * Write the project cost report for every schema as CSV.
+     */
+    public void writeCostReport(Writer out) throws IOException {
+        requireDatabase("The cost report");
+
+        CostReport report = new CostReport();
+
+        for (String schema : schemas()) {
+            report.merge(new CostReportEngine(schema).run());
+        }
+
+        report.writeCsv(out);
+    }
 
     public Project addProject(Project project) {
-        return projectDao.insertProject(project);
+        return projectStore.insertProject(project);
+    }
+
+    /**
+     * Run duplicate detection over every project as it is stored now.
+     *
+     * @return The duplicate clusters, highest score first.
+     */
+    public List<DuplicateCluster> findDuplicateProjects() {
+        requireDatabase("Duplicate detection");
+        return duplicateDetector.run();
     }
 
     public List<Project> fetchAllProjects() {
-        return projectDao.fetchAllProjects();
+        List<Project> projects = projectStore.fetchAllProjects();
+        projects.forEach(this::withPendingActualHours);
+        return projects;
+    }
+
+    /**
+     * Stream every project with its materials, steps and categories. This is for consumers that
+     * process every project; see {@link ProjectPublisher}.
+     */
+    public Flow.Publisher<Project> publishAllProjects() {
+        return projectStore.publishAllProjects();
     }
 
     public Project fetchProjectById(Integer projectId) {
-		return projectDao.fetchProjectById(projectId)
-				.orElseThrow(() -> new NoSuchElementException("Project with ID=" + projectId + " does not exist."));
+		return withPendingActualHours(projectStore.fetchProjectById(projectId)
+				.orElseThrow(() -> new NoSuchElementException("Project with ID=" + projectId + " does not exist.")));
 	} // end fetchProjectByIdService
 
+    /**
+     * Fetch a project as it was at the given time. See {@link ProjectStore#fetchProjectAsOf}.
+     */
+    public Project fetchProjectAsOf(Integer projectId, Instant asOf) {
+        return projectStore.fetchProjectAsOf(projectId, asOf).orElseThrow(() -> new NoSuchElementException(
+                "Project with ID=" + projectId + " did not exist at " + asOf + "."));
+    }
+
+    public Project fetchProjectById(Integer projectId, FetchProfile profile) {
+        Project project = projectStore.fetchProjectById(projectId, profile)
+                .orElseThrow(() -> new NoSuchElementException("Project with ID=" + projectId + " does not exist."));
+        return withPendingActualHours(project);
+    }
+
+    /**
+     * Buffer actual hours updates and write them in batches from now on. See
+     * {@link ActualHoursWriteBehind}.
+     */
+    public synchronized void enableActualHoursWriteBehind(WriteBehindOptions options) {
+        if (Objects.isNull(actualHoursBuffer)) {
+            actualHoursBuffer = new ActualHoursWriteBehind(projectStore, options);
+        }
+    }
+
+    /**
+     * Record a project's actual hours. With write-behind enabled the update is buffered; otherwise
+     * it is written immediately.
+     */
+    public void recordActualHours(Integer projectId, BigDecimal actualHours) {
+        if (Objects.nonNull(actualHoursBuffer)) {
+            actualHoursBuffer.record(projectId, actualHours);
+        } else if (projectStore.updateActualHours(Map.of(projectId, actualHours)) == 0) {
+            throw new DbException("Project with ID=" + projectId + " does not exist.");
+        }
+    }
+
+    /**
+     * Show buffered actual hours that haven't been written yet, so callers read their own writes.
+     */
+    private Project withPendingActualHours(Project project) {
+        if (Objects.nonNull(actualHoursBuffer)) {
+            BigDecimal pending = actualHoursBuffer.getPending(project.getProjectId());
+
+            if (Objects.nonNull(pending)) {
+                project.setActualHours(pending);
+            }
+        }
+
+        return project;
+    }
+
+    private void discardPendingActualHours(Integer projectId) {
+        if (Objects.nonNull(actualHoursBuffer)) {
+            actualHoursBuffer.discard(projectId);
+        }
+    }
+
+    public List<Step> fetchStepRange(Integer projectId, int afterStepOrder, int maxSteps) {
+        return projectStore.fetchStepRange(projectId, afterStepOrder, maxSteps);
+    }
+
+    public StepCursor streamSteps(Integer projectId) {
+        return projectStore.openStepCursor(projectId);
+    }
+
+    public List<Category> fetchAllCategories() {
+        requireDatabase("The category list");
+        return CategoryDictionary.getInstance().getCategories();
+    }
+
+    public int[] fetchProjectIdsInCategory(Integer categoryId) {
+        requireDatabase("The category index");
+        return CategoryDictionary.getInstance().getProjectIdsInCategory(categoryId);
+    }
+
+    /**
+     * Run several service calls in one transaction on one connection. See
+     * {@link TransactionTemplate}. With sharding the unit of work covers only the first shard;
+     * calls that go to other shards run in their own transactions. The memory store makes each
+     * call atomic but has no transactions across calls, so it throws
+     * UnsupportedOperationException.
+     *
+     * @param options Read-only and isolation settings.
+     * @param work The calls to make.
+     * @return The result of the work.
+     */
+    public <T> T inTransaction(TransactionOptions options, Supplier<T> work) {
+        return projectStore.inTransaction(options, work);
+    }
+
+    /**
+     * The project's actual hours are written with the other details, so a buffered value for the
+     * project is discarded first rather than flushed over them later.
+     */
     public void modifyProjectDetails(Project project) {
-        boolean updated = projectDao.modifyProjectDetails(project);
+        discardPendingActualHours(project.getProjectId());
+
+        boolean updated = projectStore.modifyProjectDetails(project);
         if (!updated) {
             throw new DbException("Project with ID=" + project.getProjectId() + " does not exist.");
         }
     }
 
+    public long purgeProjects(PurgeCriteria criteria, PurgeOptions options, PurgeListener listener) {
+        requireDatabase("Purging");
+
+        long purged = 0;
+
+        for (ProjectPurger projectPurger : projectPurgers) {
+            purged += projectPurger.purge(criteria, options, listener);
+        }
+
+        return purged;
+    }
+
+    /**
+     * Remove project versions that stopped being current longer ago than the retention period,
+     * in every schema. The memory store compacts its history, and its log, in one pass.
+     *
+     * @return The number of versions removed.
+     */
+    public long compactHistory(Duration retention, PurgeOptions options) {
+        if (Objects.nonNull(memoryStore)) {
+            return memoryStore.compactHistory(retention);
+        }
+
+        long removed = 0;
+
+        for (String schema : schemas()) {
+            removed += new HistoryCompactor(schema).compact(retention, options);
+        }
+
+        return removed;
+    }
+
     public void deleteProject(Integer projectId) {
-        boolean deleted = projectDao.deleteProject(projectId);
+        discardPendingActualHours(projectId);
+
+        boolean deleted = projectStore.deleteProject(projectId);
         if (!deleted) {
             throw new DbException("Project with ID=" + projectId + " does not exist.");
         }
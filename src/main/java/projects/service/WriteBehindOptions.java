@@ -0,0 +1,52 @@
+package projects.service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * This holds the settings for the {@link ActualHoursWriteBehind} buffer. By default the buffer
+ * flushes once a second or when 1,000 projects have pending updates, and keeps no write-ahead log,
+ * so updates that haven't been flushed are lost if the process is killed.
+ */
+public class WriteBehindOptions {
+  private int maxPendingProjects = 1000;
+  private Duration flushInterval = Duration.ofSeconds(1);
+  private Path walDirectory;
+
+  public int getMaxPendingProjects() {
+    return maxPendingProjects;
+  }
+
+  public void setMaxPendingProjects(int maxPendingProjects) {
+    if(maxPendingProjects < 1) {
+      throw new IllegalArgumentException("The pending project limit must be at least 1.");
+    }
+
+    this.maxPendingProjects = maxPendingProjects;
+  }
+
+  public Duration getFlushInterval() {
+    return flushInterval;
+  }
+
+  public void setFlushInterval(Duration flushInterval) {
+    this.flushInterval = flushInterval;
+  }
+
+  /**
+   * @return The directory for the write-ahead log, or null if there is no log.
+   */
+  public Path getWalDirectory() {
+    return walDirectory;
+  }
+
+  /**
+   * When a directory is set, each update is appended to a log file there and synced to disk before
+   * it is acknowledged. Updates in the log that were never flushed are replayed on the next start.
+   *
+   * @param walDirectory The directory, or null to turn the log off.
+   */
+  public void setWalDirectory(Path walDirectory) {
+    this.walDirectory = walDirectory;
+  }
+}
@@ -0,0 +1,33 @@
+package projects.similarity;
+
+import java.util.List;
+
+/**
+ * This is a group of projects that look like duplicates of one another. The score is the mean
+ * estimated similarity of the linked pairs in the group, from 0 to 1.
+ */
+public class DuplicateCluster {
+  private final List<Integer> projectIds;
+  private final double score;
+
+  DuplicateCluster(List<Integer> projectIds, double score) {
+    this.projectIds = List.copyOf(projectIds);
+    this.score = score;
+  }
+
+  /**
+   * @return The project IDs in ascending order.
+   */
+  public List<Integer> getProjectIds() {
+    return projectIds;
+  }
+
+  public double getScore() {
+    return score;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%.2f %s", score, projectIds);
+  }
+}
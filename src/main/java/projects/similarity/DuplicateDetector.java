@@ -0,0 +1,223 @@
+package projects.similarity;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import projects.dao.ConnectionProfile;
+import projects.dao.DbConnection;
+import projects.exception.DbException;
+
+/**
+ * This finds near-duplicate projects: projects whose materials and categories mostly overlap.
+ *
+ * {@link #run()} is the batch job. It streams every project's material names and category IDs,
+ * computes a {@link MinHash} signature per project, and adds it to an {@link LshIndex}, which
+ * returns the earlier projects worth comparing. Pairs whose estimated similarity reaches the
+ * threshold are linked, and linked projects are grouped into clusters with a union-find.
+ *
+ * Each run starts from an empty index. Projects added or changed since the last run, including
+ * their materials and categories, are picked up by the next one.
+ */
+public class DuplicateDetector {
+  public static final double DEFAULT_THRESHOLD = 0.5;
+
+  // @formatter:off
+  private static final String MATERIAL_FEATURES_SQL = ""
+      + "SELECT m.project_id, m.material_name FROM material m "
+      + "JOIN project p ON p.project_id = m.project_id "
+      + "WHERE p.deleted_at IS NULL ORDER BY m.project_id";
+
+  private static final String CATEGORY_FEATURES_SQL = ""
+      + "SELECT pc.project_id, pc.category_id FROM project_category pc "
+      + "JOIN project p ON p.project_id = pc.project_id "
+      + "WHERE p.deleted_at IS NULL ORDER BY pc.project_id";
+  // @formatter:on
+
+  private final List<String> schemas;
+  private final double threshold;
+
+  /* The result of the last run. */
+  private volatile List<DuplicateCluster> clusters = List.of();
+
+  /**
+   * @param schemas The schemas to read. Project IDs must be unique across them.
+   * @param threshold The estimated similarity, from 0 to 1, at which two projects are linked.
+   */
+  public DuplicateDetector(List<String> schemas, double threshold) {
+    this.schemas = List.copyOf(schemas);
+    this.threshold = threshold;
+  }
+
+  /**
+   * Index every project in the database and group the similar ones.
+   *
+   * @return The duplicate clusters, highest score first.
+   */
+  public List<DuplicateCluster> run() {
+    LshIndex index = new LshIndex();
+    List<Link> links = new ArrayList<>();
+
+    for(String schema : schemas) {
+      readFeatures(schema, (projectId, features) -> link(index, links, projectId, features));
+    }
+
+    List<DuplicateCluster> found = clusters(links);
+    clusters = found;
+    return found;
+  }
+
+  /**
+   * @return The clusters from the last run, highest score first. Empty before the first run.
+   */
+  public List<DuplicateCluster> getClusters() {
+    return clusters;
+  }
+
+  /**
+   * Index one project and link it to the candidates that are similar enough.
+   */
+  private void link(LshIndex index, List<Link> links, int projectId, Set<String> features) {
+    long[] signature = MinHash.signature(features);
+
+    if(Objects.isNull(signature)) {
+      return;
+    }
+
+    for(int candidate : index.add(projectId, signature)) {
+      double similarity = MinHash.similarity(signature, index.signatureOf(candidate));
+
+      if(similarity >= threshold) {
+        links.add(new Link(candidate, projectId, similarity));
+      }
+    }
+  }
+
+  private static List<DuplicateCluster> clusters(List<Link> links) {
+    Map<Integer, Integer> parent = new HashMap<>();
+
+    for(Link link : links) {
+      union(parent, link.first, link.second);
+    }
+
+    Map<Integer, List<Integer>> members = new HashMap<>();
+    Map<Integer, double[]> scores = new HashMap<>();
+
+    for(Integer projectId : parent.keySet()) {
+      members.computeIfAbsent(find(parent, projectId), root -> new ArrayList<>()).add(projectId);
+    }
+
+    for(Link link : links) {
+      double[] sumAndCount = scores.computeIfAbsent(find(parent, link.first), root -> new double[2]);
+      sumAndCount[0] += link.similarity;
+      sumAndCount[1]++;
+    }
+
+    List<DuplicateCluster> found = new ArrayList<>();
+
+    for(Map.Entry<Integer, List<Integer>> entry : members.entrySet()) {
+      List<Integer> projectIds = entry.getValue();
+      projectIds.sort(Comparator.naturalOrder());
+
+      double[] sumAndCount = scores.get(entry.getKey());
+      found.add(new DuplicateCluster(projectIds, sumAndCount[0] / sumAndCount[1]));
+    }
+
+    found.sort(Comparator.comparingDouble(DuplicateCluster::getScore).reversed()
+        .thenComparing(cluster -> cluster.getProjectIds().get(0)));
+    return found;
+  }
+
+  private static void union(Map<Integer, Integer> parent, int a, int b) {
+    int rootA = find(parent, a);
+    int rootB = find(parent, b);
+
+    if(rootA != rootB) {
+      parent.put(Math.max(rootA, rootB), Math.min(rootA, rootB));
+    }
+  }
+
+  /**
+   * Find the root, halving the path on the way so later finds are shorter.
+   */
+  private static int find(Map<Integer, Integer> parent, int projectId) {
+    parent.putIfAbsent(projectId, projectId);
+    int current = projectId;
+
+    while(parent.get(current) != current) {
+      int grandparent = parent.get(parent.get(current));
+      parent.put(current, grandparent);
+      current = grandparent;
+    }
+
+    return current;
+  }
+
+  /**
+   * Stream material names and category IDs in project ID order on two connections and hand each
+   * project's combined feature set to the consumer.
+   */
+  private void readFeatures(String schema, FeatureConsumer consumer) {
+    try(Connection materialConn = DbConnection.getConnection(schema, ConnectionProfile.STREAMING);
+        Connection categoryConn = DbConnection.getConnection(schema, ConnectionProfile.STREAMING);
+        PreparedStatement materialStmt = streaming(materialConn, MATERIAL_FEATURES_SQL);
+        PreparedStatement categoryStmt = streaming(categoryConn, CATEGORY_FEATURES_SQL);
+        ResultSet materials = materialStmt.executeQuery();
+        ResultSet categories = categoryStmt.executeQuery()) {
+      boolean hasMaterial = materials.next();
+      boolean hasCategory = categories.next();
+
+      while(hasMaterial || hasCategory) {
+        int projectId = Math.min(hasMaterial ? materials.getInt(1) : Integer.MAX_VALUE,
+            hasCategory ? categories.getInt(1) : Integer.MAX_VALUE);
+        Set<String> features = new HashSet<>();
+
+        while(hasMaterial && materials.getInt(1) == projectId) {
+          features.add(MinHash.materialFeature(materials.getString(2)));
+          hasMaterial = materials.next();
+        }
+
+        while(hasCategory && categories.getInt(1) == projectId) {
+          features.add(MinHash.categoryFeature(categories.getInt(2)));
+          hasCategory = categories.next();
+        }
+
+        consumer.accept(projectId, features);
+      }
+    }
+    catch(SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  private static PreparedStatement streaming(Connection conn, String sql) throws SQLException {
+    PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    DbConnection.streamResults(stmt);
+    return stmt;
+  }
+
+  private interface FeatureConsumer {
+    void accept(int projectId, Set<String> features);
+  }
+
+  private static class Link {
+    final int first;
+    final int second;
+    final double similarity;
+
+    Link(int first, int second, double similarity) {
+      this.first = first;
+      this.second = second;
+      this.similarity = similarity;
+    }
+  }
+}
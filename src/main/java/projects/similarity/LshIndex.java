@@ -0,0 +1,70 @@
+package projects.similarity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This finds candidate duplicates by locality-sensitive hashing. A signature is cut into bands of
+ * consecutive slots and each band is hashed into a bucket; two projects become a candidate pair if
+ * they share a bucket in at least one band. With 32 bands of 4 slots, a pair with similarity s is
+ * found with probability 1 - (1 - s^4)^32: about 87% at s = 0.5 and 99% at s = 0.6, while pairs
+ * at 0.2 are compared only 5% of the time. Adding a project costs one lookup per band rather than
+ * a comparison with every other project.
+ */
+class LshIndex {
+  static final int BANDS = 32;
+  static final int ROWS = MinHash.SIGNATURE_LENGTH / BANDS;
+
+  /*
+   * Many projects can land in one bucket (identical single-category projects, for example). Only
+   * the first members of a bucket are returned as candidates, which keeps a crowded bucket from
+   * making the work quadratic. The members are similar to one another, so linking a new project to
+   * some of them is enough to put it in their cluster.
+   */
+  static final int MAX_CANDIDATES_PER_BUCKET = 100;
+
+  private final List<Map<Long, List<Integer>>> bands = new ArrayList<>();
+  private final Map<Integer, long[]> signatures = new HashMap<>();
+
+  LshIndex() {
+    for(int band = 0; band < BANDS; band++) {
+      bands.add(new HashMap<>());
+    }
+  }
+
+  /**
+   * Add a project and return the projects already in the index that share a bucket with it.
+   */
+  Set<Integer> add(int projectId, long[] signature) {
+    Set<Integer> candidates = new LinkedHashSet<>();
+
+    for(int band = 0; band < BANDS; band++) {
+      List<Integer> bucket = bands.get(band).computeIfAbsent(bandKey(signature, band), key -> new ArrayList<>());
+
+      candidates.addAll(bucket.subList(0, Math.min(bucket.size(), MAX_CANDIDATES_PER_BUCKET)));
+      bucket.add(projectId);
+    }
+
+    candidates.remove(projectId);
+    signatures.put(projectId, signature);
+    return candidates;
+  }
+
+  long[] signatureOf(int projectId) {
+    return signatures.get(projectId);
+  }
+
+  private static long bandKey(long[] signature, int band) {
+    long key = band;
+
+    for(int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+      key = MinHash.mix(key * 31 + signature[row]);
+    }
+
+    return key;
+  }
+}
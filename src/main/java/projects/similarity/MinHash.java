@@ -0,0 +1,114 @@
+package projects.similarity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * This computes MinHash signatures. A project is reduced to a set of features (its material names
+ * and category IDs), and each of the signature's slots holds the smallest value of one hash
+ * function over those features. The fraction of slots in which two signatures agree estimates the
+ * Jaccard similarity of the two feature sets: the size of the intersection over the size of the
+ * union.
+ */
+public final class MinHash {
+  /** The number of hash functions, and so the length of a signature. */
+  public static final int SIGNATURE_LENGTH = 128;
+
+  private static final long[] SEEDS = new long[SIGNATURE_LENGTH];
+
+  static {
+    long seed = 0x5DEECE66DL;
+
+    for(int i = 0; i < SEEDS.length; i++) {
+      seed = mix(seed + 0x9E3779B97F4A7C15L);
+      SEEDS[i] = seed;
+    }
+  }
+
+  private MinHash() {}
+
+  /**
+   * @param materialName A material name as entered.
+   * @return The feature for the material. Case and runs of whitespace are ignored, so that "Wood
+   *         screws" and "wood  screws" are the same material.
+   */
+  public static String materialFeature(String materialName) {
+    return "m:" + materialName.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * @param categoryId A category ID.
+   * @return The feature for the category.
+   */
+  public static String categoryFeature(int categoryId) {
+    return "c:" + categoryId;
+  }
+
+  /**
+   * @param features The feature set. Duplicates don't matter.
+   * @return The signature, or null if there are no features.
+   */
+  public static long[] signature(Collection<String> features) {
+    if(features.isEmpty()) {
+      return null;
+    }
+
+    long[] signature = new long[SIGNATURE_LENGTH];
+    Arrays.fill(signature, Long.MAX_VALUE);
+
+    for(String feature : features) {
+      long base = hash(feature);
+
+      for(int i = 0; i < SIGNATURE_LENGTH; i++) {
+        long value = mix(base ^ SEEDS[i]);
+
+        if(value < signature[i]) {
+          signature[i] = value;
+        }
+      }
+    }
+
+    return signature;
+  }
+
+  /**
+   * @return The estimated Jaccard similarity, from 0 to 1.
+   */
+  public static double similarity(long[] a, long[] b) {
+    int equal = 0;
+
+    for(int i = 0; i < SIGNATURE_LENGTH; i++) {
+      if(a[i] == b[i]) {
+        equal++;
+      }
+    }
+
+    return (double)equal / SIGNATURE_LENGTH;
+  }
+
+  /**
+   * 64-bit FNV-1a over the UTF-16 code units. String.hashCode is only 32 bits, which is too few
+   * for large feature sets.
+   */
+  private static long hash(String feature) {
+    long hash = 0xCBF29CE484222325L;
+
+    for(int i = 0; i < feature.length(); i++) {
+      hash ^= feature.charAt(i);
+      hash *= 0x100000001B3L;
+    }
+
+    return hash;
+  }
+
+  /**
+   * The SplitMix64 finalizer. It spreads every input bit over the whole output, which makes each
+   * seed behave as an independent hash function.
+   */
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
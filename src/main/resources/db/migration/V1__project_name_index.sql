@@ -0,0 +1,2 @@
+-- Lets fetchAllProjects read projects in ORDER BY project_name order without a filesort.
+CREATE INDEX idx_project_name ON project (project_name);
@@ -0,0 +1,2 @@
+-- Serves step retrieval for a project in step order straight from the index.
+CREATE INDEX idx_step_project_order ON step (project_id, step_order);
@@ -0,0 +1,2 @@
+-- Covers the category -> projects reverse lookup used by CategoryDictionary.
+CREATE INDEX idx_project_category_category ON project_category (category_id, project_id);
@@ -0,0 +1,3 @@
+-- Soft-deleted projects are hidden from reads until the purger's compaction removes them.
+ALTER TABLE project ADD COLUMN deleted_at TIMESTAMP NULL;
+CREATE INDEX idx_project_deleted_at ON project (deleted_at);
@@ -0,0 +1,10 @@
+-- Hands out blocks of project IDs so that sharded inserts don't depend on per-shard AUTO_INCREMENT.
+CREATE TABLE IF NOT EXISTS project_id_sequence (
+  next_id BIGINT NOT NULL
+);
+
+-- Seed the sequence past any existing project ID. Only one row is ever inserted. IdAllocator
+-- raises it past the IDs in every shard before it hands out IDs.
+INSERT INTO project_id_sequence (next_id)
+SELECT seed.next_id FROM (SELECT COALESCE(MAX(project_id), 0) + 1 AS next_id FROM project) seed
+WHERE NOT EXISTS (SELECT * FROM project_id_sequence);
@@ -0,0 +1,25 @@
+-- One row per version of a project. A version is valid from valid_from until valid_to; the current
+-- version has no valid_to. Rows are only appended and closed, never changed otherwise, and outlive
+-- the project so that deleted projects can still be read as of an earlier time.
+CREATE TABLE IF NOT EXISTS project_history (
+  history_id BIGINT AUTO_INCREMENT NOT NULL,
+  project_id INT NOT NULL,
+  project_name VARCHAR(128) NOT NULL,
+  estimated_hours DECIMAL(7,2),
+  actual_hours DECIMAL(7,2),
+  difficulty INT,
+  notes TEXT,
+  valid_from TIMESTAMP(6) NOT NULL,
+  valid_to TIMESTAMP(6) NULL,
+  PRIMARY KEY (history_id)
+);
+
+-- fetchProjectAsOf reads the last version that started at or before the requested time.
+CREATE INDEX idx_project_history_project_valid_from ON project_history (project_id, valid_from);
+
+-- History starts now: the existing projects get their current row as the first version. Projects
+-- that already have history are skipped, so re-running this after a crash adds no second version.
+INSERT INTO project_history (project_id, project_name, estimated_hours, actual_hours, difficulty, notes, valid_from)
+SELECT project_id, project_name, estimated_hours, actual_hours, difficulty, notes, CURRENT_TIMESTAMP(6)
+FROM project WHERE deleted_at IS NULL
+AND NOT EXISTS (SELECT 1 FROM project_history h WHERE h.project_id = project.project_id);
@@ -1,8 +1,12 @@
+-- Indexes and later schema changes are applied by SchemaMigrator from db/migration.
 DROP TABLE IF EXISTS project;
 DROP TABLE IF EXISTS project_category;
 DROP TABLE IF EXISTS category;
 DROP TABLE IF EXISTS step;
 DROP TABLE IF EXISTS material;
+DROP TABLE IF EXISTS schema_version;
+DROP TABLE IF EXISTS project_id_sequence;
+DROP TABLE IF EXISTS project_history;
 
 
 CREATE TABLE project (